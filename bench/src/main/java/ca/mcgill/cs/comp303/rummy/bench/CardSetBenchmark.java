@@ -0,0 +1,81 @@
+package ca.mcgill.cs.comp303.rummy.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import ca.mcgill.cs.comp303.rummy.model.BitCardSet;
+import ca.mcgill.cs.comp303.rummy.model.CardMask;
+import ca.mcgill.cs.comp303.rummy.model.CardSet;
+import ca.mcgill.cs.comp303.rummy.model.ICardSet;
+import ca.mcgill.cs.comp303.rummy.model.MeldTable;
+
+/**
+ * Run and group checks on the two card set implementations, over every
+ * meld of the deck and as many near misses.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CardSetBenchmark
+{
+	private ICardSet[] aBitSets;
+	private ICardSet[] aHashSets;
+	private int aNext;
+
+	@Setup
+	public void setUp()
+	{
+		int lSize = Integer.highestOneBit(2 * MeldTable.size());
+		aBitSets = new ICardSet[lSize];
+		aHashSets = new ICardSet[lSize];
+		for( int i = 0; i < lSize; i++ )
+		{
+			long lMask = MeldTable.get(i % MeldTable.size());
+			if( i % 2 == 1 )
+			{
+				// Swap the highest card for the next card id: a near miss.
+				long lHighest = Long.highestOneBit(lMask);
+				lMask = (lMask & ~lHighest) | ((lHighest << 1) & CardMask.ALL);
+			}
+			aBitSets[i] = new BitCardSet(lMask);
+			aHashSets[i] = new CardSet(CardMask.toList(lMask));
+		}
+	}
+
+	private int next()
+	{
+		aNext = (aNext + 1) & (aBitSets.length - 1);
+		return aNext;
+	}
+
+	@Benchmark
+	public boolean bitIsRun()
+	{
+		return aBitSets[next()].isRun();
+	}
+
+	@Benchmark
+	public boolean bitIsGroup()
+	{
+		return aBitSets[next()].isGroup();
+	}
+
+	@Benchmark
+	public boolean hashIsRun()
+	{
+		return aHashSets[next()].isRun();
+	}
+
+	@Benchmark
+	public boolean hashIsGroup()
+	{
+		return aHashSets[next()].isGroup();
+	}
+}
@@ -0,0 +1,41 @@
+package ca.mcgill.cs.comp303.rummy.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import ca.mcgill.cs.comp303.rummy.model.Deck;
+
+/**
+ * Shuffling and dealing.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class DeckBenchmark
+{
+	private Deck aDeck = new Deck(42);
+
+	@Benchmark
+	public int shuffle()
+	{
+		aDeck.shuffle();
+		return aDeck.size();
+	}
+
+	@Benchmark
+	public void shuffleAndDrawAll(Blackhole pBlackhole)
+	{
+		aDeck.shuffle();
+		while( aDeck.size() > 0 )
+		{
+			pBlackhole.consume(aDeck.draw());
+		}
+	}
+}
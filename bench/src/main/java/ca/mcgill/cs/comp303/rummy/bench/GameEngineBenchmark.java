@@ -0,0 +1,44 @@
+package ca.mcgill.cs.comp303.rummy.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import ca.mcgill.cs.comp303.rummy.model.GameEngine;
+import ca.mcgill.cs.comp303.rummy.model.NumberOfPlayersException;
+import ca.mcgill.cs.comp303.rummy.model.RandomPlayer;
+
+/**
+ * A complete simulated hand between two random players: deal, turns until
+ * the end of the hand, and the end of hand processing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Threads(1)
+public class GameEngineBenchmark
+{
+	private GameEngine aEngine;
+
+	@Setup
+	public void setUp() throws NumberOfPlayersException
+	{
+		aEngine = new GameEngine();
+		aEngine.addPlayer(new RandomPlayer("Player 0", aEngine));
+		aEngine.addPlayer(new RandomPlayer("Player 1", aEngine));
+	}
+
+	@Benchmark
+	public int[] playHand() throws NumberOfPlayersException
+	{
+		aEngine.newGame();
+		return aEngine.getScore();
+	}
+}
@@ -0,0 +1,75 @@
+package ca.mcgill.cs.comp303.rummy.bench;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import ca.mcgill.cs.comp303.rummy.model.Card;
+import ca.mcgill.cs.comp303.rummy.model.CardMask;
+import ca.mcgill.cs.comp303.rummy.model.Hand;
+
+/**
+ * Hand updates and automatic matching.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class HandBenchmark
+{
+	private static final int HANDS = 1024;
+
+	@Param({"RANDOM", "RUN_HEAVY", "GROUP_HEAVY", "OVERLAPPING"})
+	private HandGenerator aGenerator;
+
+	private Hand[] aHands = new Hand[HANDS];
+	private Card[] aExtra = new Card[HANDS];
+	private int aNext;
+
+	@Setup
+	public void setUp()
+	{
+		long[] lMasks = aGenerator.generate(10, HANDS, 42);
+		for( int i = 0; i < HANDS; i++ )
+		{
+			List<Card> lCards = CardMask.toList(lMasks[i]);
+			aHands[i] = new Hand();
+			for( Card lCard : lCards.subList(0, 9) )
+			{
+				aHands[i].add(lCard);
+			}
+			aExtra[i] = lCards.get(9);
+		}
+	}
+
+	private int next()
+	{
+		aNext = (aNext + 1) & (HANDS - 1);
+		return aNext;
+	}
+
+	@Benchmark
+	public int autoMatch()
+	{
+		Hand lHand = aHands[next()];
+		lHand.autoMatch();
+		return lHand.score();
+	}
+
+	@Benchmark
+	public int addRemove()
+	{
+		int i = next();
+		aHands[i].add(aExtra[i]);
+		int lSize = aHands[i].size();
+		aHands[i].remove(aExtra[i]);
+		return lSize;
+	}
+}
@@ -0,0 +1,79 @@
+package ca.mcgill.cs.comp303.rummy.bench;
+
+import java.util.Random;
+
+import ca.mcgill.cs.comp303.rummy.model.CardMask;
+
+/**
+ * Generates reproducible hands, as card masks, with different meld structures.
+ */
+public enum HandGenerator
+{
+	/** Cards drawn uniformly from the deck. */
+	RANDOM
+	{
+		@Override
+		int nextCard(Random pRandom, int pWindow)
+		{
+			return pRandom.nextInt(52);
+		}
+	},
+	/** Cards of one or two suits, from consecutive ranks. */
+	RUN_HEAVY
+	{
+		@Override
+		int nextCard(Random pRandom, int pWindow)
+		{
+			int lSuit = (pWindow + pRandom.nextInt(2)) % 4;
+			return lSuit * CardMask.SUIT_WIDTH + (pWindow + pRandom.nextInt(7)) % CardMask.SUIT_WIDTH;
+		}
+	},
+	/** Cards of a few ranks, in any suit. */
+	GROUP_HEAVY
+	{
+		@Override
+		int nextCard(Random pRandom, int pWindow)
+		{
+			int lRank = (pWindow + 3 * pRandom.nextInt(4)) % CardMask.SUIT_WIDTH;
+			return pRandom.nextInt(4) * CardMask.SUIT_WIDTH + lRank;
+		}
+	},
+	/** Cards of three suits within four consecutive ranks: many runs and groups share cards. */
+	OVERLAPPING
+	{
+		@Override
+		int nextCard(Random pRandom, int pWindow)
+		{
+			int lSuit = (pWindow + pRandom.nextInt(3)) % 4;
+			return lSuit * CardMask.SUIT_WIDTH + (pWindow + pRandom.nextInt(4)) % CardMask.SUIT_WIDTH;
+		}
+	};
+
+	/*
+	 * Draws a card id. pWindow is fixed for a hand and selects its ranks and suits.
+	 */
+	abstract int nextCard(Random pRandom, int pWindow);
+
+	/**
+	 * @param pSize The number of cards per hand, at most 12.
+	 * @param pCount The number of hands.
+	 * @param pSeed The seed of the generator.
+	 * @return pCount hand masks of pSize cards each.
+	 */
+	public long[] generate(int pSize, int pCount, long pSeed)
+	{
+		Random lRandom = new Random(pSeed);
+		long[] lHands = new long[pCount];
+		for( int i = 0; i < pCount; i++ )
+		{
+			int lWindow = lRandom.nextInt(CardMask.SUIT_WIDTH);
+			long lHand = 0;
+			while( Long.bitCount(lHand) < pSize )
+			{
+				lHand |= 1L << nextCard(lRandom, lWindow);
+			}
+			lHands[i] = lHand;
+		}
+		return lHands;
+	}
+}
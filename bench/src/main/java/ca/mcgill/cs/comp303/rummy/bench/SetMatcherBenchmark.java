@@ -0,0 +1,87 @@
+package ca.mcgill.cs.comp303.rummy.bench;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import ca.mcgill.cs.comp303.rummy.model.Card;
+import ca.mcgill.cs.comp303.rummy.model.CardMask;
+import ca.mcgill.cs.comp303.rummy.model.DiscardAnalysis;
+import ca.mcgill.cs.comp303.rummy.model.ICardSet;
+import ca.mcgill.cs.comp303.rummy.model.MatchCache;
+import ca.mcgill.cs.comp303.rummy.model.MatchResult;
+import ca.mcgill.cs.comp303.rummy.model.SetMatcher;
+
+/**
+ * Optimal matching of a hand, with and without the matching cache.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SetMatcherBenchmark
+{
+	private static final int HANDS = 1024;
+
+	@Param({"RANDOM", "RUN_HEAVY", "GROUP_HEAVY", "OVERLAPPING"})
+	private HandGenerator aGenerator;
+
+	@Param({"10", "11"})
+	private int aSize;
+
+	private long[] aHands;
+	private List<Card>[] aCards;
+	private int aNext;
+	private SetMatcher aUncached = new SetMatcher(null);
+	private SetMatcher aCached = new SetMatcher(new MatchCache(HANDS, MatchCache.EvictionPolicy.LRU));
+
+	@SuppressWarnings("unchecked")
+	@Setup
+	public void setUp()
+	{
+		aHands = aGenerator.generate(aSize, HANDS, 42);
+		aCards = new List[HANDS];
+		for( int i = 0; i < HANDS; i++ )
+		{
+			aCards[i] = CardMask.toList(aHands[i]);
+		}
+	}
+
+	private int next()
+	{
+		aNext = (aNext + 1) & (HANDS - 1);
+		return aNext;
+	}
+
+	@Benchmark
+	public Set<ICardSet> matchSets()
+	{
+		return aUncached.matchSets(aCards[next()]);
+	}
+
+	@Benchmark
+	public MatchResult matchMask()
+	{
+		return aUncached.match(aHands[next()]);
+	}
+
+	@Benchmark
+	public DiscardAnalysis analyzeDiscards()
+	{
+		return aUncached.analyzeDiscards(aHands[next()]);
+	}
+
+	@Benchmark
+	public MatchResult matchMaskCached()
+	{
+		return aCached.match(aHands[next()]);
+	}
+}
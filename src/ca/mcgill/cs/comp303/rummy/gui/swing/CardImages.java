@@ -1,14 +1,31 @@
 package ca.mcgill.cs.comp303.rummy.gui.swing;
 
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
+import javax.imageio.ImageIO;
 import javax.swing.ImageIcon;
 
 import ca.mcgill.cs.comp303.rummy.model.Card;
 
 /**
  * A class to store and manage images of the 52 cards.
+ * All the images are decoded at once, in parallel, by preload or by the
+ * first request of an image, and published as an immutable map: reading
+ * an image never touches the disk once they are loaded, and is threadsafe.
+ * Call preload before showing the first cards, off the event-dispatch thread.
  */
 public final class CardImages 
 {
@@ -16,12 +33,83 @@ public final class CardImages
 	private static final String IMAGE_SUFFIX = ".gif";
 	private static final String[] RANK_CODES = {"a", "2", "3", "4", "5", "6", "7", "8", "9", "t", "j", "q", "k"};
 	private static final String[] SUIT_CODES = {"c", "d", "h", "s"};	
+	private static final String BACK = "b";
+	private static final String JOKER = "j";
+	private static final int ATLAS_COLUMNS = RANK_CODES.length;
 	
-	private static Map<String, ImageIcon> aCards = new HashMap<String, ImageIcon>();
+	// Immutable once published, null until the images are loaded.
+	private static volatile Map<String, ImageIcon> aCards;
+	private static volatile BufferedImage aAtlas;
 	
 	private CardImages()
 	{}
 	
+	/**
+	 * Loads all the images, if they are not already. Blocks until they are loaded.
+	 * @throws IllegalStateException If an image cannot be read.
+	 */
+	public static void preload()
+	{
+		preload(false);
+	}
+	
+	/**
+	 * Loads all the images, if they are not already, decoding them in parallel.
+	 * Blocks until they are loaded.
+	 * @param pAtlas True to pack the images in a single sprite atlas (see getAtlas);
+	 * the icons are then views of the atlas.
+	 * @throws IllegalStateException If an image cannot be read.
+	 */
+	public static synchronized void preload(boolean pAtlas)
+	{
+		if( aCards != null && (!pAtlas || aAtlas != null) )
+		{
+			return;
+		}
+		List<String> lCodes = getCodes();
+		List<BufferedImage> lImages = decode(lCodes);
+		Map<String, ImageIcon> lCards = new HashMap<String, ImageIcon>();
+		if( pAtlas )
+		{
+			int lWidth = lImages.get(0).getWidth();
+			int lHeight = lImages.get(0).getHeight();
+			int lRows = (lImages.size() + ATLAS_COLUMNS - 1) / ATLAS_COLUMNS;
+			BufferedImage lAtlas = new BufferedImage(lWidth * ATLAS_COLUMNS, lHeight * lRows, BufferedImage.TYPE_INT_ARGB);
+			Graphics2D lGraphics = lAtlas.createGraphics();
+			for( int i = 0; i < lImages.size(); i++ )
+			{
+				int lX = (i % ATLAS_COLUMNS) * lWidth;
+				int lY = (i / ATLAS_COLUMNS) * lHeight;
+				lGraphics.drawImage(lImages.get(i), lX, lY, null);
+				lCards.put(lCodes.get(i), new ImageIcon(lAtlas.getSubimage(lX, lY, lWidth, lHeight)));
+			}
+			lGraphics.dispose();
+			aAtlas = lAtlas;
+		}
+		else
+		{
+			for( int i = 0; i < lImages.size(); i++ )
+			{
+				lCards.put(lCodes.get(i), new ImageIcon(lImages.get(i)));
+			}
+		}
+		aCards = Collections.unmodifiableMap(lCards);
+	}
+	
+	/**
+	 * Return the sprite atlas of all the images, loading it if needed: the 52 cards
+	 * by id (a row per suit, a column per rank), then the back and the joker.
+	 * @return An image with all the images of cards, of the same size, side by side.
+	 */
+	public static BufferedImage getAtlas()
+	{
+		if( aAtlas == null )
+		{
+			preload(true);
+		}
+		return aAtlas;
+	}
+	
 	/**
 	 * Return the image of a card.
 	 * @param pCard the target card
@@ -38,7 +126,7 @@ public final class CardImages
 	 */
 	public static ImageIcon getBack()
 	{
-		return getCard( "b" );
+		return getCard( BACK );
 	}
 	
 	/**
@@ -47,7 +135,7 @@ public final class CardImages
 	 */
 	public static ImageIcon getJoker()
 	{
-		return getCard( "j" );
+		return getCard( JOKER );
 	}
 	
 	private static String getCode( Card pCard )
@@ -57,12 +145,75 @@ public final class CardImages
 	
 	private static ImageIcon getCard( String pCode )
 	{
-		ImageIcon lIcon = (ImageIcon) aCards.get( pCode );
-		if( lIcon == null )
+		Map<String, ImageIcon> lCards = aCards;
+		if( lCards == null )
+		{
+			preload();
+			lCards = aCards;
+		}
+		return lCards.get( pCode );
+	}
+	
+	/*
+	 * The codes of all the images: the cards by id, then the back and the joker.
+	 */
+	private static List<String> getCodes()
+	{
+		List<String> lCodes = new ArrayList<String>();
+		for( int i = 0; i < Card.NUMBER_OF_CARDS; i++ )
+		{
+			lCodes.add( getCode( Card.byId( i ) ) );
+		}
+		lCodes.add( BACK );
+		lCodes.add( JOKER );
+		return lCodes;
+	}
+	
+	/*
+	 * Decodes the images of pCodes, in the same order, with a task per image.
+	 */
+	private static List<BufferedImage> decode( List<String> pCodes )
+	{
+		int lThreads = Math.min( Runtime.getRuntime().availableProcessors(), pCodes.size() );
+		ExecutorService lPool = Executors.newFixedThreadPool( lThreads );
+		try
+		{
+			List<Future<BufferedImage>> lTasks = new ArrayList<Future<BufferedImage>>();
+			for( final String lCode : pCodes )
+			{
+				lTasks.add( lPool.submit( new Callable<BufferedImage>()
+				{
+					@Override
+					public BufferedImage call() throws IOException
+					{
+						URL lResource = CardImages.class.getClassLoader().getResource( IMAGE_LOCATION + lCode + IMAGE_SUFFIX );
+						if( lResource == null )
+						{
+							throw new IOException( "Missing image " + lCode + IMAGE_SUFFIX );
+						}
+						return ImageIO.read( lResource );
+					}
+				}));
+			}
+			List<BufferedImage> lImages = new ArrayList<BufferedImage>();
+			for( Future<BufferedImage> lTask : lTasks )
+			{
+				lImages.add( lTask.get() );
+			}
+			return lImages;
+		}
+		catch( ExecutionException e )
+		{
+			throw new IllegalStateException( "Cannot load the card images", e.getCause() );
+		}
+		catch( InterruptedException e )
+		{
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException( "Interrupted while loading the card images", e );
+		}
+		finally
 		{
-			lIcon = new ImageIcon(CardImages.class.getClassLoader().getResource( IMAGE_LOCATION + pCode + IMAGE_SUFFIX ));
-			aCards.put( pCode, lIcon );
+			lPool.shutdownNow();
 		}
-		return lIcon;
 	}
 }
@@ -0,0 +1,44 @@
+package ca.mcgill.cs.comp303.rummy.gui.swing;
+
+import javax.swing.JFrame;
+
+import ca.mcgill.cs.comp303.rummy.model.GameEngine;
+import ca.mcgill.cs.comp303.rummy.model.NumberOfPlayersException;
+import ca.mcgill.cs.comp303.rummy.model.RandomPlayer;
+
+/**
+ * GUI application to watch automatic games at full speed in a TableView.
+ */
+@SuppressWarnings("serial")
+public class TableDemo extends JFrame
+{
+	private static final int DEFAULT_GAMES = 100000;
+
+	/**
+	 * @param pEngine The engine to watch.
+	 */
+	public TableDemo(GameEngine pEngine)
+	{
+		super("Table Demo");
+		add(new TableView(pEngine));
+		setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+		pack();
+		setLocationRelativeTo(null);
+		setResizable(false);
+		setVisible(true);
+	}
+
+	/**
+	 * @param pArgs The number of games to play, optional
+	 * @throws NumberOfPlayersException never
+	 */
+	public static void main(String[] pArgs) throws NumberOfPlayersException
+	{
+		CardImages.preload();
+		GameEngine lEngine = new GameEngine();
+		lEngine.addPlayer(new RandomPlayer("Player 1", lEngine));
+		lEngine.addPlayer(new RandomPlayer("Player 2", lEngine));
+		new TableDemo(lEngine);
+		lEngine.autoPlay(pArgs.length > 0 ? Integer.parseInt(pArgs[0]) : DEFAULT_GAMES);
+	}
+}
@@ -0,0 +1,220 @@
+package ca.mcgill.cs.comp303.rummy.gui.swing;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.Rectangle;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.swing.JComponent;
+import javax.swing.Timer;
+
+import ca.mcgill.cs.comp303.rummy.model.Card;
+import ca.mcgill.cs.comp303.rummy.model.EventBus;
+import ca.mcgill.cs.comp303.rummy.model.GameEngine;
+import ca.mcgill.cs.comp303.rummy.model.GameEvent;
+import ca.mcgill.cs.comp303.rummy.model.GameListener;
+
+/**
+ * Shows the table of a game: the hand of the AI player at the top, the
+ * deck and the discard pile in the middle, and the hand of the human player
+ * at the bottom, all face up. The view follows the engine through a
+ * coalescing subscription to its EventBus: the engine never waits for the
+ * view, and the view only keeps the latest state of the table. At most once
+ * per frame, on the event-dispatch thread, the cards that changed since the
+ * last frame are composited into an offscreen buffer and only their regions
+ * are repainted.
+ */
+@SuppressWarnings("serial")
+public class TableView extends JComponent implements GameListener
+{
+	private static final int FRAME_MILLIS = 1000 / 60;
+	private static final int MARGIN = 10;
+	private static final int STEP = 20;
+	private static final int MAX_HAND = 11;
+	private static final int BUFFERED_EVENTS = 256;
+	private static final Color TABLE = new Color(0, 100, 0);
+	private static final Table EMPTY = new Table(new long[2], null);
+
+	private final GameEngine aEngine;
+	private final int aCardWidth;
+	private final int aCardHeight;
+	private final BufferedImage aBuffer;
+	private final Timer aTimer;
+
+	// The latest state of the table not shown yet, or null.
+	private final AtomicReference<Table> aPending = new AtomicReference<Table>();
+	// The state of the table in aBuffer. Only used on the event-dispatch thread.
+	private Table aShown = EMPTY;
+	private EventBus.Subscription aSubscription;
+
+	/**
+	 * Creates a view of the table of an engine, that follows it while the view is displayed.
+	 * @param pEngine The engine to show.
+	 */
+	public TableView(GameEngine pEngine)
+	{
+		aEngine = pEngine;
+		CardImages.preload();
+		aCardWidth = CardImages.getBack().getIconWidth();
+		aCardHeight = CardImages.getBack().getIconHeight();
+		Dimension lSize = new Dimension(2 * MARGIN + aCardWidth + (MAX_HAND - 1) * STEP, 3 * aCardHeight + 4 * MARGIN);
+		setPreferredSize(lSize);
+		setOpaque(true);
+
+		aBuffer = new BufferedImage(lSize.width, lSize.height, BufferedImage.TYPE_INT_RGB);
+		Graphics2D lGraphics = aBuffer.createGraphics();
+		lGraphics.setColor(TABLE);
+		lGraphics.fillRect(0, 0, lSize.width, lSize.height);
+		lGraphics.drawImage(CardImages.getBack().getImage(), MARGIN, row(1), null);
+		lGraphics.dispose();
+
+		aTimer = new Timer(FRAME_MILLIS, new ActionListener()
+		{
+			@Override
+			public void actionPerformed(ActionEvent pEvent)
+			{
+				refresh();
+			}
+		});
+		aTimer.setCoalesce(true);
+	}
+
+	@Override
+	public void addNotify()
+	{
+		super.addNotify();
+		aSubscription = aEngine.getEventBus().subscribe(this, BUFFERED_EVENTS, BUFFERED_EVENTS, true);
+		aTimer.start();
+	}
+
+	@Override
+	public void removeNotify()
+	{
+		aTimer.stop();
+		aSubscription.cancel();
+		aSubscription = null;
+		super.removeNotify();
+	}
+
+	/**
+	 * Takes the state of the table after the events, on the thread of the subscription.
+	 * The state comes from the last event: the engine may be changing the hands meanwhile.
+	 * @param pEvents The events, of which only the last one matters.
+	 */
+	@Override
+	public void gameEvents(List<GameEvent> pEvents)
+	{
+		GameEvent lLast = pEvents.get(pEvents.size() - 1);
+		aPending.set(new Table(new long[] {lLast.getHand(0), lLast.getHand(1)}, lLast.getTop()));
+	}
+
+	@Override
+	protected void paintComponent(Graphics pGraphics)
+	{
+		Rectangle lClip = pGraphics.getClipBounds();
+		if( lClip == null )
+		{
+			lClip = new Rectangle(0, 0, aBuffer.getWidth(), aBuffer.getHeight());
+		}
+		pGraphics.drawImage(aBuffer, lClip.x, lClip.y, lClip.x + lClip.width, lClip.y + lClip.height,
+				lClip.x, lClip.y, lClip.x + lClip.width, lClip.y + lClip.height, null);
+	}
+
+	/*
+	 * Draws the latest state of the table, if it changed, and repaints the
+	 * regions of the cards that changed. Called once per frame.
+	 */
+	private void refresh()
+	{
+		Table lTable = aPending.getAndSet(null);
+		if( lTable == null )
+		{
+			return;
+		}
+		Graphics2D lGraphics = aBuffer.createGraphics();
+		// The human player at the bottom, the AI player at the top.
+		drawHand(lGraphics, row(2), aShown.aHands[0], lTable.aHands[0]);
+		drawHand(lGraphics, row(0), aShown.aHands[1], lTable.aHands[1]);
+		if( lTable.aTop != aShown.aTop )
+		{
+			Rectangle lRegion = new Rectangle(2 * MARGIN + aCardWidth, row(1), aCardWidth, aCardHeight);
+			lGraphics.setColor(TABLE);
+			lGraphics.fill(lRegion);
+			if( lTable.aTop != null )
+			{
+				lGraphics.drawImage(image(lTable.aTop.getId()), lRegion.x, lRegion.y, null);
+			}
+			repaint(lRegion);
+		}
+		lGraphics.dispose();
+		aShown = lTable;
+	}
+
+	/*
+	 * Redraws a hand from its first card that changed: each card covers the
+	 * right part of the previous one, so all the cards after it are redrawn.
+	 */
+	private void drawHand(Graphics2D pGraphics, int pY, long pShown, long pHand)
+	{
+		if( pShown == pHand )
+		{
+			return;
+		}
+		int lFirst = 0;
+		long lShown = pShown;
+		long lHand = pHand;
+		while( Long.lowestOneBit(lShown) == Long.lowestOneBit(lHand) )
+		{
+			lShown &= lShown - 1;
+			lHand &= lHand - 1;
+			lFirst++;
+		}
+		int lLast = Math.max(Long.bitCount(pShown), Long.bitCount(pHand)) - 1;
+		Rectangle lRegion = new Rectangle(MARGIN + lFirst * STEP, pY, (lLast - lFirst) * STEP + aCardWidth, aCardHeight);
+
+		Graphics2D lGraphics = (Graphics2D) pGraphics.create();
+		lGraphics.clip(lRegion);
+		lGraphics.setColor(TABLE);
+		lGraphics.fill(lRegion);
+		int lX = MARGIN;
+		for( long lBits = pHand; lBits != 0; lBits &= lBits - 1 )
+		{
+			lGraphics.drawImage(image(Long.numberOfTrailingZeros(lBits)), lX, pY, null);
+			lX += STEP;
+		}
+		lGraphics.dispose();
+		repaint(lRegion);
+	}
+
+	private int row(int pRow)
+	{
+		return MARGIN + pRow * (aCardHeight + MARGIN);
+	}
+
+	private static Image image(int pId)
+	{
+		return CardImages.getCard(Card.byId(pId)).getImage();
+	}
+
+	/*
+	 * The cards on the table, as shown.
+	 */
+	private static final class Table
+	{
+		private final long[] aHands;
+		private final Card aTop;
+
+		Table(long[] pHands, Card pTop)
+		{
+			aHands = pHands;
+			aTop = pTop;
+		}
+	}
+}
@@ -0,0 +1,113 @@
+package ca.mcgill.cs.comp303.rummy.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of non-negative values, typically latencies in nanoseconds,
+ * with one bucket per power of 2. Recording a value is a few atomic
+ * increments and never allocates or locks. Percentiles are approximated by
+ * the upper bound of their bucket, so they are within a factor of 2.
+ * Threadsafe.
+ */
+public final class Histogram
+{
+	private static final int BUCKETS = 64;
+
+	// Bucket i holds the values v with 2^(i-1) <= v < 2^i; bucket 0 holds 0.
+	private final AtomicLongArray aBuckets = new AtomicLongArray(BUCKETS);
+	private final AtomicLong aCount = new AtomicLong();
+	private final AtomicLong aSum = new AtomicLong();
+	private final AtomicLong aMax = new AtomicLong();
+
+	/**
+	 * Records a value.
+	 * @param pValue The value.
+	 * @pre pValue >= 0
+	 */
+	public void record(long pValue)
+	{
+		aBuckets.incrementAndGet(BUCKETS - Long.numberOfLeadingZeros(pValue));
+		aCount.incrementAndGet();
+		aSum.addAndGet(pValue);
+		long lMax = aMax.get();
+		while( pValue > lMax && !aMax.compareAndSet(lMax, pValue) )
+		{
+			lMax = aMax.get();
+		}
+	}
+
+	/**
+	 * @return The number of values recorded.
+	 */
+	public long getCount()
+	{
+		return aCount.get();
+	}
+
+	/**
+	 * @return The sum of the values recorded.
+	 */
+	public long getSum()
+	{
+		return aSum.get();
+	}
+
+	/**
+	 * @return The mean of the values recorded, or 0 if there are none.
+	 */
+	public double getMean()
+	{
+		long lCount = aCount.get();
+		return lCount == 0 ? 0 : aSum.get() / (double) lCount;
+	}
+
+	/**
+	 * @return The largest value recorded, or 0 if there are none.
+	 */
+	public long getMax()
+	{
+		return aMax.get();
+	}
+
+	/**
+	 * @param pFraction A fraction of the values, between 0 and 1.
+	 * @return An upper bound of the smallest value that is greater than or
+	 * equal to pFraction of the values recorded, or 0 if there are none.
+	 */
+	public long getPercentile(double pFraction)
+	{
+		long lTotal = 0;
+		long[] lCounts = new long[BUCKETS];
+		for( int i = 0; i < BUCKETS; i++ )
+		{
+			lCounts[i] = aBuckets.get(i);
+			lTotal += lCounts[i];
+		}
+		long lRank = (long) Math.ceil(pFraction * lTotal);
+		long lSeen = 0;
+		for( int i = 0; i < BUCKETS; i++ )
+		{
+			lSeen += lCounts[i];
+			if( lSeen >= lRank && lCounts[i] > 0 )
+			{
+				return i == 0 ? 0 : Math.min(aMax.get(), (1L << i) - 1);
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Forgets all the values. Values recorded concurrently may be partly kept.
+	 */
+	public void reset()
+	{
+		for( int i = 0; i < BUCKETS; i++ )
+		{
+			aBuckets.set(i, 0);
+		}
+		aCount.set(0);
+		aSum.set(0);
+		aMax.set(0);
+	}
+}
@@ -0,0 +1,121 @@
+package ca.mcgill.cs.comp303.rummy.model;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * An immutable card set implementing ICardSet, stored as a
+ * single 52-bit mask (see CardMask).
+ */
+public final class BitCardSet implements ICardSet
+{
+	private final long aMask;
+
+	/**
+	 * Constructor.
+	 * @param pCards The cards in the set.
+	 */
+	public BitCardSet(Collection<Card> pCards)
+	{
+		aMask = CardMask.of(pCards);
+	}
+
+	/**
+	 * Constructor.
+	 * @param pMask The mask of the cards in the set.
+	 */
+	public BitCardSet(long pMask)
+	{
+		aMask = pMask;
+	}
+
+	/**
+	 * @return The mask of the cards in this set.
+	 */
+	public long getMask()
+	{
+		return aMask;
+	}
+
+	@Override
+	public Iterator<Card> iterator()
+	{
+		return new Iterator<Card>()
+		{
+			private long aRemaining = aMask;
+
+			@Override
+			public boolean hasNext()
+			{
+				return aRemaining != 0;
+			}
+
+			@Override
+			public Card next()
+			{
+				if( aRemaining == 0 )
+				{
+					throw new NoSuchElementException();
+				}
+				int lIndex = Long.numberOfTrailingZeros(aRemaining);
+				aRemaining &= aRemaining - 1;
+				return Card.byId(lIndex);
+			}
+
+			@Override
+			public void remove()
+			{
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	@Override
+	public boolean contains(Card pCard)
+	{
+		return (aMask & CardMask.of(pCard)) != 0;
+	}
+
+	@Override
+	public int size()
+	{
+		return Long.bitCount(aMask);
+	}
+
+	@Override
+	public boolean isGroup()
+	{
+		return CardMask.isGroup(aMask);
+	}
+
+	@Override
+	public boolean isRun()
+	{
+		return CardMask.isRun(aMask);
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return (int) (aMask ^ (aMask >>> 32));
+	}
+
+	@Override
+	public boolean equals(Object obj)
+	{
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		return aMask == ((BitCardSet) obj).aMask;
+	}
+
+	@Override
+	public String toString()
+	{
+		return "BitCardSet " + CardMask.toList(aMask);
+	}
+}
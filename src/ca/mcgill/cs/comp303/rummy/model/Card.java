@@ -18,19 +18,76 @@ public final class Card implements Comparable<Card>
 	public enum Suit 
 	{ CLUBS, DIAMONDS, HEARTS, SPADES }
 
+	/**
+	 * The number of distinct cards, and of card ids.
+	 */
+	public static final int NUMBER_OF_CARDS = 52;
+	
+	private static final int NUMBER_OF_RANKS = Rank.values().length;
+	
+	// The canonical instances, indexed by id.
+	private static final Card[] CARDS = new Card[NUMBER_OF_CARDS];
+	
+	static
+	{
+		for( Suit lSuit : Suit.values() )
+		{
+			for( Rank lRank : Rank.values() )
+			{
+				Card lCard = new Card(lRank, lSuit);
+				CARDS[lCard.aId] = lCard;
+			}
+		}
+	}
+	
 	// Properties
 	private final Rank aRank;
 	private final Suit aSuit;
+	private final int aId;
+	private final int aValue;
 	
 	/**
-	 * Create a new card object. 
+	 * Create a new card object. Only called to build the 52 canonical instances.
 	 * @param pRank The rank of the card.
 	 * @param pSuit The suit of the card.
 	 */
-	public Card(Rank pRank, Suit pSuit )
+	private Card(Rank pRank, Suit pSuit )
 	{
 		aRank = pRank;
 		aSuit = pSuit;
+		aId = NUMBER_OF_RANKS * pSuit.ordinal() + pRank.ordinal();
+		aValue = Math.min(pRank.ordinal() + 1, 10);
+	}
+	
+	/**
+	 * Obtain the canonical card of a given rank and suit.
+	 * @param pRank The rank of the card.
+	 * @param pSuit The suit of the card.
+	 * @return The unique card object for pRank and pSuit.
+	 */
+	public static Card of(Rank pRank, Suit pSuit)
+	{
+		return CARDS[NUMBER_OF_RANKS * pSuit.ordinal() + pRank.ordinal()];
+	}
+	
+	/**
+	 * Obtain the canonical card with a given id.
+	 * @param pId The id of the card, as returned by getId().
+	 * @return The unique card object with id pId.
+	 * @pre pId >= 0 && pId < NUMBER_OF_CARDS
+	 */
+	public static Card byId(int pId)
+	{
+		return CARDS[pId];
+	}
+	
+	/**
+	 * Obtain the dense id of the card: suit*13 + rank, between 0 and 51.
+	 * @return The id of the card.
+	 */
+	public int getId()
+	{
+		return aId;
 	}
 	
 	/**
@@ -87,14 +144,17 @@ public final class Card implements Comparable<Card>
 		}
 	}
 	
+	/**
+	 * @return The point value of the card: its rank, with face cards worth 10.
+	 */
 	public int value()
 	{
-		int value = aRank.ordinal() + 1;
-		return value >= 10 ? 10 : value;
+		return aValue;
 	}
 
 	/**
-	 * Two cards are equal if they have the same suit and rank.
+	 * Two cards are equal if they have the same suit and rank. Since
+	 * there is a single instance per suit and rank, this is identity.
 	 * @param pCard The card to test.
 	 * @return true if the two cards are equal
 	 * @see java.lang.Object#equals(java.lang.Object)
@@ -102,7 +162,7 @@ public final class Card implements Comparable<Card>
 	@Override
 	public boolean equals( Object pCard ) 
 	{
-		return this.compareTo((Card) pCard) == 0;
+		return this == pCard;
 	}
 
 	/** 
@@ -113,6 +173,6 @@ public final class Card implements Comparable<Card>
 	@Override
 	public int hashCode() 
 	{
-		return Rank.values().length * getSuit().ordinal() + getRank().ordinal();
+		return aId;
 	}
 }
\ No newline at end of file
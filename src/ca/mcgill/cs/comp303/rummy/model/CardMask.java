@@ -0,0 +1,143 @@
+package ca.mcgill.cs.comp303.rummy.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Static helpers to represent a set of cards as a 52-bit long.
+ * Each card is stored in the bit given by its id (suit*13 + rank), so
+ * that the cards of one suit occupy 13 consecutive bits.
+ */
+public final class CardMask
+{
+	/**
+	 * Number of ranks in a suit, and width of a suit in a mask.
+	 */
+	public static final int SUIT_WIDTH = 13;
+
+	/**
+	 * Mask of the 13 bits of a single suit, aligned on bit 0.
+	 */
+	public static final long SUIT_BITS = (1L << SUIT_WIDTH) - 1;
+
+	/**
+	 * Mask with all 52 cards.
+	 */
+	public static final long ALL = (1L << 52) - 1;
+
+	private static final long[] RANK_MASKS = new long[SUIT_WIDTH];
+
+	static
+	{
+		for( int lId = 0; lId < Card.NUMBER_OF_CARDS; lId++ )
+		{
+			RANK_MASKS[lId % SUIT_WIDTH] |= 1L << lId;
+		}
+	}
+
+	private CardMask()
+	{}
+
+	/**
+	 * @param pCard A card.
+	 * @return A mask containing only pCard.
+	 */
+	public static long of(Card pCard)
+	{
+		return 1L << pCard.getId();
+	}
+
+	/**
+	 * @param pCards Some cards.
+	 * @return A mask containing all the cards in pCards.
+	 */
+	public static long of(Iterable<Card> pCards)
+	{
+		long lMask = 0;
+		for( Card lCard : pCards )
+		{
+			lMask |= of(lCard);
+		}
+		return lMask;
+	}
+
+	/**
+	 * @param pRank The rank (ordinal).
+	 * @return The mask of the four cards of rank pRank.
+	 */
+	public static long rankMask(int pRank)
+	{
+		return RANK_MASKS[pRank];
+	}
+
+	/**
+	 * @param pSuit The suit (ordinal).
+	 * @return The mask of the 13 cards of suit pSuit.
+	 */
+	public static long suitMask(int pSuit)
+	{
+		return SUIT_BITS << (pSuit * SUIT_WIDTH);
+	}
+
+	/**
+	 * @param pMask A set of cards.
+	 * @return The total point value of the cards in pMask.
+	 */
+	public static int value(long pMask)
+	{
+		int lValue = 0;
+		for( int lRank = 0; lRank < 9; lRank++ )
+		{
+			lValue += (lRank + 1) * Long.bitCount(pMask & RANK_MASKS[lRank]);
+		}
+		long lFaces = RANK_MASKS[9] | RANK_MASKS[10] | RANK_MASKS[11] | RANK_MASKS[12];
+		return lValue + 10 * Long.bitCount(pMask & lFaces);
+	}
+
+	/**
+	 * @param pMask A set of cards.
+	 * @return true if the cards in pMask form a group of 3 or 4 cards.
+	 */
+	public static boolean isGroup(long pMask)
+	{
+		if( Long.bitCount(pMask) < 3 )
+		{
+			return false;
+		}
+		int lRank = Long.numberOfTrailingZeros(pMask) % SUIT_WIDTH;
+		return (pMask & ~RANK_MASKS[lRank]) == 0;
+	}
+
+	/**
+	 * @param pMask A set of cards.
+	 * @return true if the cards in pMask form a run of at least 3 cards.
+	 */
+	public static boolean isRun(long pMask)
+	{
+		if( Long.bitCount(pMask) < 3 )
+		{
+			return false;
+		}
+		int lLowest = Long.numberOfTrailingZeros(pMask);
+		if( (pMask & ~suitMask(lLowest / SUIT_WIDTH)) != 0 )
+		{
+			return false;
+		}
+		long lShifted = pMask >>> lLowest;
+		return (lShifted & (lShifted + 1)) == 0;
+	}
+
+	/**
+	 * @param pMask A set of cards.
+	 * @return The cards in pMask, ordered by bit index.
+	 */
+	public static List<Card> toList(long pMask)
+	{
+		List<Card> lCards = new ArrayList<Card>(Long.bitCount(pMask));
+		for( long lBits = pMask; lBits != 0; lBits &= lBits - 1 )
+		{
+			lCards.add(Card.byId(Long.numberOfTrailingZeros(lBits)));
+		}
+		return lCards;
+	}
+}
@@ -0,0 +1,220 @@
+package ca.mcgill.cs.comp303.rummy.model;
+
+/**
+ * Tracks what the public events of a game reveal about the hands of the
+ * two players: the cards each player took from the discard pile and still
+ * holds, the cards each player declined to take, and the cards each player
+ * discarded. A player is less likely to hold the cards that meld with the
+ * cards they declined or discarded. Every event is applied in constant time
+ * on card masks (see CardMask). A GameEngine keeps its tracker up to date; players query it
+ * about their opponent, giving their own hand as what they privately know.
+ * Not threadsafe: meant to be read by the players, on the thread of the engine.
+ */
+public final class CardTracker
+{
+	private static final int HAND_SIZE = 10;
+	// The weight of a card that melds with a card declined or discarded, against 1 for the others.
+	private static final double UNLIKELY_WEIGHT = 0.25;
+	// The cards of a suit from which a card can move up or down by 1 or 2 ranks without leaving the suit.
+	private static final long UP_1 = CardMask.ALL & ~CardMask.rankMask(CardMask.SUIT_WIDTH - 1);
+	private static final long UP_2 = UP_1 & ~CardMask.rankMask(CardMask.SUIT_WIDTH - 2);
+	private static final long DOWN_1 = CardMask.ALL & ~CardMask.rankMask(0);
+	private static final long DOWN_2 = DOWN_1 & ~CardMask.rankMask(1);
+
+	private final long[] aTaken = new long[2];
+	private final long[] aDeclined = new long[2];
+	private final long[] aDiscarded = new long[2];
+	// The cards on the discard pile.
+	private long aPile;
+
+	/**
+	 * Applies an event of the game.
+	 * @param pType The kind of event.
+	 * @param pPlayer The player concerned, 0 or 1.
+	 * @param pCard The card of the event: the first discarded card for DEAL, the
+	 * card taken or discarded, or null. Cards drawn from the deck are ignored, as
+	 * they are not public.
+	 * @param pTop The card on top of the discard pile before the event, or null.
+	 */
+	void update(GameEvent.Type pType, int pPlayer, Card pCard, Card pTop)
+	{
+		switch( pType )
+		{
+		case DEAL:
+			clear();
+			aPile = CardMask.of(pCard);
+			break;
+		case DRAW_DECK:
+			if( pTop != null )
+			{
+				aDeclined[pPlayer] |= CardMask.of(pTop);
+			}
+			break;
+		case DRAW_DISCARD:
+			aTaken[pPlayer] |= CardMask.of(pCard);
+			aPile &= ~CardMask.of(pCard);
+			break;
+		case DISCARD:
+		case KNOCK:
+			aTaken[pPlayer] &= ~CardMask.of(pCard);
+			aDiscarded[pPlayer] |= CardMask.of(pCard);
+			aPile |= CardMask.of(pCard);
+			break;
+		default:
+			break;
+		}
+	}
+
+	/**
+	 * Forgets all the events.
+	 */
+	public void clear()
+	{
+		for( int i = 0; i < 2; i++ )
+		{
+			aTaken[i] = 0;
+			aDeclined[i] = 0;
+			aDiscarded[i] = 0;
+		}
+		aPile = 0;
+	}
+
+	/**
+	 * @return The state of the tracker, for saving: the cards taken, declined
+	 * and discarded by player 0 then player 1, and the cards on the pile.
+	 */
+	long[] toMasks()
+	{
+		return new long[] {aTaken[0], aTaken[1], aDeclined[0], aDeclined[1], aDiscarded[0], aDiscarded[1], aPile};
+	}
+
+	/**
+	 * Restores a state returned by toMasks.
+	 * @param pMasks The saved state.
+	 */
+	void restore(long[] pMasks)
+	{
+		for( int i = 0; i < 2; i++ )
+		{
+			aTaken[i] = pMasks[i];
+			aDeclined[i] = pMasks[2 + i];
+			aDiscarded[i] = pMasks[4 + i];
+		}
+		aPile = pMasks[6];
+	}
+
+	/**
+	 * @param pPlayer A player, 0 or 1.
+	 * @return The cards that pPlayer took from the discard pile and did not discard since.
+	 */
+	public long getTaken(int pPlayer)
+	{
+		return aTaken[pPlayer];
+	}
+
+	/**
+	 * @param pPlayer A player, 0 or 1.
+	 * @return The cards that pPlayer left on top of the discard pile to draw from the deck.
+	 */
+	public long getDeclined(int pPlayer)
+	{
+		return aDeclined[pPlayer];
+	}
+
+	/**
+	 * @param pPlayer A player, 0 or 1.
+	 * @return The cards that pPlayer discarded.
+	 */
+	public long getDiscarded(int pPlayer)
+	{
+		return aDiscarded[pPlayer];
+	}
+
+	/**
+	 * @return The cards on the discard pile.
+	 */
+	public long getPile()
+	{
+		return aPile;
+	}
+
+	/**
+	 * @param pPlayer A player, 0 or 1.
+	 * @param pOtherHand The hand of the other player, known to the player asking.
+	 * @return The cards that can be in the hand of pPlayer.
+	 */
+	public long getPossible(int pPlayer, long pOtherHand)
+	{
+		return CardMask.ALL & ~pOtherHand & ~aPile & ~aTaken[1 - pPlayer];
+	}
+
+	/**
+	 * @param pPlayer A player, 0 or 1.
+	 * @return The cards that meld with a card that pPlayer declined or discarded, other than
+	 * the cards pPlayer is known to hold: pPlayer did not keep the cards to meld them with.
+	 */
+	public long getUnlikely(int pPlayer)
+	{
+		long lLeft = aDeclined[pPlayer] | aDiscarded[pPlayer];
+		long lSameRank = 0;
+		for( int lRank = 0; lRank < CardMask.SUIT_WIDTH; lRank++ )
+		{
+			if( (lLeft & CardMask.rankMask(lRank)) != 0 )
+			{
+				lSameRank |= CardMask.rankMask(lRank);
+			}
+		}
+		long lSameSuit = (lLeft & UP_1) << 1 | (lLeft & UP_2) << 2 | (lLeft & DOWN_1) >>> 1 | (lLeft & DOWN_2) >>> 2;
+		return (lSameRank | lSameSuit) & ~lLeft & ~aTaken[pPlayer];
+	}
+
+	/**
+	 * @param pPlayer A player, 0 or 1.
+	 * @param pOtherHand The hand of the other player, known to the player asking.
+	 * @param pCard A card.
+	 * @return The probability that pCard is in the hand of pPlayer, between turns:
+	 * 1 for the cards taken, 0 for the cards that cannot be there, and for the other
+	 * cards a share of the unknown part of the hand, smaller for the unlikely cards
+	 * (see getUnlikely).
+	 */
+	public double probability(int pPlayer, long pOtherHand, Card pCard)
+	{
+		long lCard = CardMask.of(pCard);
+		if( (aTaken[pPlayer] & lCard) != 0 )
+		{
+			return 1;
+		}
+		long lUnknown = getPossible(pPlayer, pOtherHand) & ~aTaken[pPlayer];
+		if( (lUnknown & lCard) == 0 )
+		{
+			return 0;
+		}
+		long lUnlikely = lUnknown & getUnlikely(pPlayer);
+		double lWeights = Long.bitCount(lUnknown & ~lUnlikely) + UNLIKELY_WEIGHT * Long.bitCount(lUnlikely);
+		double lWeight = (lUnlikely & lCard) != 0 ? UNLIKELY_WEIGHT : 1;
+		return Math.min(1, Math.max(0, HAND_SIZE - Long.bitCount(aTaken[pPlayer])) * lWeight / lWeights);
+	}
+
+	/**
+	 * @param pPlayer A player, 0 or 1.
+	 * @param pCard A card.
+	 * @return True if pCard completes a meld with cards that pPlayer is known to hold.
+	 */
+	public boolean completesKnownMeld(int pPlayer, Card pCard)
+	{
+		return MeldTable.canMeld(aTaken[pPlayer] | CardMask.of(pCard), pCard);
+	}
+
+	/**
+	 * @param pPlayer A player, 0 or 1.
+	 * @param pOtherHand The hand of the other player, known to the player asking.
+	 * @param pCard A card.
+	 * @return True if pCard can be part of a meld with cards that pPlayer may hold,
+	 * leaving out the unlikely cards (see getUnlikely).
+	 */
+	public boolean canFeed(int pPlayer, long pOtherHand, Card pCard)
+	{
+		long lLikely = getPossible(pPlayer, pOtherHand) & ~getUnlikely(pPlayer);
+		return MeldTable.canMeld(lLikely | CardMask.of(pCard), pCard);
+	}
+}
@@ -0,0 +1,412 @@
+package ca.mcgill.cs.comp303.rummy.model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writes a dataset of the turns of self-play games, for training evaluation
+ * models. Each turn of a completed game is a fixed-width record of
+ * RECORD_SIZE bytes, little-endian:
+ * <pre>
+ *  0 long  the hand of the player before drawing (see CardMask)
+ *  8 long  the cards on the discard pile before drawing
+ * 16 int   the number of the game in the dataset
+ * 20 short the points won by the player in the game, negative if lost
+ * 22 byte  the player, 0 or 1
+ * 23 byte  the number of the turn in the game, modulo 256
+ * 24 byte  the card on top of the discard pile before drawing, or NO_CARD
+ * 25 byte  where the player drew: 0 from the deck, 1 from the discard pile
+ * 26 byte  the card drawn
+ * 27 byte  the card discarded
+ * 28 byte  1 if the player knocked with the discard, else 0
+ * 29 3 bytes of padding
+ * </pre>
+ * The records go to chunk files of at most a given number of records, each
+ * starting with a HEADER_SIZE-byte header. Each engine recording to the
+ * dataset (see GameEngine.setDataset) fills its own block of records; full
+ * blocks go through a bounded queue to a single thread that writes them.
+ * The engines never wait for the disk unless the queue is full, which bounds
+ * the memory used when the disk cannot keep up. Threadsafe.
+ */
+public final class DatasetWriter implements Closeable
+{
+	/**
+	 * The size of a record.
+	 */
+	public static final int RECORD_SIZE = 32;
+
+	/**
+	 * The size of the header of a chunk: MAGIC, the version and RECORD_SIZE.
+	 */
+	public static final int HEADER_SIZE = 8;
+
+	/**
+	 * The first 4 bytes of a chunk, big-endian.
+	 */
+	public static final int MAGIC = 0x524D5944;
+
+	/**
+	 * The id of no card.
+	 */
+	public static final int NO_CARD = 0xFF;
+
+	private static final short VERSION = 1;
+	private static final int BLOCK_RECORDS = 2048;
+	private static final int QUEUED_BLOCKS = 16;
+	// The initial capacity of the records of a game, that grows for longer games:
+	// drawing from the discard pile does not bring the end of the game closer.
+	private static final int GAME_TURNS = 64;
+	// Offsets of the fields completed at the end of a game.
+	private static final int GAME = 16;
+	private static final int POINTS = 20;
+	private static final int PLAYER = 22;
+
+	private final Path aDirectory;
+	private final String aPrefix;
+	private final long aRecordsPerChunk;
+
+	private final BlockingQueue<ByteBuffer> aFull = new ArrayBlockingQueue<ByteBuffer>(QUEUED_BLOCKS);
+	private final Queue<ByteBuffer> aFree = new ConcurrentLinkedQueue<ByteBuffer>();
+	private final List<Recorder> aRecorders = new CopyOnWriteArrayList<Recorder>();
+	private final AtomicInteger aGames = new AtomicInteger();
+	private final AtomicLong aRecords = new AtomicLong();
+	private final Thread aThread;
+	private volatile IOException aFailure;
+
+	// Used by the writing thread only.
+	private FileChannel aChunk;
+	private int aChunks;
+	private long aChunkRecords;
+
+	/**
+	 * Creates a dataset. Chunks are named pPrefix-00000.bin, pPrefix-00001.bin, and so on.
+	 * @param pDirectory The directory of the chunks, that must exist.
+	 * @param pPrefix The prefix of the names of the chunks.
+	 * @param pRecordsPerChunk The maximum number of records in a chunk.
+	 * @pre pRecordsPerChunk > 0
+	 */
+	public DatasetWriter(Path pDirectory, String pPrefix, long pRecordsPerChunk)
+	{
+		assert pRecordsPerChunk > 0;
+		aDirectory = pDirectory;
+		aPrefix = pPrefix;
+		aRecordsPerChunk = pRecordsPerChunk;
+		aThread = new Thread(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				drain();
+			}
+		}, "DatasetWriter");
+		aThread.setDaemon(true);
+		aThread.start();
+	}
+
+	/**
+	 * @return The number of records of completed games, written or queued.
+	 */
+	public long getRecords()
+	{
+		return aRecords.get();
+	}
+
+	/**
+	 * @return The number of games recorded.
+	 */
+	public int getGames()
+	{
+		return aGames.get();
+	}
+
+	/**
+	 * Writes the records of all the engines and closes the last chunk. The engines
+	 * recording to the dataset must be done playing.
+	 * @throws IOException If a chunk could not be written.
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		try
+		{
+			for( Recorder lRecorder : aRecorders )
+			{
+				lRecorder.flush();
+			}
+			aFull.put(ByteBuffer.allocate(0));
+			aThread.join();
+		}
+		catch( InterruptedException e )
+		{
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while closing the dataset", e);
+		}
+		if( aFailure != null )
+		{
+			throw aFailure;
+		}
+	}
+
+	/**
+	 * @return A recorder for one engine, that must only be used by the thread of the engine,
+	 * and released when the engine stops recording.
+	 */
+	Recorder newRecorder()
+	{
+		Recorder lRecorder = new Recorder();
+		aRecorders.add(lRecorder);
+		return lRecorder;
+	}
+
+	/*
+	 * Queues a block of records to write, waiting if the queue is full.
+	 */
+	private void submit(ByteBuffer pBlock)
+	{
+		if( aFailure != null )
+		{
+			throw new IllegalStateException("The dataset cannot be written", aFailure);
+		}
+		pBlock.flip();
+		try
+		{
+			aFull.put(pBlock);
+		}
+		catch( InterruptedException e )
+		{
+			// The block is lost: fail the dataset, so that close reports it.
+			aFailure = new IOException("Interrupted while queuing records", e);
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private ByteBuffer takeBlock()
+	{
+		ByteBuffer lBlock = aFree.poll();
+		if( lBlock == null )
+		{
+			lBlock = ByteBuffer.allocateDirect(BLOCK_RECORDS * RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		}
+		lBlock.clear();
+		return lBlock;
+	}
+
+	/*
+	 * Writes the queued blocks until the empty block that marks the end.
+	 */
+	private void drain()
+	{
+		try
+		{
+			while( true )
+			{
+				ByteBuffer lBlock = aFull.take();
+				if( !lBlock.hasRemaining() )
+				{
+					break;
+				}
+				if( aFailure == null )
+				{
+					write(lBlock);
+				}
+				aFree.add(lBlock);
+			}
+			if( aChunk != null )
+			{
+				aChunk.close();
+			}
+		}
+		catch( IOException e )
+		{
+			aFailure = e;
+		}
+		catch( InterruptedException e )
+		{
+			aFailure = new IOException("Interrupted while writing the dataset", e);
+		}
+	}
+
+	private void write(ByteBuffer pBlock)
+	{
+		try
+		{
+			while( pBlock.hasRemaining() )
+			{
+				if( aChunk == null || aChunkRecords == aRecordsPerChunk )
+				{
+					nextChunk();
+				}
+				int lRecords = (int) Math.min(pBlock.remaining() / RECORD_SIZE, aRecordsPerChunk - aChunkRecords);
+				ByteBuffer lPart = pBlock.duplicate();
+				lPart.limit(lPart.position() + lRecords * RECORD_SIZE);
+				while( lPart.hasRemaining() )
+				{
+					aChunk.write(lPart);
+				}
+				pBlock.position(lPart.position());
+				aChunkRecords += lRecords;
+			}
+		}
+		catch( IOException e )
+		{
+			aFailure = e;
+		}
+	}
+
+	private void nextChunk() throws IOException
+	{
+		if( aChunk != null )
+		{
+			aChunk.close();
+		}
+		aChunk = FileChannel.open(aDirectory.resolve(String.format("%s-%05d.bin", aPrefix, aChunks++)),
+				StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		ByteBuffer lHeader = ByteBuffer.allocate(HEADER_SIZE);
+		lHeader.putInt(MAGIC).putShort(VERSION).putShort((short) RECORD_SIZE).flip();
+		while( lHeader.hasRemaining() )
+		{
+			aChunk.write(lHeader);
+		}
+		aChunkRecords = 0;
+	}
+
+	/**
+	 * Records the turns of the games of one engine. The turns of a game are kept
+	 * until its end, when its outcome is known, then copied to the current block.
+	 */
+	final class Recorder
+	{
+		private ByteBuffer aGame = ByteBuffer.allocate(GAME_TURNS * RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		private ByteBuffer aBlock = takeBlock();
+		// The position of the record of the current turn, if the player drew.
+		private int aTurn;
+		private boolean aDrawn;
+
+		/**
+		 * Applies an event of the game, before the engine updates its tracker.
+		 * @param pEngine The engine.
+		 * @param pType The kind of event.
+		 * @param pPlayer The player concerned.
+		 * @param pCard The card of the event, or null.
+		 */
+		void record(GameEngine pEngine, GameEvent.Type pType, int pPlayer, Card pCard)
+		{
+			switch( pType )
+			{
+			case DEAL:
+				aGame.clear();
+				aDrawn = false;
+				break;
+			case DRAW_DECK:
+			case DRAW_DISCARD:
+				if( aGame.remaining() < RECORD_SIZE )
+				{
+					aGame.flip();
+					aGame = ByteBuffer.allocate(2 * aGame.capacity()).order(ByteOrder.LITTLE_ENDIAN).put(aGame);
+				}
+				Seat lSeat = pEngine.getSeat(pPlayer);
+				Card lTop = pType == GameEvent.Type.DRAW_DISCARD ? pCard : pEngine.peekDiscardTop();
+				aTurn = aGame.position();
+				aGame.putLong(lSeat.getHand() == null ? 0 : lSeat.getHand().getCards());
+				aGame.putLong(pEngine.getTracker().getPile());
+				aGame.putInt(0).putShort((short) 0);
+				aGame.put((byte) pPlayer).put((byte) (aTurn / RECORD_SIZE));
+				aGame.put((byte) (lTop == null ? NO_CARD : lTop.getId()));
+				aGame.put((byte) (pType == GameEvent.Type.DRAW_DECK ? 0 : 1));
+				aGame.put((byte) pCard.getId());
+				aDrawn = true;
+				break;
+			case DISCARD:
+			case KNOCK:
+				if( aDrawn )
+				{
+					aGame.put((byte) pCard.getId()).put((byte) (pType == GameEvent.Type.KNOCK ? 1 : 0));
+					aGame.put((byte) 0).putShort((short) 0);
+					aDrawn = false;
+				}
+				break;
+			case END:
+				end(pEngine.getScore());
+				break;
+			default:
+				break;
+			}
+		}
+
+		/*
+		 * Completes the records of the game with its outcome, and moves them to the block.
+		 */
+		private void end(int[] pPoints)
+		{
+			if( aDrawn )
+			{
+				// A turn without a discard, from a restored game: not a complete record.
+				aGame.position(aTurn);
+				aDrawn = false;
+			}
+			int lGame = aGames.getAndIncrement();
+			int lTurns = aGame.position() / RECORD_SIZE;
+			for( int i = 0; i < lTurns; i++ )
+			{
+				int lPlayer = aGame.get(i * RECORD_SIZE + PLAYER);
+				aGame.putInt(i * RECORD_SIZE + GAME, lGame);
+				aGame.putShort(i * RECORD_SIZE + POINTS, (short) (pPoints[lPlayer] - pPoints[1 - lPlayer]));
+			}
+			aGame.flip();
+			if( aBlock.remaining() < aGame.remaining() && aBlock.position() > 0 )
+			{
+				submit(aBlock);
+				aBlock = takeBlock();
+			}
+			// A game longer than a block spans several blocks.
+			while( aGame.remaining() > aBlock.remaining() )
+			{
+				ByteBuffer lPart = aGame.duplicate();
+				lPart.limit(lPart.position() + aBlock.remaining());
+				aBlock.put(lPart);
+				aGame.position(lPart.position());
+				submit(aBlock);
+				aBlock = takeBlock();
+			}
+			aBlock.put(aGame);
+			aGame.clear();
+			aRecords.addAndGet(lTurns);
+		}
+
+		/*
+		 * Queues the records of completed games.
+		 */
+		void flush()
+		{
+			if( aBlock.position() > 0 )
+			{
+				submit(aBlock);
+				aBlock = takeBlock();
+			}
+		}
+
+		/*
+		 * Queues the records of completed games and gives the block back to the dataset,
+		 * for the next recorders. The turns of a game in progress are dropped.
+		 */
+		void release()
+		{
+			aRecorders.remove(this);
+			flush();
+			aFree.add(aBlock);
+		}
+	}
+}
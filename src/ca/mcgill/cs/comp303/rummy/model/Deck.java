@@ -1,38 +1,49 @@
 package ca.mcgill.cs.comp303.rummy.model;
 
-import java.util.Collections;
-import java.util.Stack;
-
-import ca.mcgill.cs.comp303.rummy.model.Card.Rank;
-import ca.mcgill.cs.comp303.rummy.model.Card.Suit;
+import java.util.Arrays;
+import java.util.Random;
 
 /**
- * Models a deck of 52 cards (no joker).
+ * Models a deck of 52 cards (no joker). The cards are stored as their
+ * ids in an array, with the top of the deck at the end, so that drawing
+ * and shuffling do not allocate. Each deck has its own random number
+ * generator: decks created with the same seed are shuffled the same way,
+ * and decks used by different threads do not contend.
  */
 public class Deck 
 {
-	private Stack<Card> aCards;
+	private final byte[] aCards = new byte[Card.NUMBER_OF_CARDS];
+	private int aSize;
+	private final Random aRandom;
 	
 	/**
 	 * Creates a new deck of 52 cards, shuffled.
 	 */
 	public Deck()
 	{
-		aCards = new Stack<Card>();
-		reset();
-		shuffle();
+		this( new Random() );
 	}
 	
-	private void reset()
+	/**
+	 * Creates a new deck of 52 cards, shuffled reproducibly.
+	 * @param pSeed The seed of the random number generator of the deck.
+	 */
+	public Deck( long pSeed )
 	{
-		aCards.clear();
-		for( Suit lSuit : Suit.values() )
-		{
-            for( Rank lRank : Rank.values() )
-            {
-                aCards.add( new Card( lRank, lSuit ));
-            }
-		}
+		this( new Random( pSeed ));
+	}
+	
+	/**
+	 * Creates a new deck of 52 cards, shuffled.
+	 * @param pRandom The random number generator used by shuffle(). Should not
+	 * be shared between threads.
+	 * @pre pRandom != null
+	 */
+	public Deck( Random pRandom )
+	{
+		assert pRandom != null;
+		aRandom = pRandom;
+		shuffle();
 	}
 
 	/**
@@ -41,8 +52,19 @@ public class Deck
 	 */
 	public void shuffle()
 	{
-		reset();
-		Collections.shuffle( aCards );
+		for( int i = 0; i < aCards.length; i++ )
+		{
+			aCards[i] = (byte) i;
+		}
+		aSize = aCards.length;
+		// Fisher-Yates
+		for( int i = aCards.length - 1; i > 0; i-- )
+		{
+			int j = aRandom.nextInt( i + 1 );
+			byte lCard = aCards[i];
+			aCards[i] = aCards[j];
+			aCards[j] = lCard;
+		}
 	}
 	
 	/**
@@ -54,7 +76,28 @@ public class Deck
 	public Card draw()
 	{
 		assert size() > 0;
-		return aCards.pop();
+		return Card.byId( aCards[--aSize] );
+	}
+	
+	/**
+	 * Returns the ids of the cards left in the deck, in drawing order
+	 * from the last card drawn to the next one.
+	 * @return The ids of the cards left, one per byte.
+	 */
+	byte[] toIds()
+	{
+		return Arrays.copyOf( aCards, aSize );
+	}
+	
+	/**
+	 * Replaces the cards of the deck, as saved by toIds().
+	 * @param pIds The ids of the cards, one per byte.
+	 * @pre pIds.length <= 52
+	 */
+	void restore(byte[] pIds)
+	{
+		System.arraycopy( pIds, 0, aCards, 0, pIds.length );
+		aSize = pIds.length;
 	}
 	
 	/**
@@ -63,6 +106,6 @@ public class Deck
 	 */
 	public int size()
 	{
-		return aCards.size();
+		return aSize;
 	}
 }
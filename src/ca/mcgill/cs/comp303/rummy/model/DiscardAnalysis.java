@@ -0,0 +1,70 @@
+package ca.mcgill.cs.comp303.rummy.model;
+
+/**
+ * The deadwood left by each possible discard from a hand, usually a hand
+ * of 11 cards after drawing. Immutable.
+ */
+public final class DiscardAnalysis
+{
+	private final long aHand;
+	// Indexed by card id, only meaningful for the cards of aHand.
+	private final int[] aDeadwood;
+	private final Card aBest;
+
+	/**
+	 * @param pHand The cards of the hand.
+	 * @param pDeadwood The deadwood after discarding each card, indexed by card id. Not copied.
+	 * @pre pHand != 0
+	 */
+	DiscardAnalysis(long pHand, int[] pDeadwood)
+	{
+		aHand = pHand;
+		aDeadwood = pDeadwood;
+		int lBest = Long.numberOfTrailingZeros(pHand);
+		for( long lBits = pHand; lBits != 0; lBits &= lBits - 1 )
+		{
+			int lId = Long.numberOfTrailingZeros(lBits);
+			if( pDeadwood[lId] < pDeadwood[lBest] )
+			{
+				lBest = lId;
+			}
+		}
+		aBest = Card.byId(lBest);
+	}
+
+	/**
+	 * @return The cards of the hand.
+	 */
+	public long getHand()
+	{
+		return aHand;
+	}
+
+	/**
+	 * @param pCard A card of the hand.
+	 * @return The deadwood of the optimal matching of the hand without pCard.
+	 * @pre (getHand() & CardMask.of(pCard)) != 0
+	 */
+	public int getDeadwoodAfter(Card pCard)
+	{
+		assert (aHand & CardMask.of(pCard)) != 0;
+		return aDeadwood[pCard.getId()];
+	}
+
+	/**
+	 * @return The discard that leaves the lowest deadwood. If there are
+	 * several, the one with the lowest id.
+	 */
+	public Card getBestDiscard()
+	{
+		return aBest;
+	}
+
+	/**
+	 * @return The deadwood left by getBestDiscard().
+	 */
+	public int getBestDeadwood()
+	{
+		return aDeadwood[aBest.getId()];
+	}
+}
@@ -0,0 +1,126 @@
+package ca.mcgill.cs.comp303.rummy.model;
+
+import java.util.Arrays;
+
+/**
+ * The discard pile of a game, stored as card ids, with the mask (see
+ * CardMask) of every card that was ever on the pile since the last clear.
+ * The pile is changed by a single thread, the one of the engine. The top
+ * card, the size and the seen mask are packed in one volatile long, so
+ * that any other thread reads a consistent view of them without locking.
+ */
+public final class DiscardPile
+{
+	// Layout of aState: the seen mask in the low 52 bits, then the id of the
+	// top card (EMPTY if none) in 6 bits, then the size in 6 bits.
+	private static final int TOP_SHIFT = Card.NUMBER_OF_CARDS;
+	private static final int SIZE_SHIFT = TOP_SHIFT + 6;
+	private static final long EMPTY = 0x3F;
+
+	private final byte[] aCards = new byte[Card.NUMBER_OF_CARDS];
+	private volatile long aState = EMPTY << TOP_SHIFT;
+
+	/**
+	 * Puts a card on top of the pile. Not threadsafe.
+	 * @param pCard The card to discard.
+	 * @pre pCard != null && size() < 52
+	 */
+	public void push(Card pCard)
+	{
+		int lSize = size();
+		aCards[lSize] = (byte) pCard.getId();
+		aState = state(lSize + 1, pCard.getId(), getSeen() | CardMask.of(pCard));
+	}
+
+	/**
+	 * Removes the card on top of the pile. It remains in the seen mask. Not threadsafe.
+	 * @return The card removed.
+	 * @pre size() > 0
+	 */
+	public Card pop()
+	{
+		int lSize = size() - 1;
+		assert lSize >= 0;
+		aState = state(lSize, lSize == 0 ? EMPTY : aCards[lSize - 1], getSeen());
+		return Card.byId(aCards[lSize]);
+	}
+
+	/**
+	 * @return The card on top of the pile, or null if the pile is empty.
+	 */
+	public Card peek()
+	{
+		int lTop = (int) ((aState >>> TOP_SHIFT) & EMPTY);
+		return lTop == EMPTY ? null : Card.byId(lTop);
+	}
+
+	/**
+	 * @return The number of cards in the pile.
+	 */
+	public int size()
+	{
+		return (int) (aState >>> SIZE_SHIFT);
+	}
+
+	/**
+	 * @return True if the pile is empty.
+	 */
+	public boolean isEmpty()
+	{
+		return size() == 0;
+	}
+
+	/**
+	 * @return The mask of every card put on the pile since the last clear,
+	 * including the cards taken back by a player.
+	 */
+	public long getSeen()
+	{
+		return aState & CardMask.ALL;
+	}
+
+	/**
+	 * Removes all the cards and forgets the seen cards. Not threadsafe.
+	 */
+	public void clear()
+	{
+		aState = EMPTY << TOP_SHIFT;
+	}
+
+	/**
+	 * @return The ids of the cards in the pile, from the bottom to the top.
+	 */
+	byte[] toIds()
+	{
+		return Arrays.copyOf(aCards, size());
+	}
+
+	/**
+	 * Replaces the content of the pile. Not threadsafe.
+	 * @param pIds The ids of the cards, from the bottom to the top.
+	 * @param pSeen The seen mask, that includes the cards of pIds.
+	 * @pre pIds.length <= 52
+	 */
+	void restore(byte[] pIds, long pSeen)
+	{
+		System.arraycopy(pIds, 0, aCards, 0, pIds.length);
+		aState = state(pIds.length, pIds.length == 0 ? EMPTY : pIds[pIds.length - 1], pSeen);
+	}
+
+	private static long state(int pSize, long pTop, long pSeen)
+	{
+		return (long) pSize << SIZE_SHIFT | pTop << TOP_SHIFT | pSeen;
+	}
+
+	@Override
+	public String toString()
+	{
+		StringBuilder lResult = new StringBuilder("DiscardPile [");
+		byte[] lIds = toIds();
+		for( int i = 0; i < lIds.length; i++ )
+		{
+			lResult.append(i == 0 ? "" : ", ").append(Card.byId(lIds[i]));
+		}
+		return lResult.append(']').toString();
+	}
+}
@@ -0,0 +1,231 @@
+package ca.mcgill.cs.comp303.rummy.model;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import ca.mcgill.cs.comp303.rummy.metrics.Histogram;
+
+/**
+ * Counters and latency histograms of the hot paths of the engine and the
+ * solver, published as the JMX MBean ca.mcgill.cs.comp303.rummy:type=EngineMetrics.
+ * Metrics are disabled by default: the instrumented code then only reads
+ * one volatile flag. When enabled, each measure is a few atomic
+ * increments. Threadsafe.
+ */
+public final class EngineMetrics implements EngineMetricsMBean
+{
+	/**
+	 * The name of the MBean.
+	 */
+	public static final String OBJECT_NAME = "ca.mcgill.cs.comp303.rummy:type=EngineMetrics";
+
+	private static final EngineMetrics INSTANCE = new EngineMetrics();
+	private static final double NANOS_PER_SECOND = 1e9;
+	private static final double P99 = 0.99;
+
+	private static volatile boolean sEnabled;
+
+	static final AtomicLong GAMES = new AtomicLong();
+	static final Histogram MATCH_NANOS = new Histogram();
+	static final Histogram CANDIDATES = new Histogram();
+	static final Histogram SEARCH_NODES = new Histogram();
+	static final Histogram DISCARD_ANALYSIS_NANOS = new Histogram();
+	static final Histogram KNOCK_NANOS = new Histogram();
+	static final Histogram SAVE_NANOS = new Histogram();
+	static final AtomicLong SAVED_BYTES = new AtomicLong();
+	static final Histogram LOAD_NANOS = new Histogram();
+
+	private volatile long aResetTime = System.nanoTime();
+
+	private EngineMetrics()
+	{}
+
+	/**
+	 * @return The metrics, also registered as an MBean by register().
+	 */
+	public static EngineMetrics getInstance()
+	{
+		return INSTANCE;
+	}
+
+	/**
+	 * Registers the MBean with the platform MBean server, if it is not already.
+	 * @throws IllegalStateException If the MBean cannot be registered.
+	 */
+	public static void register()
+	{
+		try
+		{
+			ManagementFactory.getPlatformMBeanServer().registerMBean(INSTANCE, new ObjectName(OBJECT_NAME));
+		}
+		catch(InstanceAlreadyExistsException e)
+		{
+			// Already registered.
+		}
+		catch(JMException e)
+		{
+			throw new IllegalStateException("Cannot register " + OBJECT_NAME, e);
+		}
+	}
+
+	/**
+	 * @return True if the metrics are recorded, for the instrumented code.
+	 */
+	static boolean enabled()
+	{
+		return sEnabled;
+	}
+
+	/**
+	 * Records the solving of a hand that was not in the cache.
+	 * @param pNanos The time to solve.
+	 * @param pCandidates The number of candidate melds.
+	 * @param pNodes The number of sub-hands searched.
+	 */
+	static void recordMatch(long pNanos, int pCandidates, int pNodes)
+	{
+		MATCH_NANOS.record(pNanos);
+		CANDIDATES.record(pCandidates);
+		SEARCH_NODES.record(pNodes);
+	}
+
+	@Override
+	public boolean isEnabled()
+	{
+		return sEnabled;
+	}
+
+	@Override
+	public void setEnabled(boolean pEnabled)
+	{
+		sEnabled = pEnabled;
+	}
+
+	@Override
+	public void reset()
+	{
+		GAMES.set(0);
+		MATCH_NANOS.reset();
+		CANDIDATES.reset();
+		SEARCH_NODES.reset();
+		DISCARD_ANALYSIS_NANOS.reset();
+		KNOCK_NANOS.reset();
+		SAVE_NANOS.reset();
+		SAVED_BYTES.set(0);
+		LOAD_NANOS.reset();
+		aResetTime = System.nanoTime();
+	}
+
+	@Override
+	public long getGamesCompleted()
+	{
+		return GAMES.get();
+	}
+
+	@Override
+	public double getGamesPerSecond()
+	{
+		long lElapsed = System.nanoTime() - aResetTime;
+		return lElapsed <= 0 ? 0 : GAMES.get() * NANOS_PER_SECOND / lElapsed;
+	}
+
+	@Override
+	public long getMatchCount()
+	{
+		return MATCH_NANOS.getCount();
+	}
+
+	@Override
+	public double getMatchMeanNanos()
+	{
+		return MATCH_NANOS.getMean();
+	}
+
+	@Override
+	public long getMatchP99Nanos()
+	{
+		return MATCH_NANOS.getPercentile(P99);
+	}
+
+	@Override
+	public double getCandidatesMean()
+	{
+		return CANDIDATES.getMean();
+	}
+
+	@Override
+	public long getCandidatesMax()
+	{
+		return CANDIDATES.getMax();
+	}
+
+	@Override
+	public double getSearchNodesMean()
+	{
+		return SEARCH_NODES.getMean();
+	}
+
+	@Override
+	public long getSearchNodesP99()
+	{
+		return SEARCH_NODES.getPercentile(P99);
+	}
+
+	@Override
+	public double getDiscardAnalysisMeanNanos()
+	{
+		return DISCARD_ANALYSIS_NANOS.getMean();
+	}
+
+	@Override
+	public double getKnockMeanNanos()
+	{
+		return KNOCK_NANOS.getMean();
+	}
+
+	@Override
+	public long getCacheHits()
+	{
+		return MatchCache.getInstance().getHits();
+	}
+
+	@Override
+	public long getCacheMisses()
+	{
+		return MatchCache.getInstance().getMisses();
+	}
+
+	@Override
+	public long getSaveCount()
+	{
+		return SAVE_NANOS.getCount();
+	}
+
+	@Override
+	public double getSaveMeanNanos()
+	{
+		return SAVE_NANOS.getMean();
+	}
+
+	@Override
+	public long getSavedBytes()
+	{
+		return SAVED_BYTES.get();
+	}
+
+	@Override
+	public long getLoadCount()
+	{
+		return LOAD_NANOS.getCount();
+	}
+
+	@Override
+	public double getLoadMeanNanos()
+	{
+		return LOAD_NANOS.getMean();
+	}
+}
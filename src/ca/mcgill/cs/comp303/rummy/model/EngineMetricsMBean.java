@@ -0,0 +1,113 @@
+package ca.mcgill.cs.comp303.rummy.model;
+
+/**
+ * The management interface of EngineMetrics. Latencies are in nanoseconds;
+ * percentiles are bucket upper bounds, within a factor of 2.
+ */
+public interface EngineMetricsMBean
+{
+	/**
+	 * @return True if the metrics are recorded.
+	 */
+	boolean isEnabled();
+
+	/**
+	 * @param pEnabled True to record the metrics.
+	 */
+	void setEnabled(boolean pEnabled);
+
+	/**
+	 * Forgets all the values recorded.
+	 */
+	void reset();
+
+	/**
+	 * @return The number of games completed.
+	 */
+	long getGamesCompleted();
+
+	/**
+	 * @return The number of games completed per second since the last reset.
+	 */
+	double getGamesPerSecond();
+
+	/**
+	 * @return The number of hands solved, not found in the cache.
+	 */
+	long getMatchCount();
+
+	/**
+	 * @return The mean time to solve a hand.
+	 */
+	double getMatchMeanNanos();
+
+	/**
+	 * @return The 99th percentile of the time to solve a hand.
+	 */
+	long getMatchP99Nanos();
+
+	/**
+	 * @return The mean number of candidate melds of a hand solved.
+	 */
+	double getCandidatesMean();
+
+	/**
+	 * @return The largest number of candidate melds of a hand solved.
+	 */
+	long getCandidatesMax();
+
+	/**
+	 * @return The mean number of sub-hands searched to solve a hand.
+	 */
+	double getSearchNodesMean();
+
+	/**
+	 * @return The 99th percentile of the number of sub-hands searched to solve a hand.
+	 */
+	long getSearchNodesP99();
+
+	/**
+	 * @return The mean time of a discard analysis.
+	 */
+	double getDiscardAnalysisMeanNanos();
+
+	/**
+	 * @return The mean time to resolve a knock.
+	 */
+	double getKnockMeanNanos();
+
+	/**
+	 * @return The number of hits of the shared match cache.
+	 */
+	long getCacheHits();
+
+	/**
+	 * @return The number of misses of the shared match cache.
+	 */
+	long getCacheMisses();
+
+	/**
+	 * @return The number of games saved.
+	 */
+	long getSaveCount();
+
+	/**
+	 * @return The mean time to save a game.
+	 */
+	double getSaveMeanNanos();
+
+	/**
+	 * @return The number of bytes written by saves.
+	 */
+	long getSavedBytes();
+
+	/**
+	 * @return The number of games loaded.
+	 */
+	long getLoadCount();
+
+	/**
+	 * @return The mean time to load a game.
+	 */
+	double getLoadMeanNanos();
+}
@@ -0,0 +1,274 @@
+package ca.mcgill.cs.comp303.rummy.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Delivers the events of one or more engines to listeners, each on its own
+ * thread. Every subscription has a bounded ring buffer: publishing an event
+ * never waits for a listener and never takes a lock; when the buffer of a
+ * slow listener is full the event is dropped for that listener and counted.
+ * Threadsafe.
+ */
+public final class EventBus
+{
+	/**
+	 * The default number of events buffered for a listener.
+	 */
+	public static final int DEFAULT_CAPACITY = 1024;
+
+	/**
+	 * The default maximum number of events delivered in one call.
+	 */
+	public static final int DEFAULT_BATCH = 64;
+
+	// The longest a listener thread sleeps before checking its buffer again.
+	private static final long MAX_WAIT = TimeUnit.MILLISECONDS.toNanos(10);
+	private static final AtomicInteger THREADS = new AtomicInteger();
+
+	private final List<Subscription> aSubscriptions = new CopyOnWriteArrayList<Subscription>();
+
+	/**
+	 * Subscribes a listener with the default capacity and batch size, without coalescing.
+	 * @param pListener The listener.
+	 * @return The subscription, already started.
+	 * @pre pListener != null
+	 */
+	public Subscription subscribe(GameListener pListener)
+	{
+		return subscribe(pListener, DEFAULT_CAPACITY, DEFAULT_BATCH, false);
+	}
+
+	/**
+	 * Subscribes a listener.
+	 * @param pListener The listener.
+	 * @param pCapacity The number of events buffered for the listener, rounded up to a power of 2.
+	 * @param pMaxBatch The maximum number of events delivered in one call.
+	 * @param pCoalesce If true, consecutive events of the same engine in a batch are
+	 * replaced by the last one, for listeners that only need the latest state of each game.
+	 * @return The subscription, already started.
+	 * @pre pListener != null && pCapacity > 0 && pMaxBatch > 0
+	 */
+	public Subscription subscribe(GameListener pListener, int pCapacity, int pMaxBatch, boolean pCoalesce)
+	{
+		assert pListener != null && pCapacity > 0 && pMaxBatch > 0;
+		Subscription lSubscription = new Subscription(this, pListener, pCapacity, pMaxBatch, pCoalesce);
+		aSubscriptions.add(lSubscription);
+		lSubscription.aThread.start();
+		return lSubscription;
+	}
+
+	/**
+	 * @return True if at least one listener is subscribed.
+	 */
+	public boolean hasSubscribers()
+	{
+		return !aSubscriptions.isEmpty();
+	}
+
+	/**
+	 * Offers an event to every subscription. Never blocks.
+	 * @param pEvent The event.
+	 * @pre pEvent != null
+	 */
+	public void publish(GameEvent pEvent)
+	{
+		for( Subscription lSubscription : aSubscriptions )
+		{
+			lSubscription.offer(pEvent);
+		}
+	}
+
+	/**
+	 * Cancels all the subscriptions.
+	 */
+	public void close()
+	{
+		for( Subscription lSubscription : aSubscriptions )
+		{
+			lSubscription.cancel();
+		}
+	}
+
+	/**
+	 * A listener subscribed to a bus, with its ring buffer and thread.
+	 */
+	public static final class Subscription
+	{
+		private final EventBus aBus;
+		private final GameListener aListener;
+		private final int aMaxBatch;
+		private final boolean aCoalesce;
+		private final Thread aThread;
+
+		// Slots are claimed by producers by advancing aTail, filled, then emptied by
+		// the listener thread before it advances aHead.
+		private final AtomicReferenceArray<GameEvent> aSlots;
+		private final int aMask;
+		private final AtomicLong aTail = new AtomicLong();
+		private volatile long aHead;
+		private volatile boolean aWaiting;
+		private volatile boolean aCancelled;
+
+		private final AtomicLong aDropped = new AtomicLong();
+		private volatile long aDelivered;
+
+		private Subscription(EventBus pBus, GameListener pListener, int pCapacity, int pMaxBatch, boolean pCoalesce)
+		{
+			aBus = pBus;
+			aListener = pListener;
+			aMaxBatch = pMaxBatch;
+			aCoalesce = pCoalesce;
+			int lCapacity = Integer.highestOneBit(pCapacity);
+			if( lCapacity < pCapacity )
+			{
+				lCapacity <<= 1;
+			}
+			aSlots = new AtomicReferenceArray<GameEvent>(lCapacity);
+			aMask = lCapacity - 1;
+			aThread = new Thread(new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					drain();
+				}
+			}, "rummy-events-" + THREADS.incrementAndGet());
+			aThread.setDaemon(true);
+		}
+
+		private void offer(GameEvent pEvent)
+		{
+			long lTail;
+			do
+			{
+				lTail = aTail.get();
+				if( lTail - aHead > aMask )
+				{
+					aDropped.incrementAndGet();
+					return;
+				}
+			}
+			while( !aTail.compareAndSet(lTail, lTail + 1) );
+			aSlots.set((int) lTail & aMask, pEvent);
+			if( aWaiting )
+			{
+				LockSupport.unpark(aThread);
+			}
+		}
+
+		private void drain()
+		{
+			List<GameEvent> lBatch = new ArrayList<GameEvent>(aMaxBatch);
+			// After a cancel, deliver what was already published.
+			while( !aCancelled || aHead != aTail.get() )
+			{
+				long lHead = aHead;
+				int lSlot = (int) lHead & aMask;
+				GameEvent lEvent = aSlots.get(lSlot);
+				if( lEvent == null )
+				{
+					if( !lBatch.isEmpty() )
+					{
+						lBatch = deliver(lBatch);
+					}
+					else if( !aCancelled )
+					{
+						aWaiting = true;
+						if( aSlots.get(lSlot) == null )
+						{
+							LockSupport.parkNanos(this, MAX_WAIT);
+						}
+						aWaiting = false;
+					}
+					else
+					{
+						// A producer claimed the slot before the cancel and is filling it.
+						Thread.yield();
+					}
+					continue;
+				}
+				aSlots.set(lSlot, null);
+				aHead = lHead + 1;
+				aDelivered++;
+
+				int lLast = lBatch.size() - 1;
+				if( aCoalesce && lLast >= 0 && lBatch.get(lLast).getEngine() == lEvent.getEngine() )
+				{
+					lBatch.set(lLast, lEvent);
+				}
+				else
+				{
+					lBatch.add(lEvent);
+				}
+				if( lBatch.size() == aMaxBatch )
+				{
+					lBatch = deliver(lBatch);
+				}
+			}
+			if( !lBatch.isEmpty() )
+			{
+				deliver(lBatch);
+			}
+		}
+
+		private List<GameEvent> deliver(List<GameEvent> pBatch)
+		{
+			try
+			{
+				aListener.gameEvents(pBatch);
+			}
+			catch(RuntimeException e)
+			{
+				e.printStackTrace();
+			}
+			return new ArrayList<GameEvent>(aMaxBatch);
+		}
+
+		/**
+		 * Stops the delivery of new events. The events already published are
+		 * still delivered, then the thread of the subscription ends.
+		 */
+		public void cancel()
+		{
+			aBus.aSubscriptions.remove(this);
+			aCancelled = true;
+			LockSupport.unpark(aThread);
+		}
+
+		/**
+		 * Waits for the thread of a cancelled subscription to end.
+		 * @param pMillis The maximum time to wait, in milliseconds.
+		 * @return True if the thread ended.
+		 * @throws InterruptedException If the calling thread is interrupted.
+		 */
+		public boolean awaitTermination(long pMillis) throws InterruptedException
+		{
+			aThread.join(pMillis);
+			return !aThread.isAlive();
+		}
+
+		/**
+		 * @return The number of events dropped because the buffer was full.
+		 */
+		public long getDropped()
+		{
+			return aDropped.get();
+		}
+
+		/**
+		 * @return The number of events taken from the buffer for the listener,
+		 * including the events replaced by coalescing.
+		 */
+		public long getDelivered()
+		{
+			return aDelivered;
+		}
+	}
+}
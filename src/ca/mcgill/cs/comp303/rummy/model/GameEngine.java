@@ -1,10 +1,8 @@
 package ca.mcgill.cs.comp303.rummy.model;
 
-import java.io.*;
 import java.util.*;
 
-@SuppressWarnings("serial")
-public class GameEngine extends Observable implements Serializable
+public class GameEngine
 {
 	private Random generator = new Random();
 	
@@ -17,7 +15,7 @@ public class GameEngine extends Observable implements Serializable
 	//this integer will keep track of games left to play if autoplay has been called
 	private int gamesToPlay = 0;
 	
-	private Stack<Card> discardedCards;
+	private DiscardPile discardedCards;
 	private Deck gameDeck;
 	
 	//Boolean to remember who is the dealer during the game
@@ -26,23 +24,78 @@ public class GameEngine extends Observable implements Serializable
 	private Player humanPlayer;
 	//player 1 (true)
 	private Player AIPlayer;
+	//the seats of player 0 and 1: the players, or seats that do not play whole games
+	private final Seat[] seats = new Seat[2];
 	
-	private int[] playerScores;
+	private int[] playerScores = new int[2];
 	//When a player knocks the game groups the player cards
-	Set<ICardSet>[] finishingGroups;
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	Set<ICardSet>[] finishingGroups = new Set[2];
+	//How the last game ended, if a player knocked
+	private KnockResolution knockResolution;
 	
-	private GameEngine(){}
+	//Records the events of the game when not null
+	private MoveJournal journal;
+	//Records the turns of the completed games in a dataset when not null
+	private DatasetWriter.Recorder dataset;
+	//What the events of the game reveal about the hands of the players
+	private CardTracker tracker = new CardTracker();
+	//Delivers the events of the game to the listeners, on their own threads
+	private EventBus events = new EventBus();
 	
+	/**
+	 * Creates an independent engine, with its own deck, discard pile and players.
+	 * Engines are not threadsafe, but distinct engines can run in parallel.
+	 */
+	public GameEngine(){}
+	
+	/**
+	 * Creates an independent engine whose deals and choices of dealer are reproducible.
+	 * The players draw their own random numbers
+	 * @param pSeed the seed of the random number generator of the engine
+	 */
+	public GameEngine(long pSeed)
+	{
+		generator = new Random(pSeed);
+	}
+	
+	/**
+	 * Returns the engine shared by the GUI and single-game uses
+	 * @return the shared engine
+	 */
 	public static GameEngine getInstance()
 	{
 		return ENGINE;
 	}
 	
 	
-	private void myNotify()
+	/**
+	 * Updates the card tracker, records an event in the journal and publishes it to the listeners, if any
+	 * @param pType the kind of event
+	 * @param pCard the card drawn or discarded, or null
+	 */
+	private void event(GameEvent.Type pType, Card pCard)
+	{
+		//Before the first turn, only the player who does not deal can take the discarded card
+		int lPlayer;
+		if(currentState == GameState.Init) lPlayer = whosTheDealer ? 0 : 1;
+		else lPlayer = currentState == GameState.Player1Turn ? 1 : 0;
+		if(dataset != null) dataset.record(this, pType, lPlayer, pCard);
+		tracker.update(pType, lPlayer, pCard, discardedCards.peek());
+		if(journal != null) journal.append(pType, lPlayer, pCard);
+		if(events.hasSubscribers()) publish(pType, lPlayer, pCard);
+	}
+	
+	/**
+	 * Publishes an event with the cards of both hands and the top of the discard pile, so
+	 * that listeners do not read the hands while the engine changes them
+	 * @param pType the kind of event
+	 * @param pPlayer the player concerned
+	 * @param pCard the card of the event, or null
+	 */
+	private void publish(GameEvent.Type pType, int pPlayer, Card pCard)
 	{
-		super.setChanged();
-		super.notifyObservers();
+		events.publish(new GameEvent(this, pType, pPlayer, pCard, cards(seats[0]), cards(seats[1]), discardedCards.peek()));
 	}
 	
 	/**
@@ -66,6 +119,22 @@ public class GameEngine extends Observable implements Serializable
 		{
 			AIPlayer = pPlayer;
 		}
+		seats[0] = humanPlayer;
+		seats[1] = AIPlayer;
+	}
+	
+	/**
+	 * Seats 2 players who are driven one move at a time, with deal, beginTurn and endTurn
+	 * or hasKnocked. Such an engine has no Player, so newGame and autoPlay are not available
+	 * @param pSeat0 the seat of player 0
+	 * @param pSeat1 the seat of player 1
+	 */
+	public void setSeats(Seat pSeat0, Seat pSeat1)
+	{
+		humanPlayer = null;
+		AIPlayer = null;
+		seats[0] = pSeat0;
+		seats[1] = pSeat1;
 	}
 	
 	/**
@@ -75,25 +144,7 @@ public class GameEngine extends Observable implements Serializable
 	public void newGame() throws NumberOfPlayersException
 	{
 		if(humanPlayer == null || AIPlayer == null ) throw new NumberOfPlayersException("Not enough players in the game.");
-		
-		
-		gameDeck = new Deck();
-		gameDeck.shuffle();
-		playerScores[0] = 0;
-		playerScores[1] = 0;
-		discardedCards = new Stack<Card>();
-		
-		for(int i = 0; i < 10; i++)
-		{
-			humanPlayer.addCard(gameDeck.draw());
-			AIPlayer.addCard(gameDeck.draw());
-			
-		}
-		discardedCards.push(gameDeck.draw());
-		myNotify();
-		
-		//choosing who deals at random, true --> AIPlayer, false --> humanPlayer
-		whosTheDealer = generator.nextBoolean();
+		deal();
 		
 		//asking players if they pass on the first discarded card
 		//When the method pass() returns either the player passes or has already taken the card and discarded another
@@ -123,35 +174,128 @@ public class GameEngine extends Observable implements Serializable
 	}
 	
 	/**
-	 * Starts the game with the provided first player going first and then cycles through the players in turn
-	 * @param firstPlayer boolean representing first player (0 => humanPlayer, 1 => AI)
+	 * Deals a new game without playing it, for engines driven one move at a time.
+	 * The player who does not deal may then take the first discarded card with
+	 * getDiscardTop and hasDiscarded, before the first beginTurn
+	 * @throws NumberOfPlayersException
 	 */
-	private void startGame(boolean firstPlayer)
+	public void deal() throws NumberOfPlayersException
 	{
-		if(firstPlayer)
+		if(seats[0] == null || seats[1] == null ) throw new NumberOfPlayersException("Not enough players in the game.");
+		
+		
+		//the deck is reused from one game to the next, and shuffled with its own generator
+		if(gameDeck == null) gameDeck = new Deck(new Random(generator.nextLong()));
+		else gameDeck.shuffle();
+		playerScores[0] = 0;
+		playerScores[1] = 0;
+		finishingGroups[0] = null;
+		finishingGroups[1] = null;
+		knockResolution = null;
+		currentState = GameState.Init;
+		if(discardedCards == null) discardedCards = new DiscardPile();
+		else discardedCards.clear();
+		clearHand(seats[0]);
+		clearHand(seats[1]);
+		
+		for(int i = 0; i < 10; i++)
 		{
-			currentState = GameState.Player1Turn;
+			seats[0].addCard(gameDeck.draw());
+			seats[1].addCard(gameDeck.draw());
+			
 		}
-		else
+		discardedCards.push(gameDeck.draw());
+		
+		//choosing who deals at random, true --> AIPlayer, false --> humanPlayer
+		whosTheDealer = generator.nextBoolean();
+		if(dataset != null) dataset.record(this, GameEvent.Type.DEAL, whosTheDealer ? 1 : 0, discardedCards.peek());
+		tracker.update(GameEvent.Type.DEAL, whosTheDealer ? 1 : 0, discardedCards.peek(), null);
+		if(journal != null) journal.snapshot(this);
+		if(events.hasSubscribers()) publish(GameEvent.Type.DEAL, whosTheDealer ? 1 : 0, discardedCards.peek());
+	}
+	
+	private static void clearHand(Seat pSeat)
+	{
+		if(pSeat.getHand() != null)
 		{
-			currentState = GameState.Player0Turn;
+			pSeat.getHand().clear();
 		}
-		
-		Boolean currentPlayer = firstPlayer;
+	}
+	
+	private static long cards(Seat pSeat)
+	{
+		return pSeat == null || pSeat.getHand() == null ? 0 : pSeat.getHand().getCards();
+	}
+	
+	/**
+	 * Starts the game with the provided first player going first and then cycles through the players in turn.
+	 * The game ends when a player knocks, or in a draw when only 2 cards are left in the deck.
+	 * @param firstPlayer boolean representing first player (0 => humanPlayer, 1 => AI)
+	 */
+	private void startGame(boolean firstPlayer)
+	{
+		boolean currentPlayer = firstPlayer;
 		while(currentState != GameState.EndGame)
 		{
-			Card aCard;
-			Player currPlayer;
-			if(currentPlayer) currPlayer = AIPlayer;
-			else currPlayer = humanPlayer;
-			
-			aCard = currPlayer.playTurn();
-			discardedCards.push(aCard);
-			myNotify();
+			beginTurn(currentPlayer ? 1 : 0);
+			Card aCard = (currentPlayer ? AIPlayer : humanPlayer).playTurn();
+			if(currentState == GameState.EndGame)
+			{
+				//the player knocked, the discard is already on the pile
+				break;
+			}
+			endTurn(aCard);
 			currentPlayer = !currentPlayer;
 		}
 	}
 	
+	/**
+	 * Starts the turn of a player, who then draws a card with getDeckCard or getDiscardTop
+	 * and ends the turn with endTurn or hasKnocked
+	 * @param pPlayer the player, 0 for the human player, 1 for the AI player
+	 */
+	public void beginTurn(int pPlayer)
+	{
+		currentState = pPlayer == 1 ? GameState.Player1Turn : GameState.Player0Turn;
+	}
+	
+	/**
+	 * Ends the current turn by discarding a card. The game ends in a draw when only 2 cards are left in the deck
+	 * @param pCard the card discarded
+	 */
+	public void endTurn(Card pCard)
+	{
+		discardedCards.push(pCard);
+		event(GameEvent.Type.DISCARD, pCard);
+		if(gameDeck.size() <= 2)
+		{
+			currentState = GameState.EndGame;
+			gamesToPlay--;
+			if(EngineMetrics.enabled()) EngineMetrics.GAMES.incrementAndGet();
+			event(GameEvent.Type.END, null);
+		}
+	}
+	
+	/**
+	 * Returns whether the current game is over, by a knock or a draw
+	 * @return true if the game is over
+	 */
+	public boolean isOver()
+	{
+		return currentState == GameState.EndGame;
+	}
+	
+	/**
+	 * Returns the player who must play: the player who does not deal before the first turn
+	 * @return 0 for the human player, 1 for the AI player, -1 if the game is over
+	 */
+	public int getCurrentPlayer()
+	{
+		if(currentState == GameState.EndGame) return -1;
+		if(currentState == GameState.Init) return whosTheDealer ? 0 : 1;
+		return currentState == GameState.Player1Turn ? 1 : 0;
+	}
+	
 	/**
 	 * Ends the game and counts the score
 	 * @param c 
@@ -160,20 +304,17 @@ public class GameEngine extends Observable implements Serializable
 	private void endGame(Card c, Hand h)
 	{
 		h.autoMatch();
-		if(currentState == GameState.Player0Turn)
-		{
-			finishingGroups[0] = h.getMatchedSets();
-			
-			
-		}
-		else if(currentState == GameState.Player1Turn)
-		{
-			finishingGroups[1] = h.getMatchedSets();
-		}
-		//Set<Card> unMatched = h.getUnmatchedCards();
-		//TODO
+		int lKnocker = currentState == GameState.Player1Turn ? 1 : 0;
+		finishingGroups[lKnocker] = h.getMatchedSets();
+		
+		//the defender melds and lays off, then the winner gets the points
+		Hand lDefender = seats[1 - lKnocker].getHand();
+		knockResolution = KnockResolution.resolve(h.getCards(), c, lDefender == null ? 0 : lDefender.getCards(), new SetMatcher());
+		if(knockResolution.knockerWins()) playerScores[lKnocker] += knockResolution.getPoints();
+		else playerScores[1 - lKnocker] += knockResolution.getPoints();
 		
 		gamesToPlay--;
+		if(EngineMetrics.enabled()) EngineMetrics.GAMES.incrementAndGet();
 	}
 	
 	/**
@@ -184,11 +325,12 @@ public class GameEngine extends Observable implements Serializable
 	public void hasKnocked(Card c, Hand h)
 	{
 		//verify if the knock is legal
-		if(h.score() <= 10){
+		if(h.canKnock()){
 			discardedCards.push(c);
-			myNotify();
-			//currentState = GameState.EndGame;
+			event(GameEvent.Type.KNOCK, c);
 			endGame(c, h);
+			event(GameEvent.Type.END, null);
+			currentState = GameState.EndGame;
 		}
 		
 	}
@@ -200,7 +342,7 @@ public class GameEngine extends Observable implements Serializable
 	public Card getDiscardTop()
 	{
 		Card aCard = discardedCards.pop();
-		myNotify();
+		event(GameEvent.Type.DRAW_DISCARD, aCard);
 		return aCard;
 	}
 	
@@ -220,7 +362,7 @@ public class GameEngine extends Observable implements Serializable
 	public Card getDeckCard()
 	{
 		Card aCard = gameDeck.draw();
-		myNotify();
+		event(GameEvent.Type.DRAW_DECK, aCard);
 		return aCard;
 	}
 	
@@ -231,7 +373,7 @@ public class GameEngine extends Observable implements Serializable
 	public void hasDiscarded(Card c)
 	{
 		discardedCards.push(c);
-		myNotify();
+		event(GameEvent.Type.DISCARD, c);
 	}
 	
 	/**
@@ -253,8 +395,18 @@ public class GameEngine extends Observable implements Serializable
 	}
 	
 	/**
-	 * This method returns the current score as a 2 slots array, the human player is o, the ai is 1
-	 * @return
+	 * Returns the seat of a player: the player itself, unless the engine was given seats with setSeats
+	 * @param pPlayer 0 for the human player, 1 for the AI player
+	 * @return the seat, or null if there is no player at it
+	 */
+	public Seat getSeat(int pPlayer)
+	{
+		return seats[pPlayer];
+	}
+	
+	/**
+	 * This method returns the points won in the current game as a 2 slots array, the human player is 0, the ai is 1
+	 * @return the points of each player
 	 */
 	public int[] getScore()
 	{
@@ -269,7 +421,146 @@ public class GameEngine extends Observable implements Serializable
 	public void autoPlay(int n) throws NumberOfPlayersException
 	{
 		gamesToPlay = n;
-		newGame();
+		while(gamesToPlay > 0)
+		{
+			newGame();
+		}
+	}
+	
+	/**
+	 * Returns how the defender laid off and who scored, when the last game ended with a knock
+	 * @return the resolution of the knock, or null if the game did not end with a knock
+	 */
+	public KnockResolution getKnockResolution()
+	{
+		return knockResolution;
+	}
+	
+	/**
+	 * Returns the tracker of what the events of the game reveal about the hands of the players.
+	 * It is up to date when a player is asked to play
+	 * @return the card tracker
+	 */
+	public CardTracker getTracker()
+	{
+		return tracker;
+	}
+	
+	/**
+	 * Returns the bus that delivers the events of this engine. Listeners run on their own
+	 * threads, so the engine never waits for them
+	 * @return the event bus
+	 */
+	public EventBus getEventBus()
+	{
+		return events;
+	}
+	
+	/**
+	 * Replaces the event bus, for instance to share one bus between several engines
+	 * @param pEvents the new event bus
+	 */
+	public void setEventBus(EventBus pEvents)
+	{
+		events = pEvents;
+	}
+	
+	/**
+	 * Records the events of the following games in a journal, starting with a snapshot at each deal.
+	 * See MoveJournal.recover to rebuild an engine after a crash
+	 * @param pJournal the journal, or null to stop recording
+	 */
+	public void setJournal(MoveJournal pJournal)
+	{
+		journal = pJournal;
+	}
+	
+	/**
+	 * Records the turns of the following completed games in a dataset, with their outcome.
+	 * The turns of the games recorded so far are queued to the previous dataset, if any
+	 * @param pDataset the dataset, or null to stop recording
+	 */
+	public void setDataset(DatasetWriter pDataset)
+	{
+		if(dataset != null) dataset.release();
+		dataset = pDataset == null ? null : pDataset.newRecorder();
+	}
+	
+	GameState getState()
+	{
+		return currentState;
+	}
+	
+	boolean getDealer()
+	{
+		return whosTheDealer;
+	}
+	
+	int getGamesToPlay()
+	{
+		return gamesToPlay;
+	}
+	
+	/**
+	 * @return the deck, or null if no game was started
+	 */
+	Deck getDeck()
+	{
+		return gameDeck;
+	}
+	
+	/**
+	 * Returns the discard pile. Its top card and the cards seen on it can be read
+	 * without locking from any thread
+	 * @return the discard pile, or null if no game was started
+	 */
+	public DiscardPile getDiscardPile()
+	{
+		return discardedCards;
+	}
+	
+	/**
+	 * Restores the state of a saved engine. The players must be restored separately
+	 * @param pState the state of the game
+	 * @param pDealer the dealer (true --> AIPlayer)
+	 * @param pGamesToPlay the games left to play
+	 * @param pScores the scores of the 2 players
+	 * @param pDeck the deck, or null if no game was started
+	 * @param pDiscards the discard pile, or null if no game was started
+	 */
+	void restore(GameState pState, boolean pDealer, int pGamesToPlay, int[] pScores, Deck pDeck, DiscardPile pDiscards)
+	{
+		currentState = pState;
+		whosTheDealer = pDealer;
+		gamesToPlay = pGamesToPlay;
+		playerScores[0] = pScores[0];
+		playerScores[1] = pScores[1];
+		gameDeck = pDeck;
+		discardedCards = pDiscards;
+	}
+	
+	/**
+	 * Replaces both players, for instance when restoring a saved engine
+	 * @param pHumanPlayer player 0
+	 * @param pAIPlayer player 1
+	 */
+	void setPlayers(Player pHumanPlayer, Player pAIPlayer)
+	{
+		humanPlayer = pHumanPlayer;
+		AIPlayer = pAIPlayer;
+		seats[0] = pHumanPlayer;
+		seats[1] = pAIPlayer;
+	}
+	
+	/**
+	 * Returns which player knocked to end the last game
+	 * @return 0 for the human player, 1 for the AI player, -1 if nobody knocked
+	 */
+	int getKnocker()
+	{
+		if(finishingGroups[0] != null) return 0;
+		if(finishingGroups[1] != null) return 1;
+		return -1;
 	}
 	
 	/**
@@ -0,0 +1,114 @@
+package ca.mcgill.cs.comp303.rummy.model;
+
+/**
+ * An immutable event of a game, published by a GameEngine to its EventBus.
+ * It holds the cards of both hands and the top of the discard pile right
+ * after the event, so that listeners on other threads never need to read the
+ * engine while it plays.
+ */
+public final class GameEvent
+{
+	/**
+	 * The kinds of events, in the order of a game.
+	 */
+	public enum Type
+	{
+		/** The cards were dealt; the player is the dealer and the card is the first discarded card. */
+		DEAL,
+		/** A player drew the card from the deck. */
+		DRAW_DECK,
+		/** A player took the card on top of the discard pile. */
+		DRAW_DISCARD,
+		/** A player discarded the card. */
+		DISCARD,
+		/** A player knocked, discarding the card. */
+		KNOCK,
+		/** The game ended, after a knock or when the deck ran out. */
+		END
+	}
+
+	private final GameEngine aEngine;
+	private final Type aType;
+	private final int aPlayer;
+	private final Card aCard;
+	private final long aHand0;
+	private final long aHand1;
+	private final Card aTop;
+
+	/**
+	 * @param pEngine The engine of the game.
+	 * @param pType The kind of event.
+	 * @param pPlayer The player concerned, 0 (human player) or 1 (AI player).
+	 * @param pCard The card drawn or discarded, or null.
+	 * @param pHand0 The cards of player 0 after the event (see CardMask).
+	 * @param pHand1 The cards of player 1 after the event.
+	 * @param pTop The card on top of the discard pile after the event, or null.
+	 * @pre pEngine != null && pType != null
+	 */
+	public GameEvent(GameEngine pEngine, Type pType, int pPlayer, Card pCard, long pHand0, long pHand1, Card pTop)
+	{
+		assert pEngine != null && pType != null;
+		aEngine = pEngine;
+		aType = pType;
+		aPlayer = pPlayer;
+		aCard = pCard;
+		aHand0 = pHand0;
+		aHand1 = pHand1;
+		aTop = pTop;
+	}
+
+	/**
+	 * @return The engine of the game.
+	 */
+	public GameEngine getEngine()
+	{
+		return aEngine;
+	}
+
+	/**
+	 * @return The kind of event.
+	 */
+	public Type getType()
+	{
+		return aType;
+	}
+
+	/**
+	 * @return The player concerned, 0 (human player) or 1 (AI player).
+	 */
+	public int getPlayer()
+	{
+		return aPlayer;
+	}
+
+	/**
+	 * @return The card drawn or discarded, the first discarded card for DEAL, or null for END.
+	 */
+	public Card getCard()
+	{
+		return aCard;
+	}
+
+	/**
+	 * @param pPlayer A player, 0 or 1.
+	 * @return The cards in the hand of pPlayer after the event (see CardMask).
+	 */
+	public long getHand(int pPlayer)
+	{
+		return pPlayer == 0 ? aHand0 : aHand1;
+	}
+
+	/**
+	 * @return The card on top of the discard pile after the event, or null.
+	 */
+	public Card getTop()
+	{
+		return aTop;
+	}
+
+	@Override
+	public String toString()
+	{
+		return aType + " " + aPlayer + (aCard == null ? "" : " " + aCard);
+	}
+}
@@ -0,0 +1,15 @@
+package ca.mcgill.cs.comp303.rummy.model;
+
+import java.util.List;
+
+/**
+ * Receives the events of an EventBus, in batches, on the thread of its subscription.
+ */
+public interface GameListener
+{
+	/**
+	 * Called with the events published since the last call, in order.
+	 * @param pEvents A non-empty batch of events. Not used by the bus after the call.
+	 */
+	void gameEvents(List<GameEvent> pEvents);
+}
@@ -1,66 +1,360 @@
 package ca.mcgill.cs.comp303.rummy.model;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 
+/**
+ * Saves and loads engines in a compact, versioned binary format. Each card
+ * is written as its id in one byte, and each hand as the 52-bit mask of its
+ * cards. The layout is:
+ * <pre>
+ * int   magic ("RMY")
+ * short version
+ * byte  state, byte flags (1: has a deck, 2: AIPlayer is the dealer)
+ * int   games to play, int score 0, int score 1
+ * byte  deck size, then one byte per card
+ * byte  discard pile size, then one byte per card from the bottom
+ * long  mask of the cards seen on the discard pile
+ * long  7 masks of the card tracker: cards taken, declined and discarded by
+ *       player 0 then player 1, cards on the discard pile
+ * for each of the 2 players:
+ *   byte kind, int name length (-1 for none), UTF-8 name, long hand mask
+ * </pre>
+ * The seats of an engine driven one move at a time (see GameEngine.setSeats)
+ * are saved with their own kind, and loaded as plain seats (see PlainSeat).
+ */
 public class GameSaver
 {
-	
+	private static final int MAGIC = 0x524D5900;
+	private static final short VERSION = 1;
+	private static final String SUFFIX = ".dat";
+	private static final String TEMPORARY_SUFFIX = ".tmp";
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private static final int FLAG_DECK = 1;
+	private static final int FLAG_DEALER = 2;
+
+	// Kinds of players that can be saved.
+	private static final byte HUMAN = 0;
+	private static final byte RANDOM = 1;
+	private static final byte MONTE_CARLO = 2;
+	// A seat that is not a Player, loaded as a PlainSeat.
+	private static final byte SEAT = 3;
+
+	private static final int TRACKER_MASKS = 7;
+
+	// Everything but the player names.
+	private static final int FIXED_SIZE = 4 + 2 + 1 + 1 + 3 * 4 + 2 * (1 + Card.NUMBER_OF_CARDS) + 8 + TRACKER_MASKS * 8 + 2 * (1 + 4 + 8);
+
 	public static void saveEngine(GameEngine g, String aName)
 	{
-		ObjectOutputStream out = null;
 		try
 		{
-			out = new ObjectOutputStream( new FileOutputStream(aName + ".dat"));
-			out.writeObject(g);
+			write(g, Paths.get(aName + SUFFIX));
 		}
 		catch(IOException e)
 		{
 			e.printStackTrace();
 		}
-		finally
-		{
-			if(out != null)
-				try
-				{
-					out.close();
-				}
-				catch (IOException e)
-				{
-					e.printStackTrace();
-				}
-		}
-		
 	}
-	
+
 	public static GameEngine loadEngine(String aName)
 	{
 		GameEngine g = null;
-		ObjectInputStream in = null;
 		try
 		{
-			in = new ObjectInputStream( new FileInputStream(aName + ".dat"));
-			g = (GameEngine) in.readObject();
+			g = read(Paths.get(aName + SUFFIX));
 		}
-		catch(IOException | ClassNotFoundException e)
+		catch(IOException e)
 		{
 			e.printStackTrace();
 		}
-		finally
+		return g;
+	}
+
+	/**
+	 * Writes an engine to a file, replacing its content. The engine is written
+	 * to a temporary file next to pFile, forced to the storage device, then moved
+	 * over pFile, so that pFile keeps the previous save if the write fails.
+	 * @param pEngine the engine to save
+	 * @param pFile the file to write
+	 * @throws IOException if the file cannot be written, or a player cannot be saved
+	 */
+	public static void write(GameEngine pEngine, Path pFile) throws IOException
+	{
+		long lStart = System.nanoTime();
+		ByteBuffer lBuffer = encode(pEngine);
+		int lBytes = lBuffer.remaining();
+		Path lTemporary = pFile.resolveSibling(pFile.getFileName() + TEMPORARY_SUFFIX);
+		try
 		{
-			if(in != null)
-				try
+			try(FileChannel lChannel = FileChannel.open(lTemporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+					StandardOpenOption.TRUNCATE_EXISTING))
+			{
+				while(lBuffer.hasRemaining())
 				{
-					in.close();
+					lChannel.write(lBuffer);
 				}
-				catch (IOException e)
+				lChannel.force(true);
+			}
+			Files.move(lTemporary, pFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		}
+		catch(IOException e)
+		{
+			Files.deleteIfExists(lTemporary);
+			throw e;
+		}
+		if(EngineMetrics.enabled())
+		{
+			EngineMetrics.SAVE_NANOS.record(System.nanoTime() - lStart);
+			EngineMetrics.SAVED_BYTES.addAndGet(lBytes);
+		}
+	}
+
+	/**
+	 * Reads an engine written by write.
+	 * @param pFile the file to read
+	 * @return a new engine, with new players or plain seats
+	 * @throws IOException if the file cannot be read or is not a valid save
+	 */
+	public static GameEngine read(Path pFile) throws IOException
+	{
+		long lStart = System.nanoTime();
+		try(FileChannel lChannel = FileChannel.open(pFile, StandardOpenOption.READ))
+		{
+			if(lChannel.size() > Integer.MAX_VALUE)
+			{
+				throw new IOException("Not a saved game: " + pFile);
+			}
+			ByteBuffer lBuffer = ByteBuffer.allocate((int) lChannel.size());
+			while(lBuffer.hasRemaining())
+			{
+				if(lChannel.read(lBuffer) < 0)
 				{
-					e.printStackTrace();
+					throw new EOFException();
 				}
+			}
+			lBuffer.flip();
+			GameEngine lEngine = decode(lBuffer);
+			if(EngineMetrics.enabled())
+			{
+				EngineMetrics.LOAD_NANOS.record(System.nanoTime() - lStart);
+			}
+			return lEngine;
+		}
+	}
+
+	/**
+	 * Encodes an engine in the binary format.
+	 * @param pEngine the engine to encode
+	 * @return a buffer ready to be read, with the encoded engine
+	 * @throws IOException if a player cannot be saved
+	 */
+	static ByteBuffer encode(GameEngine pEngine) throws IOException
+	{
+		Seat[] lPlayers = {pEngine.getSeat(0), pEngine.getSeat(1)};
+		byte[][] lNames = new byte[2][];
+		int lSize = FIXED_SIZE;
+		for(int i = 0; i < 2; i++)
+		{
+			if(lPlayers[i] != null && lPlayers[i].getName() != null)
+			{
+				lNames[i] = lPlayers[i].getName().getBytes(UTF8);
+				lSize += lNames[i].length;
+			}
+		}
+
+		ByteBuffer lBuffer = ByteBuffer.allocate(lSize);
+		lBuffer.putInt(MAGIC);
+		lBuffer.putShort(VERSION);
+		lBuffer.put((byte) pEngine.getState().ordinal());
+		Deck lDeck = pEngine.getDeck();
+		lBuffer.put((byte) ((lDeck != null ? FLAG_DECK : 0) | (pEngine.getDealer() ? FLAG_DEALER : 0)));
+		lBuffer.putInt(pEngine.getGamesToPlay());
+		lBuffer.putInt(pEngine.getScore()[0]);
+		lBuffer.putInt(pEngine.getScore()[1]);
+		putCards(lBuffer, lDeck == null ? new byte[0] : lDeck.toIds());
+		DiscardPile lDiscards = pEngine.getDiscardPile();
+		putCards(lBuffer, lDiscards == null ? new byte[0] : lDiscards.toIds());
+		lBuffer.putLong(lDiscards == null ? 0 : lDiscards.getSeen());
+		for(long lMask : pEngine.getTracker().toMasks())
+		{
+			lBuffer.putLong(lMask);
+		}
+
+		for(int i = 0; i < 2; i++)
+		{
+			lBuffer.put(kindOf(lPlayers[i]));
+			if(lNames[i] == null)
+			{
+				lBuffer.putInt(-1);
+			}
+			else
+			{
+				lBuffer.putInt(lNames[i].length);
+				lBuffer.put(lNames[i]);
+			}
+			Hand lHand = lPlayers[i].getHand();
+			lBuffer.putLong(lHand == null ? 0 : lHand.getCards());
+		}
+		lBuffer.flip();
+		return lBuffer;
+	}
+
+	/**
+	 * Decodes an engine from the binary format.
+	 * @param pBuffer a buffer positioned at the start of an encoded engine
+	 * @return a new engine, with new players or plain seats
+	 * @throws IOException if the buffer does not hold a valid save
+	 */
+	static GameEngine decode(ByteBuffer pBuffer) throws IOException
+	{
+		try
+		{
+			if(pBuffer.getInt() != MAGIC)
+			{
+				throw new IOException("Not a saved game");
+			}
+			short lVersion = pBuffer.getShort();
+			if(lVersion != VERSION)
+			{
+				throw new IOException("Unsupported save format version: " + lVersion);
+			}
+			GameEngine.GameState lState = GameEngine.GameState.values()[pBuffer.get()];
+			int lFlags = pBuffer.get();
+			int lGamesToPlay = pBuffer.getInt();
+			int[] lScores = {pBuffer.getInt(), pBuffer.getInt()};
+			byte[] lDeckIds = getCards(pBuffer);
+			byte[] lDiscardIds = getCards(pBuffer);
+			long lSeen = pBuffer.getLong();
+			long[] lTracker = new long[TRACKER_MASKS];
+			for(int i = 0; i < TRACKER_MASKS; i++)
+			{
+				lTracker[i] = pBuffer.getLong() & CardMask.ALL;
+			}
+
+			GameEngine lEngine = new GameEngine();
+			Seat[] lPlayers = new Seat[2];
+			for(int i = 0; i < 2; i++)
+			{
+				byte lKind = pBuffer.get();
+				int lLength = pBuffer.getInt();
+				String lName = null;
+				if(lLength >= 0)
+				{
+					if(lLength > pBuffer.remaining())
+					{
+						throw new IOException("Corrupted saved game");
+					}
+					byte[] lBytes = new byte[lLength];
+					pBuffer.get(lBytes);
+					lName = new String(lBytes, UTF8);
+				}
+				lPlayers[i] = lKind == SEAT ? new PlainSeat(lName) : createPlayer(lKind, lName, lEngine);
+				restoreHand(lPlayers[i].getHand(), pBuffer.getLong());
+			}
+
+			Deck lDeck = null;
+			DiscardPile lDiscards = null;
+			if((lFlags & FLAG_DECK) != 0)
+			{
+				lDeck = new Deck();
+				lDeck.restore(lDeckIds);
+				lDiscards = new DiscardPile();
+				lDiscards.restore(lDiscardIds, lSeen);
+			}
+			if(lPlayers[0] instanceof Player && lPlayers[1] instanceof Player)
+			{
+				lEngine.setPlayers((Player) lPlayers[0], (Player) lPlayers[1]);
+			}
+			else
+			{
+				lEngine.setSeats(lPlayers[0], lPlayers[1]);
+			}
+			lEngine.getTracker().restore(lTracker);
+			lEngine.restore(lState, (lFlags & FLAG_DEALER) != 0, lGamesToPlay, lScores, lDeck, lDiscards);
+			return lEngine;
+		}
+		catch(RuntimeException e)
+		{
+			// Truncated buffer, or out of range state or card.
+			throw new IOException("Corrupted saved game", e);
 		}
-		
-		return g;
 	}
-	
-	
 
+	private static void putCards(ByteBuffer pBuffer, byte[] pIds)
+	{
+		pBuffer.put((byte) pIds.length);
+		pBuffer.put(pIds);
+	}
+
+	private static byte[] getCards(ByteBuffer pBuffer)
+	{
+		byte[] lIds = new byte[pBuffer.get()];
+		pBuffer.get(lIds);
+		for(byte lId : lIds)
+		{
+			if(lId < 0 || lId >= Card.NUMBER_OF_CARDS)
+			{
+				throw new IllegalArgumentException("Invalid card id: " + lId);
+			}
+		}
+		return lIds;
+	}
+
+	private static byte kindOf(Seat pPlayer) throws IOException
+	{
+		if(pPlayer instanceof HumanPlayer)
+		{
+			return HUMAN;
+		}
+		if(pPlayer instanceof RandomPlayer)
+		{
+			return RANDOM;
+		}
+		if(pPlayer instanceof MonteCarloPlayer)
+		{
+			return MONTE_CARLO;
+		}
+		if(pPlayer != null && !(pPlayer instanceof Player))
+		{
+			return SEAT;
+		}
+		throw new IOException("Cannot save player: " + (pPlayer == null ? null : pPlayer.getClass().getName()));
+	}
+
+	private static Player createPlayer(byte pKind, String pName, GameEngine pEngine) throws IOException
+	{
+		switch(pKind)
+		{
+		case HUMAN:
+			return new HumanPlayer();
+		case RANDOM:
+			return new RandomPlayer(pName, pEngine);
+		case MONTE_CARLO:
+			return new MonteCarloPlayer(pName, pEngine);
+		default:
+			throw new IOException("Unknown player kind: " + pKind);
+		}
+	}
+
+	static void restoreHand(Hand pHand, long pCards)
+	{
+		if(pHand == null)
+		{
+			return;
+		}
+		pHand.clear();
+		for(Card lCard : CardMask.toList(pCards))
+		{
+			pHand.add(lCard);
+		}
+	}
 }
@@ -1,34 +1,61 @@
 package ca.mcgill.cs.comp303.rummy.model;
 
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
-import java.util.List;
 import java.util.Set;
 
 /**
  * Models a hand of 10 cards. The hand is not sorted. Not threadsafe.
  * The hand is a set: adding the same card twice will not add duplicates
  * of the card.
+ * The cards are stored as masks (see CardMask), so that size, contains,
+ * score and isComplete run in constant time without allocating.
  * @inv size() > 0
  * @inv size() <= HAND_SIZE
  */
 public class Hand
 {
 	private final int COMPLETE_HAND_SIZE = 10;
-	private Set<Card> aUnmatched;
-	private Set<ICardSet> aMatchedSets;
-	private SetMatcher setMatcher;
+	private static final int MAX_KNOCK_DEADWOOD = 10;
+	private final MeldSolver aSolver;
+
+	// All the cards, the unmatched ones and the total value of the unmatched ones.
+	private long aCards;
+	private long aUnmatched;
+	private int aScore;
+	// The matched sets, as masks.
+	private long[] aMatchedSets = new long[4];
+	private int aMatchedCount;
+
+	// The optimal matching of aCards, kept up to date by add and remove. When a
+	// change cannot be applied directly, it is marked stale and solved on the next query.
+	private MatchResult aOptimal = MatchResult.EMPTY;
+	private int aDeadwood;
+	private boolean aStale;
+
+	// Views returned by the getters, built on demand. Null when out of date.
+	private Set<Card> aUnmatchedView;
+	private Set<ICardSet> aMatchedView;
 
 	/**
-	 * Creates a new, empty hand.
+	 * Creates a new, empty hand, matched by the default solver.
 	 */
 	public Hand()
 	{
-		aUnmatched = new HashSet<Card>();
-		aMatchedSets = new HashSet<ICardSet>();
-		setMatcher = new SetMatcher();
+		this(new SetMatcher());
 	}
-	
+
+	/**
+	 * Creates a new, empty hand.
+	 * @param pSolver Finds the optimal matchings of the hand.
+	 * @pre pSolver != null
+	 */
+	public Hand( MeldSolver pSolver )
+	{
+		aSolver = pSolver;
+	}
+
 	/**
 	 * Adds pCard to the list of unmatched cards.
 	 * If the card is already in the hand, it is not added.
@@ -49,10 +76,23 @@ public class Hand
 		}
 		else
 		{
-			aUnmatched.add(pCard);
+			long lCard = CardMask.of(pCard);
+			aCards |= lCard;
+			aUnmatched |= lCard;
+			aScore += pCard.value();
+			aUnmatchedView = null;
+			if (aStale || MeldTable.canMeld(aCards, pCard))
+			{
+				aStale = true;
+			}
+			else
+			{
+				// A card that cannot be part of any meld does not change the optimal matching.
+				aDeadwood += pCard.value();
+			}
 		}
 	}
-	
+
 	/**
 	 * Remove pCard from the hand and break any matched set
 	 * that the card is part of. Does nothing if
@@ -62,24 +102,45 @@ public class Hand
 	 */
 	public void remove( Card pCard )
 	{
-		aUnmatched.remove(pCard);
-		
-		for (ICardSet matchedSet : aMatchedSets)
+		long lCard = CardMask.of(pCard);
+		if ((aCards & lCard) == 0)
+		{
+			return;
+		}
+
+		if ((aUnmatched & lCard) == 0)
 		{
-			if (matchedSet.contains(pCard)){
-				// This matched set is now broken; add other cards to the unmatched set.
-				for (Card c : matchedSet)
-				{
-					if (!c.equals(pCard)){
-						aUnmatched.add(c);
-					}
-				}
-				aMatchedSets.remove(matchedSet);
-				break;
+			// This matched set is now broken; add other cards to the unmatched set.
+			int i = 0;
+			while ((aMatchedSets[i] & lCard) == 0)
+			{
+				i++;
 			}
+			long lOthers = aMatchedSets[i] & ~lCard;
+			aUnmatched |= lOthers;
+			aScore += CardMask.value(lOthers);
+			aMatchedSets[i] = aMatchedSets[--aMatchedCount];
+			aMatchedView = null;
+		}
+		else
+		{
+			aUnmatched &= ~lCard;
+			aScore -= pCard.value();
+		}
+		aCards &= ~lCard;
+		aUnmatchedView = null;
+
+		if (aStale || (aOptimal.getMatched() & lCard) != 0)
+		{
+			aStale = true;
+		}
+		else
+		{
+			// Removing an unmatched card leaves the rest of the optimal matching optimal.
+			aDeadwood -= pCard.value();
 		}
 	}
-	
+
 	/**
 	 * @return True if the hand is complete.
 	 */
@@ -87,47 +148,76 @@ public class Hand
 	{
 		return this.size() == COMPLETE_HAND_SIZE;
 	}
-	
+
 	/**
 	 * Removes all the cards from the hand.
 	 */
 	public void clear()
 	{
-		aUnmatched.clear();
-		aMatchedSets.clear();
+		aCards = 0;
+		aUnmatched = 0;
+		aScore = 0;
+		aMatchedCount = 0;
+		aOptimal = MatchResult.EMPTY;
+		aDeadwood = 0;
+		aStale = false;
+		aUnmatchedView = null;
+		aMatchedView = null;
 	}
-	
+
 	/**
-	 * @return A copy of the set of matched sets
+	 * @return An unmodifiable set of the matched sets.
 	 */
 	public Set<ICardSet> getMatchedSets()
 	{
-		return aMatchedSets;
+		if (aMatchedView == null)
+		{
+			Set<ICardSet> lSets = new HashSet<ICardSet>();
+			for (int i = 0; i < aMatchedCount; i++)
+			{
+				lSets.add(new BitCardSet(aMatchedSets[i]));
+			}
+			aMatchedView = Collections.unmodifiableSet(lSets);
+		}
+		return aMatchedView;
 	}
-	
+
 	/**
-	 * @return A copy of the set of unmatched cards.
+	 * @return An unmodifiable set of the unmatched cards.
 	 */
 	public Set<Card> getUnmatchedCards()
+	{
+		if (aUnmatchedView == null)
+		{
+			aUnmatchedView = Collections.unmodifiableSet(new HashSet<Card>(CardMask.toList(aUnmatched)));
+		}
+		return aUnmatchedView;
+	}
+
+	/**
+	 * @return The mask of all the cards in the hand (see CardMask).
+	 */
+	public long getCards()
+	{
+		return aCards;
+	}
+
+	/**
+	 * @return The mask of the unmatched cards in the hand (see CardMask).
+	 */
+	public long getUnmatched()
 	{
 		return aUnmatched;
 	}
-	
+
 	/**
 	 * @return The number of cards in the hand.
 	 */
 	public int size()
 	{
-		int handSize = aUnmatched.size();
-		
-		for (ICardSet matchedSet : aMatchedSets)
-		{
-			handSize += matchedSet.size();
-		}
-		
-		return handSize;
+		return Long.bitCount(aCards);
 	}
-	
+
 	/**
 	 * Determines if pCard is already in the hand, either as an
 	 * unmatched card or as part of a set.
@@ -137,37 +227,17 @@ public class Hand
 	 */
 	public boolean contains( Card pCard )
 	{
-		if (aUnmatched.contains(pCard))
-		{
-			return true;
-		}
-		
-		for (ICardSet matchedSet : aMatchedSets)
-		{
-			if (matchedSet.contains(pCard))
-			{
-				return true;
-			}
-		}
-		
-		return false;
+		return (aCards & CardMask.of(pCard)) != 0;
 	}
-	
+
 	/**
 	 * @return The total point value of the unmatched cards in this hand.
 	 */
 	public int score()
 	{
-		int score = 0;
-		
-		for (Card card : getUnmatchedCards())
-		{
-			score += card.value();
-		}
-		
-		return score;
+		return aScore;
 	}
-	
+
 	/**
 	 * Creates a group of cards of the same rank.
 	 * @param pCards The cards to groups
@@ -177,20 +247,18 @@ public class Hand
 	 */
 	public void createGroup( Set<Card> pCards )
 	{
-		if (!this.cardsAreUnmatched(pCards))
+		long lSet = CardMask.of(pCards);
+		if (!this.cardsAreUnmatched(lSet))
 		{
 			throw new HandException("A card in this set is already matched.");
 		}
-		
-		ICardSet cardSet = new CardSet(pCards);
-		
-		if (!cardSet.isGroup())
+
+		if (!CardMask.isGroup(lSet))
 		{
 			throw new HandException("Cards do not form a valid group.");
 		}
-		
-		this.removeFromUnmatched(pCards);
-		aMatchedSets.add(cardSet);
+
+		this.addMatchedSet(lSet);
 	}
 
 	/**
@@ -202,89 +270,147 @@ public class Hand
 	 */
 	public void createRun( Set<Card> pCards )
 	{
-		if (!this.cardsAreUnmatched(pCards))
+		long lSet = CardMask.of(pCards);
+		if (!this.cardsAreUnmatched(lSet))
 		{
 			throw new HandException("A card in this set is already matched.");
 		}
-		
-		ICardSet cardSet = new CardSet(pCards);
-		
-		if (!cardSet.isRun())
+
+		if (!CardMask.isRun(lSet))
 		{
 			throw new HandException("Cards do not form a valid run.");
 		}
-		
-		this.removeFromUnmatched(pCards);
-		aMatchedSets.add(cardSet);
+
+		this.addMatchedSet(lSet);
 	}
-	
+
 	/**
 	 * Calculates the matching of cards into groups and runs that
 	 * results in the lowest amount of points for unmatched cards.
 	 */
 	public void autoMatch()
 	{
-		List<Card> allCards = this.getAllCards();
-		this.clear();
+		this.updateOptimal();
+		aMatchedCount = 0;
+		for (int i = 0; i < aOptimal.getMeldCount(); i++)
+		{
+			addMatchedSet(aOptimal.getMeld(i));
+		}
+		aUnmatched = aCards & ~aOptimal.getMatched();
+		aScore = aDeadwood;
+		aUnmatchedView = null;
+		aMatchedView = null;
+	}
 
-		Set<ICardSet> solution = setMatcher.matchSets(allCards);
-		aMatchedSets = solution;
-		
-		this.updateUnmatchedCards(allCards);
+	/**
+	 * Constant time after adding a card that cannot meld or removing an unmatched
+	 * card. After a change that affects the melds, the first query solves the hand
+	 * again, so the cost is amortized over the queries between changes.
+	 * @return The total point value of the unmatched cards in the optimal
+	 * matching of the hand, whether or not the hand is currently matched that way.
+	 */
+	public int deadwood()
+	{
+		this.updateOptimal();
+		return aDeadwood;
 	}
 
-	private void updateUnmatchedCards(List<Card> allCards)
+	/**
+	 * Same cost as deadwood().
+	 * @return True if the deadwood of the optimal matching is low enough to knock.
+	 */
+	public boolean canKnock()
 	{
-		for (Card card : allCards)
-		{
-			boolean matched = false;
-			for (ICardSet matchedSet : aMatchedSets)
-			{
-				if (matchedSet.contains(card)) matched = true;
-			}
-			
-			if (!matched) aUnmatched.add(card);
-		}
+		return this.deadwood() <= MAX_KNOCK_DEADWOOD;
 	}
-	
-	private void removeFromUnmatched(Set<Card> pCards)
+
+	/**
+	 * @param pCard A card.
+	 * @return The value that deadwood() would have after adding pCard to the hand.
+	 * @pre pCard != null
+	 */
+	public int deadwoodIfAdded( Card pCard )
 	{
-		for (Card c : pCards)
+		long lCards = aCards | CardMask.of(pCard);
+		this.updateOptimal();
+		if (lCards == aCards)
+		{
+			return aDeadwood;
+		}
+		if (!MeldTable.canMeld(lCards, pCard))
 		{
-			aUnmatched.remove(c);
+			return aDeadwood + pCard.value();
 		}
+		return aSolver.match(lCards).getDeadwood();
 	}
-	
-	private boolean cardsAreUnmatched(Set<Card> pCards)
+
+	/**
+	 * @param pCard A card.
+	 * @return The value that deadwood() would have after removing pCard from the hand.
+	 * @pre pCard != null
+	 */
+	public int deadwoodIfRemoved( Card pCard )
 	{
-		for (Card c : pCards)
+		long lCard = CardMask.of(pCard);
+		this.updateOptimal();
+		if ((aCards & lCard) == 0)
 		{
-			if (!aUnmatched.contains(c))
-			{
-				return false;
-			}
+			return aDeadwood;
 		}
-		
-		return true;
+		if ((aOptimal.getMatched() & lCard) == 0)
+		{
+			return aDeadwood - pCard.value();
+		}
+		return aSolver.match(aCards & ~lCard).getDeadwood();
+	}
+
+	/**
+	 * Calculates, in one pass, the deadwood left by discarding each card of the
+	 * hand or a card just drawn, which can make an 11th card.
+	 * @param pDrawn The card drawn, not yet added to the hand.
+	 * @return The deadwood after each discard, and the best discard.
+	 * @pre pDrawn != null && !contains(pDrawn)
+	 */
+	public DiscardAnalysis analyzeDiscards( Card pDrawn )
+	{
+		assert pDrawn != null && !contains(pDrawn);
+		return aSolver.analyzeDiscards(aCards | CardMask.of(pDrawn));
 	}
 	
-	private List<Card> getAllCards()
+	/**
+	 * @return The optimal matching of the cards in the hand.
+	 */
+	public MatchResult getOptimalMatching()
+	{
+		this.updateOptimal();
+		return aOptimal.withHand(aCards);
+	}
+
+	private void updateOptimal()
 	{
-		ArrayList<Card> allCards = new ArrayList<>();
-		
-		for (Card c : aUnmatched)
+		if (aStale)
 		{
-			allCards.add(c);
+			aOptimal = aSolver.match(aCards);
+			aDeadwood = aOptimal.getDeadwood();
+			aStale = false;
 		}
-			
-		for (ICardSet cS : aMatchedSets)
+	}
+
+	private void addMatchedSet(long pSet)
+	{
+		if (aMatchedCount == aMatchedSets.length)
 		{
-			for (Card c : cS)
-			{
-				allCards.add(c);
-			}
+			aMatchedSets = Arrays.copyOf(aMatchedSets, 2 * aMatchedCount);
 		}
+		aMatchedSets[aMatchedCount++] = pSet;
+		aUnmatched &= ~pSet;
+		aScore -= CardMask.value(pSet);
+		aUnmatchedView = null;
+		aMatchedView = null;
+	}
 
-		return allCards;
+	private boolean cardsAreUnmatched(long pCards)
+	{
+		return (aUnmatched & pCards) == pCards;
 	}
 }
\ No newline at end of file
@@ -0,0 +1,33 @@
+package ca.mcgill.cs.comp303.rummy.model;
+
+/**
+ * Indicates that an event could not be written to a move journal.
+ */
+@SuppressWarnings("serial")
+public class JournalException extends RuntimeException 
+{
+	/**
+	 * @param pMessage The exception message.
+	 * @param pException The wrapped exception.
+	 */
+	public JournalException( String pMessage, Throwable pException ) 
+	{
+		super( pMessage, pException );
+	}
+
+	/**
+	 * @param pMessage The exception message.
+	 */
+	public JournalException( String pMessage ) 
+	{
+		super( pMessage );
+	}
+
+	/**
+	 * @param pException The wrapped exception
+	 */
+	public JournalException( Throwable pException )
+	{
+		super( pException );
+	}
+}
@@ -0,0 +1,247 @@
+package ca.mcgill.cs.comp303.rummy.model;
+
+/**
+ * The outcome of a knock: the melds of the knocker, the cards the defender
+ * lays off on them, the optimal melds of the rest of the defender's hand,
+ * and the points won. Lay-offs are solved together with the defender's own
+ * melds: every contiguous extension of a knocker's run and the missing card
+ * of a knocker's group of 3 are added as candidate pieces to a MeldOptimizer,
+ * so the defender's best combination is found in a single search on card
+ * masks (see CardMask). Immutable.
+ */
+public final class KnockResolution
+{
+	/**
+	 * How a game ended by a knock.
+	 */
+	public enum Outcome
+	{
+		/** The knocker had less deadwood than the defender. */
+		KNOCK,
+		/** The defender had as much or less deadwood than the knocker. */
+		UNDERCUT,
+		/** The knocker had no deadwood; the defender cannot lay off. */
+		GIN,
+		/** All 11 cards of the knocker, with the discard, were melded. */
+		BIG_GIN
+	}
+
+	/**
+	 * The bonus for a gin.
+	 */
+	public static final int GIN_BONUS = 25;
+
+	/**
+	 * The bonus for a big gin.
+	 */
+	public static final int BIG_GIN_BONUS = 31;
+
+	/**
+	 * The bonus of the defender for an undercut.
+	 */
+	public static final int UNDERCUT_BONUS = 25;
+
+	private final Outcome aOutcome;
+	private final MatchResult aKnocker;
+	private final MatchResult aDefender;
+	private final long aLayOffs;
+	private final int aDefenderDeadwood;
+	private final int aPoints;
+
+	private KnockResolution(Outcome pOutcome, MatchResult pKnocker, MatchResult pDefender, long pLayOffs,
+			int pDefenderDeadwood, int pPoints)
+	{
+		aOutcome = pOutcome;
+		aKnocker = pKnocker;
+		aDefender = pDefender;
+		aLayOffs = pLayOffs;
+		aDefenderDeadwood = pDefenderDeadwood;
+		aPoints = pPoints;
+	}
+
+	/**
+	 * Resolves a knock.
+	 * @param pKnocker The hand of the knocker, after the discard.
+	 * @param pDiscard The card discarded by the knocker, or null.
+	 * @param pDefender The hand of the defender.
+	 * @param pMatcher Solves the optimal matchings of the hands.
+	 * @return The resolution of the knock.
+	 * @pre pMatcher.match(pKnocker).getDeadwood() <= 10
+	 */
+	public static KnockResolution resolve(long pKnocker, Card pDiscard, long pDefender, MeldSolver pMatcher)
+	{
+		if( !EngineMetrics.enabled() )
+		{
+			return solve(pKnocker, pDiscard, pDefender, pMatcher);
+		}
+		long lStart = System.nanoTime();
+		KnockResolution lResult = solve(pKnocker, pDiscard, pDefender, pMatcher);
+		EngineMetrics.KNOCK_NANOS.record(System.nanoTime() - lStart);
+		return lResult;
+	}
+
+	private static KnockResolution solve(long pKnocker, Card pDiscard, long pDefender, MeldSolver pMatcher)
+	{
+		MatchResult lKnocker = pMatcher.match(pKnocker);
+		if( lKnocker.getDeadwood() == 0 )
+		{
+			MatchResult lDefender = pMatcher.match(pDefender);
+			boolean lBigGin = pDiscard != null && pMatcher.match(pKnocker | CardMask.of(pDiscard)).getDeadwood() == 0;
+			return new KnockResolution(lBigGin ? Outcome.BIG_GIN : Outcome.GIN, lKnocker, lDefender, 0,
+					lDefender.getDeadwood(), (lBigGin ? BIG_GIN_BONUS : GIN_BONUS) + lDefender.getDeadwood());
+		}
+
+		long[] lMelds = MeldTable.candidates(pDefender);
+		long[] lLayOffs = layOffs(lKnocker, pDefender);
+		long[] lCandidates = new long[lMelds.length + lLayOffs.length];
+		System.arraycopy(lMelds, 0, lCandidates, 0, lMelds.length);
+		System.arraycopy(lLayOffs, 0, lCandidates, lMelds.length, lLayOffs.length);
+		long[] lPieces = new MeldOptimizer(lCandidates).solve(pDefender);
+
+		// Split the pieces between the defender's own melds and the lay-offs.
+		int lOwn = 0;
+		long lLaidOff = 0;
+		for( long lPiece : lPieces )
+		{
+			if( MeldTable.isMeld(lPiece) )
+			{
+				lPieces[lOwn++] = lPiece;
+			}
+			else
+			{
+				lLaidOff |= lPiece;
+			}
+		}
+		long[] lOwnMelds = new long[lOwn];
+		System.arraycopy(lPieces, 0, lOwnMelds, 0, lOwn);
+		MatchResult lDefender = new MatchResult(pDefender, lOwnMelds);
+		int lDeadwood = lDefender.getDeadwood() - CardMask.value(lLaidOff);
+
+		if( lKnocker.getDeadwood() < lDeadwood )
+		{
+			return new KnockResolution(Outcome.KNOCK, lKnocker, lDefender, lLaidOff, lDeadwood,
+					lDeadwood - lKnocker.getDeadwood());
+		}
+		return new KnockResolution(Outcome.UNDERCUT, lKnocker, lDefender, lLaidOff, lDeadwood,
+				UNDERCUT_BONUS + lKnocker.getDeadwood() - lDeadwood);
+	}
+
+	/*
+	 * The pieces of pDefender that can be laid off on the melds of pKnocker:
+	 * the missing card of each group of 3, and each run of cards that extends a
+	 * run of the knocker, below or above it. A piece of 3 cards or more that
+	 * extends a run is also a meld of the defender; it is kept as a meld.
+	 */
+	private static long[] layOffs(MatchResult pKnocker, long pDefender)
+	{
+		long[] lPieces = new long[2 * CardMask.SUIT_WIDTH * pKnocker.getMeldCount()];
+		int lCount = 0;
+		for( int i = 0; i < pKnocker.getMeldCount(); i++ )
+		{
+			long lMeld = pKnocker.getMeld(i);
+			if( CardMask.isGroup(lMeld) )
+			{
+				int lRank = Long.numberOfTrailingZeros(lMeld) % CardMask.SUIT_WIDTH;
+				long lMissing = CardMask.rankMask(lRank) & ~lMeld & pDefender;
+				if( lMissing != 0 )
+				{
+					lPieces[lCount++] = lMissing;
+				}
+				continue;
+			}
+			long lSuit = CardMask.suitMask(Long.numberOfTrailingZeros(lMeld) / CardMask.SUIT_WIDTH);
+			long lPiece = 0;
+			for( long lCard = Long.lowestOneBit(lMeld) >>> 1; (lCard & lSuit & pDefender) != 0; lCard >>>= 1 )
+			{
+				lPiece |= lCard;
+				if( Long.bitCount(lPiece) < 3 )
+				{
+					lPieces[lCount++] = lPiece;
+				}
+			}
+			lPiece = 0;
+			for( long lCard = Long.highestOneBit(lMeld) << 1; (lCard & lSuit & pDefender) != 0; lCard <<= 1 )
+			{
+				lPiece |= lCard;
+				if( Long.bitCount(lPiece) < 3 )
+				{
+					lPieces[lCount++] = lPiece;
+				}
+			}
+		}
+		long[] lResult = new long[lCount];
+		System.arraycopy(lPieces, 0, lResult, 0, lCount);
+		return lResult;
+	}
+
+	/**
+	 * @return How the game ended.
+	 */
+	public Outcome getOutcome()
+	{
+		return aOutcome;
+	}
+
+	/**
+	 * @return True if the knocker wins the points, false if the defender does.
+	 */
+	public boolean knockerWins()
+	{
+		return aOutcome != Outcome.UNDERCUT;
+	}
+
+	/**
+	 * @return The optimal matching of the knocker's hand.
+	 */
+	public MatchResult getKnockerMatching()
+	{
+		return aKnocker;
+	}
+
+	/**
+	 * @return The melds of the defender's own cards, not counting the lay-offs.
+	 */
+	public MatchResult getDefenderMatching()
+	{
+		return aDefender;
+	}
+
+	/**
+	 * @return The cards that the defender lays off on the knocker's melds.
+	 */
+	public long getLayOffs()
+	{
+		return aLayOffs;
+	}
+
+	/**
+	 * @return The deadwood of the knocker.
+	 */
+	public int getKnockerDeadwood()
+	{
+		return aKnocker.getDeadwood();
+	}
+
+	/**
+	 * @return The deadwood of the defender, after the lay-offs.
+	 */
+	public int getDefenderDeadwood()
+	{
+		return aDefenderDeadwood;
+	}
+
+	/**
+	 * @return The points won, by the knocker or the defender (see knockerWins()).
+	 */
+	public int getPoints()
+	{
+		return aPoints;
+	}
+
+	@Override
+	public String toString()
+	{
+		return "KnockResolution [" + aOutcome + ", knocker=" + getKnockerDeadwood() + ", defender="
+				+ aDefenderDeadwood + ", layoffs=" + CardMask.toList(aLayOffs) + ", points=" + aPoints + "]";
+	}
+}
@@ -0,0 +1,191 @@
+package ca.mcgill.cs.comp303.rummy.model;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded cache of optimal matchings, keyed by the mask of the hand.
+ * Threadsafe: the entries are spread over independently locked segments,
+ * so that many engines can share one cache. A cache smaller than the number
+ * of segments has a single segment, so that it can hold all its entries. A shared instance is used
+ * by default by SetMatcher, which stores the matchings of canonical hands
+ * (see SuitSymmetry) so that one entry serves all the relabelings of a hand.
+ */
+public final class MatchCache
+{
+	/**
+	 * Which entry to drop when a segment of the cache is full.
+	 */
+	public enum EvictionPolicy
+	{
+		/** Drop the least recently read or written entry. */
+		LRU,
+		/** Drop the oldest written entry. */
+		FIFO
+	}
+
+	/**
+	 * The capacity of the shared instance.
+	 */
+	public static final int DEFAULT_CAPACITY = 1 << 16;
+
+	private static final int SEGMENTS = 16;
+	private static final MatchCache INSTANCE = new MatchCache(DEFAULT_CAPACITY, EvictionPolicy.LRU);
+
+	private final Segment[] aSegments;
+	private final EvictionPolicy aPolicy;
+	private final int aCapacity;
+	private final AtomicLong aHits = new AtomicLong();
+	private final AtomicLong aMisses = new AtomicLong();
+
+	/**
+	 * Creates a new, empty cache.
+	 * @param pCapacity The maximum number of entries.
+	 * @param pPolicy The eviction policy.
+	 * @pre pCapacity > 0 && pPolicy != null
+	 */
+	public MatchCache(int pCapacity, EvictionPolicy pPolicy)
+	{
+		assert pCapacity > 0 && pPolicy != null;
+		aCapacity = pCapacity;
+		aPolicy = pPolicy;
+		int lSegments = pCapacity < SEGMENTS ? 1 : SEGMENTS;
+		aSegments = new Segment[lSegments];
+		for( int i = 0; i < lSegments; i++ )
+		{
+			// Spread the capacity so that the segments add up to pCapacity.
+			aSegments[i] = new Segment((pCapacity + lSegments - 1 - i) / lSegments, pPolicy);
+		}
+	}
+
+	/**
+	 * @return The cache shared by default by all the set matchers.
+	 */
+	public static MatchCache getInstance()
+	{
+		return INSTANCE;
+	}
+
+	/**
+	 * @param pHand The mask of a hand.
+	 * @return The cached matching of pHand, or null if there is none.
+	 */
+	public MatchResult get(long pHand)
+	{
+		Segment lSegment = segment(pHand);
+		MatchResult lResult;
+		synchronized( lSegment )
+		{
+			lResult = lSegment.get(pHand);
+		}
+		if( lResult == null )
+		{
+			aMisses.incrementAndGet();
+		}
+		else
+		{
+			aHits.incrementAndGet();
+		}
+		return lResult;
+	}
+
+	/**
+	 * Adds a matching to the cache, possibly evicting another one.
+	 * @param pResult The matching to add.
+	 * @pre pResult != null
+	 */
+	public void put(MatchResult pResult)
+	{
+		Segment lSegment = segment(pResult.getHand());
+		synchronized( lSegment )
+		{
+			lSegment.put(pResult.getHand(), pResult);
+		}
+	}
+
+	/**
+	 * Removes all the entries. The counters are not reset.
+	 */
+	public void clear()
+	{
+		for( Segment lSegment : aSegments )
+		{
+			synchronized( lSegment )
+			{
+				lSegment.clear();
+			}
+		}
+	}
+
+	/**
+	 * @return The number of entries in the cache.
+	 */
+	public int size()
+	{
+		int lSize = 0;
+		for( Segment lSegment : aSegments )
+		{
+			synchronized( lSegment )
+			{
+				lSize += lSegment.size();
+			}
+		}
+		return lSize;
+	}
+
+	/**
+	 * @return The maximum number of entries in the cache.
+	 */
+	public int getCapacity()
+	{
+		return aCapacity;
+	}
+
+	/**
+	 * @return The eviction policy of the cache.
+	 */
+	public EvictionPolicy getPolicy()
+	{
+		return aPolicy;
+	}
+
+	/**
+	 * @return The number of calls to get that found an entry.
+	 */
+	public long getHits()
+	{
+		return aHits.get();
+	}
+
+	/**
+	 * @return The number of calls to get that did not find an entry.
+	 */
+	public long getMisses()
+	{
+		return aMisses.get();
+	}
+
+	private Segment segment(long pHand)
+	{
+		return aSegments[(int) ((pHand * 0x9E3779B97F4A7C15L) >>> 60) & (aSegments.length - 1)];
+	}
+
+	@SuppressWarnings("serial")
+	private static final class Segment extends LinkedHashMap<Long, MatchResult>
+	{
+		private final int aMaxSize;
+
+		Segment(int pMaxSize, EvictionPolicy pPolicy)
+		{
+			super(16, 0.75f, pPolicy == EvictionPolicy.LRU);
+			aMaxSize = pMaxSize;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Long, MatchResult> pEldest)
+		{
+			return size() > aMaxSize;
+		}
+	}
+}
@@ -0,0 +1,129 @@
+package ca.mcgill.cs.comp303.rummy.model;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * An immutable optimal matching of a hand: the melds chosen and the
+ * resulting deadwood, with all card sets stored as masks (see CardMask).
+ */
+public final class MatchResult
+{
+	/**
+	 * The matching of an empty hand.
+	 */
+	static final MatchResult EMPTY = new MatchResult(0, new long[0]);
+
+	private final long aHand;
+	private final long[] aMelds;
+	private final long aMatched;
+	private final int aDeadwood;
+
+	/**
+	 * @param pHand The cards of the hand.
+	 * @param pMelds Disjoint melds included in pHand. Not copied.
+	 */
+	MatchResult(long pHand, long[] pMelds)
+	{
+		long lMatched = 0;
+		for( long lMeld : pMelds )
+		{
+			lMatched |= lMeld;
+		}
+		aHand = pHand;
+		aMelds = pMelds;
+		aMatched = lMatched;
+		aDeadwood = CardMask.value(pHand & ~lMatched);
+	}
+
+	/**
+	 * @return The cards of the hand.
+	 */
+	public long getHand()
+	{
+		return aHand;
+	}
+
+	/**
+	 * @return The number of melds in the matching.
+	 */
+	public int getMeldCount()
+	{
+		return aMelds.length;
+	}
+
+	/**
+	 * @param pIndex The index of a meld, between 0 and getMeldCount() - 1.
+	 * @return The mask of the meld at pIndex.
+	 */
+	public long getMeld(int pIndex)
+	{
+		return aMelds[pIndex];
+	}
+
+	/**
+	 * @return The cards that are part of a meld.
+	 */
+	public long getMatched()
+	{
+		return aMatched;
+	}
+
+	/**
+	 * @return The cards that are not part of any meld.
+	 */
+	public long getUnmatched()
+	{
+		return aHand & ~aMatched;
+	}
+
+	/**
+	 * @return The total point value of the unmatched cards.
+	 */
+	public int getDeadwood()
+	{
+		return aDeadwood;
+	}
+
+	/**
+	 * @param pHand The cards of another hand, that includes all the melds of this matching.
+	 * @return A matching of pHand with the same melds.
+	 */
+	MatchResult withHand(long pHand)
+	{
+		return pHand == aHand ? this : new MatchResult(pHand, aMelds);
+	}
+
+	/**
+	 * @param pPermutation A permutation of the suits (see SuitSymmetry).
+	 * @return The matching of the hand with its suits permuted, with the same melds permuted.
+	 */
+	MatchResult permute(int pPermutation)
+	{
+		long[] lMelds = new long[aMelds.length];
+		for( int i = 0; i < aMelds.length; i++ )
+		{
+			lMelds[i] = SuitSymmetry.permute(aMelds[i], pPermutation);
+		}
+		return new MatchResult(SuitSymmetry.permute(aHand, pPermutation), lMelds);
+	}
+
+	/**
+	 * @return A new set with one card set per meld.
+	 */
+	public Set<ICardSet> getMatchedSets()
+	{
+		Set<ICardSet> lSets = new HashSet<ICardSet>();
+		for( long lMeld : aMelds )
+		{
+			lSets.add(new BitCardSet(lMeld));
+		}
+		return lSets;
+	}
+
+	@Override
+	public String toString()
+	{
+		return "MatchResult [melds=" + getMatchedSets() + ", deadwood=" + aDeadwood + "]";
+	}
+}
@@ -0,0 +1,206 @@
+package ca.mcgill.cs.comp303.rummy.model;
+
+import java.util.Arrays;
+
+/**
+ * Finds the set of disjoint melds of maximum total value among a list
+ * of candidate melds, all represented as card masks (see CardMask).
+ * The search always branches on the lowest remaining card: either it is
+ * left unmatched, or it is the lowest card of one of the candidates.
+ * The best value is memoized for each mask of remaining cards, and a
+ * branch stops as soon as it reaches the upper bound of matching every
+ * remaining card. Not threadsafe.
+ */
+final class MeldOptimizer
+{
+	private static final int INITIAL_CAPACITY = 64;
+	private static final long[] NO_MELDS = new long[0];
+
+	private final long[] aCandidates;
+	// Candidates indexed by the id of their lowest card.
+	private final long[][] aByLowest = new long[Card.NUMBER_OF_CARDS][];
+	private final int[][] aValuesByLowest = new int[Card.NUMBER_OF_CARDS][];
+
+	// Open-addressing memo from a mask of remaining cards to its best value.
+	private long[] aKeys = new long[INITIAL_CAPACITY];
+	private int[] aBest = new int[INITIAL_CAPACITY];
+	private int aSize;
+	// The number of masks searched, memo misses.
+	private int aNodes;
+
+	/**
+	 * @param pCandidates The masks of all the melds that may be used.
+	 */
+	MeldOptimizer(long[] pCandidates)
+	{
+		aCandidates = pCandidates.clone();
+		int[] lCounts = new int[Card.NUMBER_OF_CARDS];
+		for( long lMeld : aCandidates )
+		{
+			lCounts[Long.numberOfTrailingZeros(lMeld)]++;
+		}
+		for( int i = 0; i < Card.NUMBER_OF_CARDS; i++ )
+		{
+			aByLowest[i] = new long[lCounts[i]];
+			aValuesByLowest[i] = new int[lCounts[i]];
+			lCounts[i] = 0;
+		}
+		for( long lMeld : aCandidates )
+		{
+			int lLowest = Long.numberOfTrailingZeros(lMeld);
+			aByLowest[lLowest][lCounts[lLowest]] = lMeld;
+			aValuesByLowest[lLowest][lCounts[lLowest]] = CardMask.value(lMeld);
+			lCounts[lLowest]++;
+		}
+	}
+
+	/**
+	 * @param pCards A set of cards.
+	 * @return The highest total value of disjoint candidates included in pCards.
+	 */
+	int bestValue(long pCards)
+	{
+		long lCards = coverable(pCards);
+		if( lCards == 0 )
+		{
+			return 0;
+		}
+		int lSlot = slot(lCards);
+		if( aKeys[lSlot] == lCards )
+		{
+			return aBest[lSlot];
+		}
+
+		aNodes++;
+		int lBound = CardMask.value(lCards);
+		int lLowest = Long.numberOfTrailingZeros(lCards);
+		long[] lMelds = aByLowest[lLowest];
+		int[] lValues = aValuesByLowest[lLowest];
+		int lBest = 0;
+		for( int i = 0; i < lMelds.length && lBest < lBound; i++ )
+		{
+			if( (lMelds[i] & lCards) == lMelds[i] )
+			{
+				lBest = Math.max(lBest, lValues[i] + bestValue(lCards & ~lMelds[i]));
+			}
+		}
+		long lWithoutLowest = lCards & (lCards - 1);
+		if( lBest < lBound - Card.byId(lLowest).value() )
+		{
+			lBest = Math.max(lBest, bestValue(lWithoutLowest));
+		}
+
+		put(lCards, lBest);
+		return lBest;
+	}
+
+	/**
+	 * @param pCards A set of cards.
+	 * @return The masks of disjoint candidates included in pCards with the
+	 * highest total value.
+	 */
+	long[] solve(long pCards)
+	{
+		long[] lSolution = NO_MELDS;
+		long lCards = coverable(pCards);
+		while( lCards != 0 )
+		{
+			int lTarget = bestValue(lCards);
+			int lLowest = Long.numberOfTrailingZeros(lCards);
+			long[] lMelds = aByLowest[lLowest];
+			long lChosen = 0;
+			for( int i = 0; i < lMelds.length && lChosen == 0; i++ )
+			{
+				if( (lMelds[i] & lCards) == lMelds[i] &&
+						aValuesByLowest[lLowest][i] + bestValue(lCards & ~lMelds[i]) == lTarget )
+				{
+					lChosen = lMelds[i];
+				}
+			}
+			if( lChosen == 0 )
+			{
+				lCards = coverable(lCards & (lCards - 1));
+			}
+			else
+			{
+				lSolution = Arrays.copyOf(lSolution, lSolution.length + 1);
+				lSolution[lSolution.length - 1] = lChosen;
+				lCards = coverable(lCards & ~lChosen);
+			}
+		}
+		return lSolution;
+	}
+
+	/**
+	 * @return The number of masks of remaining cards searched, not found in the memo.
+	 */
+	int getNodes()
+	{
+		return aNodes;
+	}
+
+	/**
+	 * Clears the memo. Only needed to bound memory use, since the memoized
+	 * values do not depend on the cards being solved.
+	 */
+	void reset()
+	{
+		Arrays.fill(aKeys, 0);
+		aSize = 0;
+	}
+
+	/*
+	 * Restricts pCards to the cards that are part of at least one candidate
+	 * included in pCards: the others can only be unmatched.
+	 */
+	private long coverable(long pCards)
+	{
+		long lCoverable = 0;
+		for( long lMeld : aCandidates )
+		{
+			if( (lMeld & pCards) == lMeld )
+			{
+				lCoverable |= lMeld;
+			}
+		}
+		return lCoverable;
+	}
+
+	private int slot(long pKey)
+	{
+		int lMask = aKeys.length - 1;
+		int lSlot = (int) ((pKey * 0x9E3779B97F4A7C15L) >>> 32) & lMask;
+		while( aKeys[lSlot] != 0 && aKeys[lSlot] != pKey )
+		{
+			lSlot = (lSlot + 1) & lMask;
+		}
+		return lSlot;
+	}
+
+	private void put(long pKey, int pValue)
+	{
+		if( 2 * (aSize + 1) > aKeys.length )
+		{
+			long[] lKeys = aKeys;
+			int[] lBest = aBest;
+			aKeys = new long[lKeys.length * 2];
+			aBest = new int[lKeys.length * 2];
+			for( int i = 0; i < lKeys.length; i++ )
+			{
+				if( lKeys[i] != 0 )
+				{
+					int lSlot = slot(lKeys[i]);
+					aKeys[lSlot] = lKeys[i];
+					aBest[lSlot] = lBest[i];
+				}
+			}
+		}
+		int lSlot = slot(pKey);
+		if( aKeys[lSlot] == 0 )
+		{
+			aSize++;
+		}
+		aKeys[lSlot] = pKey;
+		aBest[lSlot] = pValue;
+	}
+}
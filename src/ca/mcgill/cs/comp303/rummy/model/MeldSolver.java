@@ -0,0 +1,24 @@
+package ca.mcgill.cs.comp303.rummy.model;
+
+/**
+ * Finds the optimal matchings of hands into melds, with all card sets
+ * represented as masks (see CardMask). SetMatcher is the reference
+ * implementation; RankSweepSolver solves hands with a dynamic program.
+ * Implementations may return different melds for the same hand, but
+ * always the same deadwood. Implementations must be threadsafe.
+ */
+public interface MeldSolver
+{
+	/**
+	 * @param pHand The mask of the cards to match.
+	 * @return A matching of pHand with the lowest deadwood.
+	 */
+	MatchResult match(long pHand);
+
+	/**
+	 * @param pHand The mask of the cards of a hand.
+	 * @return The deadwood after each discard, and the best discard.
+	 * @pre pHand != 0
+	 */
+	DiscardAnalysis analyzeDiscards(long pHand);
+}
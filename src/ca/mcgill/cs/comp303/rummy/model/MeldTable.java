@@ -0,0 +1,133 @@
+package ca.mcgill.cs.comp303.rummy.model;
+
+/**
+ * The table of every meld that can be formed with a 52-card deck, as
+ * card masks (see CardMask): the 3- and 4-card groups of each rank, then
+ * the runs of 3 to 13 cards of each suit. The table is built once and
+ * is the single source of truth for what a valid meld is.
+ */
+public final class MeldTable
+{
+	private static final int MIN_MELD_SIZE = 3;
+	private static final long[] MELDS;
+	// For each card id, the melds that contain the card.
+	private static final long[][] BY_CARD = new long[Card.NUMBER_OF_CARDS][];
+
+	static
+	{
+		// 5 groups per rank, and 11 + 10 + ... + 1 runs per suit.
+		long[] lMelds = new long[5 * CardMask.SUIT_WIDTH + 66 * Card.Suit.values().length];
+		int lSize = 0;
+		for( int lRank = 0; lRank < CardMask.SUIT_WIDTH; lRank++ )
+		{
+			long lGroup = CardMask.rankMask(lRank);
+			lMelds[lSize++] = lGroup;
+			for( long lBits = lGroup; lBits != 0; lBits &= lBits - 1 )
+			{
+				lMelds[lSize++] = lGroup & ~Long.lowestOneBit(lBits);
+			}
+		}
+		for( int lSuit = 0; lSuit < Card.Suit.values().length; lSuit++ )
+		{
+			int lOffset = lSuit * CardMask.SUIT_WIDTH;
+			for( int lLength = MIN_MELD_SIZE; lLength <= CardMask.SUIT_WIDTH; lLength++ )
+			{
+				for( int lStart = 0; lStart + lLength <= CardMask.SUIT_WIDTH; lStart++ )
+				{
+					lMelds[lSize++] = ((1L << lLength) - 1) << (lOffset + lStart);
+				}
+			}
+		}
+		MELDS = lMelds;
+
+		for( int lId = 0; lId < Card.NUMBER_OF_CARDS; lId++ )
+		{
+			int lCount = 0;
+			for( long lMeld : MELDS )
+			{
+				lCount += (int) ((lMeld >>> lId) & 1);
+			}
+			BY_CARD[lId] = new long[lCount];
+			lCount = 0;
+			for( long lMeld : MELDS )
+			{
+				if( ((lMeld >>> lId) & 1) != 0 )
+				{
+					BY_CARD[lId][lCount++] = lMeld;
+				}
+			}
+		}
+	}
+
+	private MeldTable()
+	{}
+
+	/**
+	 * @return The number of melds in the table.
+	 */
+	public static int size()
+	{
+		return MELDS.length;
+	}
+
+	/**
+	 * @param pIndex The index of a meld, between 0 and size() - 1.
+	 * @return The mask of the meld at pIndex.
+	 */
+	public static long get(int pIndex)
+	{
+		return MELDS[pIndex];
+	}
+
+	/**
+	 * @param pMask A set of cards.
+	 * @return true if the cards in pMask form a valid group or run.
+	 */
+	public static boolean isMeld(long pMask)
+	{
+		return CardMask.isGroup(pMask) || CardMask.isRun(pMask);
+	}
+
+	/**
+	 * @param pHand A set of cards.
+	 * @param pCard A card of pHand.
+	 * @return true if pCard is part of at least one meld made of cards in pHand.
+	 */
+	public static boolean canMeld(long pHand, Card pCard)
+	{
+		for( long lMeld : BY_CARD[pCard.getId()] )
+		{
+			if( (lMeld & pHand) == lMeld )
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @param pHand A set of cards.
+	 * @return The masks of all the melds that can be formed with the cards in pHand.
+	 */
+	public static long[] candidates(long pHand)
+	{
+		int lCount = 0;
+		for( long lMeld : MELDS )
+		{
+			if( (lMeld & pHand) == lMeld )
+			{
+				lCount++;
+			}
+		}
+		long[] lCandidates = new long[lCount];
+		lCount = 0;
+		for( long lMeld : MELDS )
+		{
+			if( (lMeld & pHand) == lMeld )
+			{
+				lCandidates[lCount++] = lMeld;
+			}
+		}
+		return lCandidates;
+	}
+}
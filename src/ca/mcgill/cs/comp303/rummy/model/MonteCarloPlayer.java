@@ -0,0 +1,411 @@
+package ca.mcgill.cs.comp303.rummy.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An automated player that chooses its moves by Monte Carlo playouts. For
+ * each candidate move (taking the discarded card or drawing from the deck,
+ * then the best few discards), it deals the cards it has not seen at random
+ * between the opponent and the deck, and plays the game forward with a
+ * greedy policy for both players. The opponent keeps the cards it is known
+ * to have taken from the discard pile (see CardTracker), and discards that
+ * complete one of its known melds are avoided. The playouts run in parallel until the
+ * time budget of the turn or the playout budget of the decision is spent, and
+ * the move that wins the most playouts is played. Hands are evaluated on card
+ * masks with a SetMatcher, so that playouts share the cache of optimal matchings.
+ * Knocks as soon as the deadwood of its hand allows it.
+ */
+public class MonteCarloPlayer implements Player
+{
+	/**
+	 * The default maximum time spent on a turn, in milliseconds.
+	 */
+	public static final long DEFAULT_MILLIS = 50;
+
+	/**
+	 * The default maximum number of playouts for a decision.
+	 */
+	public static final int DEFAULT_PLAYOUTS = 2000;
+
+	private static final int MAX_KNOCK_DEADWOOD = 10;
+	// Number of discards compared by playouts, the best ones by immediate deadwood.
+	private static final int DISCARD_CANDIDATES = 3;
+	// Number of turns of each player in a playout.
+	private static final int HORIZON = 8;
+	// The engine ends a game in a draw when this many cards are left in the deck.
+	private static final int MIN_DECK = 2;
+	private static final int HAND_SIZE = 10;
+	// Deadwood that cannot be reached, to scale the outcome of unfinished playouts.
+	private static final double MAX_DEADWOOD = 200;
+
+	private static final ExecutorService SHARED_POOL = Executors.newFixedThreadPool(
+			Runtime.getRuntime().availableProcessors(), new ThreadFactory()
+			{
+				private final AtomicInteger aCount = new AtomicInteger();
+
+				@Override
+				public Thread newThread(Runnable pRunnable)
+				{
+					Thread lThread = new Thread(pRunnable, "rummy-playouts-" + aCount.incrementAndGet());
+					lThread.setDaemon(true);
+					return lThread;
+				}
+			});
+
+	private final String aName;
+	private final GameEngine aEngine;
+	private final Hand aHand = new Hand();
+	private final SetMatcher aMatcher = new SetMatcher();
+	private final Random aRandom = new Random();
+	private final ExecutorService aPool;
+	private final int aTasks;
+	private final long aMillis;
+	private final int aPlayouts;
+
+	/**
+	 * Creates a player with the default budgets, that runs its playouts on a
+	 * pool shared by all such players, with one thread per processor.
+	 * @param pName The name of the player.
+	 * @param pEngine The engine the player plays on.
+	 */
+	public MonteCarloPlayer(String pName, GameEngine pEngine)
+	{
+		this(pName, pEngine, SHARED_POOL, Runtime.getRuntime().availableProcessors(), DEFAULT_MILLIS,
+				DEFAULT_PLAYOUTS);
+	}
+
+	/**
+	 * @param pName The name of the player.
+	 * @param pEngine The engine the player plays on.
+	 * @param pPool The threads that run the playouts.
+	 * @param pTasks The number of tasks each decision is split into, usually
+	 * the number of threads of pPool.
+	 * @param pMillis The maximum time spent on each turn, in milliseconds.
+	 * @param pPlayouts The maximum number of playouts of each decision.
+	 * @pre pEngine != null && pPool != null && pTasks > 0 && pMillis > 0 && pPlayouts > 0
+	 */
+	public MonteCarloPlayer(String pName, GameEngine pEngine, ExecutorService pPool, int pTasks, long pMillis,
+			int pPlayouts)
+	{
+		assert pEngine != null && pPool != null && pTasks > 0 && pMillis > 0 && pPlayouts > 0;
+		aName = pName;
+		aEngine = pEngine;
+		aPool = pPool;
+		aTasks = pTasks;
+		aMillis = pMillis;
+		aPlayouts = pPlayouts;
+	}
+
+	@Override
+	public Card playTurn()
+	{
+		// One budget for the turn: the choice of the draw stops halfway, to leave
+		// the rest to the choice of the discard after a draw from the deck.
+		long lStart = System.nanoTime();
+		long lDeadline = lStart + TimeUnit.MILLISECONDS.toNanos(aMillis);
+		long lHand = aHand.getCards();
+		Card lTop = aEngine.peekDiscardTop();
+		long lUnseen = unseen(lHand);
+		long lKnown = aEngine.getTracker().getTaken(opponent());
+
+		// Candidates: the best discards after taking lTop, and drawing from the deck.
+		Card[] lDiscards = bestDiscards(lHand | CardMask.of(lTop), lTop);
+		long[] lHands = new long[lDiscards.length + 1];
+		for( int i = 0; i < lDiscards.length; i++ )
+		{
+			lHands[i] = (lHand | CardMask.of(lTop)) & ~CardMask.of(lDiscards[i]);
+		}
+		int lBest = evaluate(lHands, lDiscards, lDiscards.length, lHand, lUnseen, lKnown,
+				lStart + (lDeadline - lStart) / 2);
+
+		Card lDrawn;
+		Card lDiscard;
+		if( lBest < lDiscards.length )
+		{
+			lDrawn = aEngine.getDiscardTop();
+			lDiscard = lDiscards[lBest];
+		}
+		else
+		{
+			lDrawn = aEngine.getDeckCard();
+			long lAll = lHand | CardMask.of(lDrawn);
+			lDiscards = bestDiscards(lAll, null);
+			lHands = new long[lDiscards.length];
+			for( int i = 0; i < lDiscards.length; i++ )
+			{
+				lHands[i] = lAll & ~CardMask.of(lDiscards[i]);
+			}
+			lDiscard = lDiscards[evaluate(lHands, lDiscards, -1, lHand, lUnseen & ~CardMask.of(lDrawn), lKnown,
+					lDeadline)];
+		}
+
+		if( lDiscard != lDrawn )
+		{
+			aHand.remove(lDiscard);
+			aHand.add(lDrawn);
+		}
+		if( aHand.canKnock() )
+		{
+			aHand.autoMatch();
+			knock(lDiscard);
+		}
+		return lDiscard;
+	}
+
+	@Override
+	public Hand getHand()
+	{
+		return aHand;
+	}
+
+	@Override
+	public String getName()
+	{
+		return aName;
+	}
+
+	@Override
+	public void knock(Card pCard)
+	{
+		aEngine.hasKnocked(pCard, aHand);
+	}
+
+	@Override
+	public void addCard(Card pCard)
+	{
+		aHand.add(pCard);
+	}
+
+	/**
+	 * Takes the first discarded card if it lowers the deadwood of the hand.
+	 * @return True if the player passes.
+	 */
+	@Override
+	public boolean pass()
+	{
+		Card lTop = aEngine.peekDiscardTop();
+		long lHand = aHand.getCards() | CardMask.of(lTop);
+		Card lDiscard = bestDiscards(lHand, lTop)[0];
+		if( aMatcher.match(lHand & ~CardMask.of(lDiscard)).getDeadwood() >= aHand.deadwood() )
+		{
+			return true;
+		}
+		aHand.remove(lDiscard);
+		aHand.add(aEngine.getDiscardTop());
+		aEngine.hasDiscarded(lDiscard);
+		return false;
+	}
+
+	/*
+	 * The cards that can be in the opponent's hand or in the deck: the cards
+	 * that are neither in pHand nor were ever seen on the discard pile.
+	 */
+	private long unseen(long pHand)
+	{
+		DiscardPile lPile = aEngine.getDiscardPile();
+		return CardMask.ALL & ~pHand & ~(lPile == null ? 0 : lPile.getSeen());
+	}
+
+	private int opponent()
+	{
+		return aEngine.getHumanPlayer() == this ? 1 : 0;
+	}
+
+	/*
+	 * The discards of pHand that leave the lowest deadwood, best first, except
+	 * pExcluded. Discards that complete a known meld of the opponent come last.
+	 */
+	private Card[] bestDiscards(long pHand, Card pExcluded)
+	{
+		DiscardAnalysis lAnalysis = aMatcher.analyzeDiscards(pHand);
+		CardTracker lTracker = aEngine.getTracker();
+		int lOpponent = opponent();
+		long lCandidates = pHand & ~(pExcluded == null ? 0 : CardMask.of(pExcluded));
+		Card[] lBest = new Card[Math.min(DISCARD_CANDIDATES, Long.bitCount(lCandidates))];
+		for( int i = 0; i < lBest.length; i++ )
+		{
+			for( long lBits = lCandidates; lBits != 0; lBits &= lBits - 1 )
+			{
+				Card lCard = Card.byId(Long.numberOfTrailingZeros(lBits));
+				if( lBest[i] == null || cost(lAnalysis, lTracker, lOpponent, lCard) < cost(lAnalysis, lTracker, lOpponent, lBest[i]) )
+				{
+					lBest[i] = lCard;
+				}
+			}
+			lCandidates &= ~CardMask.of(lBest[i]);
+		}
+		return lBest;
+	}
+
+	private static int cost(DiscardAnalysis pAnalysis, CardTracker pTracker, int pOpponent, Card pCard)
+	{
+		// Above any deadwood when the discard feeds the opponent.
+		int lFeeds = pTracker.completesKnownMeld(pOpponent, pCard) ? 1 << 10 : 0;
+		return lFeeds + pAnalysis.getDeadwoodAfter(pCard);
+	}
+
+	/*
+	 * Runs the playouts of the candidates and returns the index of the best one.
+	 * pHands[i] is the hand after candidate i, with pDiscards[i] on the discard
+	 * pile. If pDeck is a valid index, candidate pDeck is drawing from the deck
+	 * with pHand: its card, then its discard, are chosen in each playout. No
+	 * playout starts after pDeadline, in System.nanoTime() time; without any
+	 * playout, the first candidate is the best.
+	 */
+	private int evaluate(final long[] pHands, final Card[] pDiscards, final int pDeck, final long pHand,
+			final long pUnseen, final long pKnown, final long pDeadline)
+	{
+		final AtomicInteger lPlayouts = new AtomicInteger();
+		List<Callable<double[]>> lTasks = new ArrayList<Callable<double[]>>(aTasks);
+		for( int i = 0; i < aTasks; i++ )
+		{
+			final Random lRandom = new Random(aRandom.nextLong());
+			lTasks.add(new Callable<double[]>()
+			{
+				@Override
+				public double[] call()
+				{
+					double[] lValues = new double[pHands.length];
+					int lPlayout;
+					while( (lPlayout = lPlayouts.getAndIncrement()) < aPlayouts && System.nanoTime() < pDeadline )
+					{
+						int lCandidate = lPlayout % pHands.length;
+						if( lCandidate == pDeck )
+						{
+							lValues[lCandidate] += playDeck(pHand, pUnseen, pKnown, lRandom);
+						}
+						else
+						{
+							lValues[lCandidate] += playout(pHands[lCandidate], pDiscards[lCandidate], pUnseen, pKnown,
+									lRandom);
+						}
+					}
+					return lValues;
+				}
+			});
+		}
+
+		double[] lValues = new double[pHands.length];
+		try
+		{
+			for( Future<double[]> lFuture : aPool.invokeAll(lTasks) )
+			{
+				double[] lTaskValues = lFuture.get();
+				for( int i = 0; i < lValues.length; i++ )
+				{
+					lValues[i] += lTaskValues[i];
+				}
+			}
+		}
+		catch(InterruptedException e)
+		{
+			// Keep the status, and fall back to drawing from the deck, or the greedy discard.
+			Thread.currentThread().interrupt();
+			return Math.max(pDeck, 0);
+		}
+		catch(ExecutionException e)
+		{
+			throw new IllegalStateException(e.getCause());
+		}
+
+		// Every candidate got the same number of playouts, give or take one.
+		int lBest = 0;
+		for( int i = 1; i < lValues.length; i++ )
+		{
+			if( lValues[i] > lValues[lBest] )
+			{
+				lBest = i;
+			}
+		}
+		return lBest;
+	}
+
+	/*
+	 * A playout of drawing from the deck: a random unseen card, then the greedy discard.
+	 */
+	private double playDeck(long pHand, long pUnseen, long pKnown, Random pRandom)
+	{
+		long lDrawn = randomCard(pUnseen, pRandom);
+		Card lDiscard = aMatcher.analyzeDiscards(pHand | lDrawn).getBestDiscard();
+		return playout((pHand | lDrawn) & ~CardMask.of(lDiscard), lDiscard, pUnseen & ~lDrawn, pKnown, pRandom);
+	}
+
+	/*
+	 * Plays the game forward after our turn, with pTop on the discard pile,
+	 * the opponent's hand made of the cards of pKnown it still holds and of
+	 * cards taken at random from pUnseen, and the deck made of the rest. Both
+	 * players take the discarded card if it lowers their deadwood, discard
+	 * greedily and knock as soon as they can.
+	 * Returns 1 if we knock first, 0 if the opponent does, and a value in
+	 * between from the difference of deadwood if no one knocks.
+	 */
+	private double playout(long pHand, Card pTop, long pUnseen, long pKnown, Random pRandom)
+	{
+		if( aMatcher.match(pHand).getDeadwood() <= MAX_KNOCK_DEADWOOD )
+		{
+			return 1;
+		}
+		long lPool = pUnseen;
+		long[] lHands = {pHand, pKnown & ~pHand & ~CardMask.of(pTop)};
+		for( int i = Math.min(HAND_SIZE - Long.bitCount(lHands[1]), Long.bitCount(lPool) - MIN_DECK); i > 0; i-- )
+		{
+			long lCard = randomCard(lPool, pRandom);
+			lHands[1] |= lCard;
+			lPool &= ~lCard;
+		}
+
+		Card lTop = pTop;
+		for( int lTurn = 0; lTurn < 2 * HORIZON && Long.bitCount(lPool) > MIN_DECK; lTurn++ )
+		{
+			// The opponent plays first.
+			int lPlayer = 1 - lTurn % 2;
+			long lHand = lHands[lPlayer];
+			int lDeadwood = aMatcher.match(lHand).getDeadwood();
+			DiscardAnalysis lWithTop = aMatcher.analyzeDiscards(lHand | CardMask.of(lTop));
+			Card lDiscard = lWithTop.getBestDiscard();
+			if( lDiscard != lTop && lWithTop.getBestDeadwood() < lDeadwood )
+			{
+				lHand |= CardMask.of(lTop);
+			}
+			else
+			{
+				long lDrawn = randomCard(lPool, pRandom);
+				lPool &= ~lDrawn;
+				lHand |= lDrawn;
+				lDiscard = aMatcher.analyzeDiscards(lHand).getBestDiscard();
+			}
+			lHands[lPlayer] = lHand & ~CardMask.of(lDiscard);
+			lTop = lDiscard;
+			if( aMatcher.match(lHands[lPlayer]).getDeadwood() <= MAX_KNOCK_DEADWOOD )
+			{
+				return lPlayer == 0 ? 1 : 0;
+			}
+		}
+		int lDifference = aMatcher.match(lHands[1]).getDeadwood() - aMatcher.match(lHands[0]).getDeadwood();
+		return 0.5 + lDifference / (2 * MAX_DEADWOOD);
+	}
+
+	/*
+	 * A uniformly random card of pCards, as a mask.
+	 * @pre pCards != 0
+	 */
+	private static long randomCard(long pCards, Random pRandom)
+	{
+		long lBits = pCards;
+		for( int k = pRandom.nextInt(Long.bitCount(lBits)); k > 0; k-- )
+		{
+			lBits &= lBits - 1;
+		}
+		return Long.lowestOneBit(lBits);
+	}
+}
@@ -0,0 +1,321 @@
+package ca.mcgill.cs.comp303.rummy.model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * An append-only journal of the events of an engine, written to a
+ * memory-mapped file. Each deal writes a snapshot of the engine (see
+ * GameSaver), and each move after it is a 2-byte record: the kind of
+ * event and the player, then the card. After a crash, recover() loads
+ * the last snapshot and replays the moves that follow it.
+ *
+ * A record is made visible by writing its first byte last, so a record
+ * interrupted by a crash is never read back. Opening a journal zeroes
+ * what such a record left past the end, so that the bytes of a torn
+ * snapshot are never read as moves after new records. The records are
+ * in the page cache as soon as they are written; call sync() to also
+ * survive a crash of the operating system. Not threadsafe.
+ */
+public final class MoveJournal implements Closeable
+{
+	// The kind of a record is the ordinal of its event type plus 1, so that 0
+	// marks the end of the journal. Deals are recorded as snapshots.
+	private static final int SNAPSHOT = GameEvent.Type.DEAL.ordinal() + 1;
+	private static final GameEvent.Type[] TYPES = GameEvent.Type.values();
+
+	private static final int INITIAL_SIZE = 1 << 16;
+	private static final int SNAPSHOT_HEADER = 1 + 4;
+
+	private final FileChannel aChannel;
+	private MappedByteBuffer aBuffer;
+	private int aPosition;
+
+	/**
+	 * Opens a journal, creating the file if needed. New events are
+	 * appended after the events already in the file.
+	 * @param pFile The journal file.
+	 * @throws IOException If the file cannot be opened or mapped.
+	 */
+	public MoveJournal(Path pFile) throws IOException
+	{
+		aChannel = FileChannel.open(pFile, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+		long lSize = Math.max(INITIAL_SIZE, aChannel.size());
+		if( lSize > Integer.MAX_VALUE )
+		{
+			aChannel.close();
+			throw new IOException("Journal too large: " + pFile);
+		}
+		aBuffer = aChannel.map(FileChannel.MapMode.READ_WRITE, 0, lSize);
+		aPosition = scan(aBuffer, null);
+		erase(aBuffer, aPosition);
+	}
+
+	/**
+	 * Writes a snapshot of the engine. Recovery starts from the last snapshot.
+	 * @param pEngine The engine to save.
+	 * @throws JournalException If the engine cannot be saved or written.
+	 */
+	public void snapshot(GameEngine pEngine)
+	{
+		ByteBuffer lSnapshot;
+		try
+		{
+			lSnapshot = GameSaver.encode(pEngine);
+		}
+		catch(IOException e)
+		{
+			throw new JournalException("Cannot save the engine", e);
+		}
+		int lLength = lSnapshot.remaining();
+		ensure(SNAPSHOT_HEADER + lLength);
+		aBuffer.position(aPosition + SNAPSHOT_HEADER);
+		aBuffer.put(lSnapshot);
+		aBuffer.putInt(aPosition + 1, lLength);
+		aBuffer.put(aPosition, (byte) (SNAPSHOT << 1));
+		aPosition += SNAPSHOT_HEADER + lLength;
+	}
+
+	/**
+	 * Writes a move.
+	 * @param pType The kind of move, other than DEAL.
+	 * @param pPlayer The player who moved, 0 or 1.
+	 * @param pCard The card drawn or discarded, or null for END.
+	 * @throws JournalException If the journal cannot grow.
+	 */
+	void append(GameEvent.Type pType, int pPlayer, Card pCard)
+	{
+		assert pType != GameEvent.Type.DEAL;
+		ensure(2);
+		aBuffer.put(aPosition + 1, (byte) (pCard == null ? 0 : pCard.getId()));
+		aBuffer.put(aPosition, (byte) ((pType.ordinal() + 1) << 1 | pPlayer));
+		aPosition += 2;
+	}
+
+	/**
+	 * @return The number of bytes written to the journal.
+	 */
+	public int size()
+	{
+		return aPosition;
+	}
+
+	/**
+	 * Forces the journal to the storage device.
+	 */
+	public void sync()
+	{
+		aBuffer.force();
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		aBuffer.force();
+		aChannel.close();
+	}
+
+	/**
+	 * Rebuilds an engine from a journal: loads the last snapshot, then
+	 * replays the moves written after it. A turn interrupted after the draw
+	 * is rolled back. The players are rebuilt as by GameSaver.
+	 * @param pFile The journal file.
+	 * @return A new engine, in the state left by the last complete turn: the turn of
+	 * the player who made it, or the end of the game.
+	 * @throws IOException If the file cannot be read or has no snapshot.
+	 */
+	public static GameEngine recover(Path pFile) throws IOException
+	{
+		ByteBuffer lBuffer;
+		try(FileChannel lChannel = FileChannel.open(pFile, StandardOpenOption.READ))
+		{
+			if( lChannel.size() > Integer.MAX_VALUE )
+			{
+				throw new IOException("Journal too large: " + pFile);
+			}
+			lBuffer = lChannel.map(FileChannel.MapMode.READ_ONLY, 0, lChannel.size());
+		}
+		int[] lSnapshot = {-1};
+		int lEnd = scan(lBuffer, lSnapshot);
+		if( lSnapshot[0] < 0 )
+		{
+			throw new IOException("No snapshot in journal: " + pFile);
+		}
+
+		int lStart = lSnapshot[0] + SNAPSHOT_HEADER;
+		ByteBuffer lEncoded = lBuffer.duplicate();
+		lEncoded.limit(lStart + lBuffer.getInt(lSnapshot[0] + 1)).position(lStart);
+		GameEngine lEngine = GameSaver.decode(lEncoded);
+		try
+		{
+			replay(lEngine, lBuffer, lEncoded.limit(), lEnd);
+		}
+		catch(RuntimeException e)
+		{
+			throw new IOException("Corrupted journal: " + pFile, e);
+		}
+		return lEngine;
+	}
+
+	private static void replay(GameEngine pEngine, ByteBuffer pBuffer, int pStart, int pEnd)
+	{
+		Seat[] lPlayers = {pEngine.getSeat(0), pEngine.getSeat(1)};
+		long[] lHands = new long[2];
+		for( int i = 0; i < 2; i++ )
+		{
+			lHands[i] = lPlayers[i].getHand() == null ? 0 : lPlayers[i].getHand().getCards();
+		}
+		GameEngine.GameState lState = pEngine.getState();
+		int lGamesToPlay = pEngine.getGamesToPlay();
+		int[] lScores = pEngine.getScore().clone();
+		Deck lDeck = pEngine.getDeck();
+		DiscardPile lDiscards = pEngine.getDiscardPile();
+		// The snapshot restores the tracker, which follows the moves from there.
+		CardTracker lTracker = pEngine.getTracker();
+
+		// A draw is applied with the discard that completes the turn, so that a
+		// turn interrupted between the two is rolled back.
+		GameEvent.Type lDraw = null;
+		Card lDrawn = null;
+		for( int lPosition = pStart; lPosition < pEnd; lPosition += 2 )
+		{
+			int lKind = pBuffer.get(lPosition) >>> 1;
+			int lPlayer = pBuffer.get(lPosition) & 1;
+			Card lCard = Card.byId(pBuffer.get(lPosition + 1));
+			if( lKind <= SNAPSHOT || lKind > TYPES.length )
+			{
+				throw new IllegalStateException("Unexpected record: " + lKind);
+			}
+			switch( TYPES[lKind - 1] )
+			{
+			case DRAW_DECK:
+			case DRAW_DISCARD:
+				lDraw = TYPES[lKind - 1];
+				lDrawn = lCard;
+				break;
+			case DISCARD:
+			case KNOCK:
+				if( lDraw != null )
+				{
+					lTracker.update(lDraw, lPlayer, lDrawn, lDiscards.peek());
+				}
+				if( lDraw == GameEvent.Type.DRAW_DECK && lDeck.draw() != lDrawn )
+				{
+					throw new IllegalStateException("Drew " + lDrawn + " from the wrong deck");
+				}
+				if( lDraw == GameEvent.Type.DRAW_DISCARD && lDiscards.pop() != lDrawn )
+				{
+					throw new IllegalStateException("Drew " + lDrawn + " from the wrong discard pile");
+				}
+				if( lDraw != null )
+				{
+					lHands[lPlayer] |= CardMask.of(lDrawn);
+				}
+				lHands[lPlayer] &= ~CardMask.of(lCard);
+				lDiscards.push(lCard);
+				lTracker.update(TYPES[lKind - 1], lPlayer, lCard, null);
+				if( TYPES[lKind - 1] == GameEvent.Type.KNOCK )
+				{
+					KnockResolution lKnock = KnockResolution.resolve(lHands[lPlayer], lCard, lHands[1 - lPlayer],
+							new SetMatcher());
+					lScores[lKnock.knockerWins() ? lPlayer : 1 - lPlayer] += lKnock.getPoints();
+				}
+				lDraw = null;
+				if( lState != GameEngine.GameState.EndGame )
+				{
+					lState = lPlayer == 0 ? GameEngine.GameState.Player0Turn : GameEngine.GameState.Player1Turn;
+				}
+				break;
+			case END:
+				lState = GameEngine.GameState.EndGame;
+				lGamesToPlay--;
+				break;
+			default:
+				throw new IllegalStateException("Unexpected record: " + lKind);
+			}
+		}
+
+		for( int i = 0; i < 2; i++ )
+		{
+			GameSaver.restoreHand(lPlayers[i].getHand(), lHands[i]);
+		}
+		pEngine.restore(lState, pEngine.getDealer(), lGamesToPlay, lScores, lDeck, lDiscards);
+	}
+
+	/*
+	 * Finds the end of the records in pBuffer. If pSnapshot is not null, its
+	 * first element is set to the position of the last snapshot.
+	 */
+	private static int scan(ByteBuffer pBuffer, int[] pSnapshot)
+	{
+		int lPosition = 0;
+		while( lPosition < pBuffer.limit() && pBuffer.get(lPosition) != 0 )
+		{
+			int lLength;
+			if( pBuffer.get(lPosition) >>> 1 == SNAPSHOT )
+			{
+				if( lPosition + SNAPSHOT_HEADER > pBuffer.limit() )
+				{
+					break;
+				}
+				lLength = SNAPSHOT_HEADER + pBuffer.getInt(lPosition + 1);
+			}
+			else
+			{
+				lLength = 2;
+			}
+			if( lLength < 0 || lPosition + lLength > pBuffer.limit() )
+			{
+				break;
+			}
+			if( pSnapshot != null && pBuffer.get(lPosition) >>> 1 == SNAPSHOT )
+			{
+				pSnapshot[0] = lPosition;
+			}
+			lPosition += lLength;
+		}
+		return lPosition;
+	}
+
+	/*
+	 * Zeroes pBuffer from pPosition to its end.
+	 */
+	private static void erase(ByteBuffer pBuffer, int pPosition)
+	{
+		byte[] lZeros = new byte[Math.min(INITIAL_SIZE, pBuffer.capacity() - pPosition)];
+		ByteBuffer lBuffer = pBuffer.duplicate();
+		lBuffer.position(pPosition);
+		while( lBuffer.hasRemaining() )
+		{
+			lBuffer.put(lZeros, 0, Math.min(lZeros.length, lBuffer.remaining()));
+		}
+	}
+
+	private void ensure(int pBytes)
+	{
+		if( aPosition + pBytes <= aBuffer.capacity() )
+		{
+			return;
+		}
+		long lSize = Math.max(2L * aBuffer.capacity(), (long) aPosition + pBytes);
+		if( lSize > Integer.MAX_VALUE )
+		{
+			throw new JournalException("Journal is full");
+		}
+		try
+		{
+			aBuffer.force();
+			aBuffer = aChannel.map(FileChannel.MapMode.READ_WRITE, 0, lSize);
+		}
+		catch(IOException e)
+		{
+			throw new JournalException("Cannot grow the journal", e);
+		}
+	}
+}
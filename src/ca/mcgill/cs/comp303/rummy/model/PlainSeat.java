@@ -0,0 +1,39 @@
+package ca.mcgill.cs.comp303.rummy.model;
+
+/**
+ * A seat that only holds a name and a hand, for engines driven one move at a
+ * time (see GameEngine.setSeats). GameSaver rebuilds the seats of such engines
+ * as plain seats.
+ */
+public class PlainSeat implements Seat
+{
+	private final String aName;
+	private final Hand aHand = new Hand();
+	
+	/**
+	 * Creates a seat with an empty hand
+	 * @param pName the name of the player, or null
+	 */
+	public PlainSeat(String pName)
+	{
+		aName = pName;
+	}
+	
+	@Override
+	public Hand getHand()
+	{
+		return aHand;
+	}
+	
+	@Override
+	public String getName()
+	{
+		return aName;
+	}
+	
+	@Override
+	public void addCard(Card pCard)
+	{
+		aHand.add(pCard);
+	}
+}
@@ -5,7 +5,7 @@ package ca.mcgill.cs.comp303.rummy.model;
  * @author yhatta1
  *
  */
-public interface Player
+public interface Player extends Seat
 {
 
 	/**
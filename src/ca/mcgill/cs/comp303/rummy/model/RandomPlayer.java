@@ -83,22 +83,15 @@ public class RandomPlayer implements Player
         }
         else
         {
-            Set<Card> s = h.getUnmatchedCards();
-            index = RNG.nextInt(s.size() - 1);
-            Iterator<Card> i = s.iterator();
-            int j = 0; Card c = null;
-            while (i.hasNext() )
+            long s = h.getUnmatched();
+            for (int k = RNG.nextInt(Long.bitCount(s)); k > 0; k--)
             {
-                if (index == j)
-                    break;
-                 c =  i.next();
-               
+                s &= s - 1;
             }
-           
-            s.remove(c);
-            s.add(tempCard);
+            Card c = Card.byId(Long.numberOfTrailingZeros(s));
+            h.remove(c);
+            h.add(tempCard);
             return c;
-           
         }
     }
   
@@ -0,0 +1,291 @@
+package ca.mcgill.cs.comp303.rummy.model;
+
+import java.util.Arrays;
+
+/**
+ * Solves hands with a dynamic program that sweeps the ranks from the ace to
+ * the king. At each rank, every card of the hand is either part of a group
+ * of its rank, added to the open run of its suit, or left unmatched. The
+ * state between two ranks is the length of the open run of each suit, 0, 1,
+ * 2, or 3 and more: 256 states. The cards of a run count as matched once the
+ * run reaches 3 cards; a run that stops before leaves its cards unmatched.
+ * The work is bounded by 13 ranks times 256 states times 81 choices, whatever
+ * the number of candidate melds; the cards that cannot be part of any meld are
+ * left out of the sweep. Stateless and threadsafe.
+ */
+public final class RankSweepSolver implements MeldSolver
+{
+	private static final int SUITS = 4;
+	private static final int STATES = 1 << (2 * SUITS);
+	private static final int SUIT_SET = (1 << SUITS) - 1;
+	private static final int OPEN = 3;
+	private static final int MIN_MELD_SIZE = 3;
+	private static final int STATE_SHIFT = 2 * SUITS;
+	// The cards that can start a run of 3 in their suit: ranks ace to jack.
+	private static final long RUN_STARTS = CardMask.ALL & ~(CardMask.rankMask(CardMask.SUIT_WIDTH - 1) |
+			CardMask.rankMask(CardMask.SUIT_WIDTH - 2));
+
+	private static final int[] VALUES = new int[CardMask.SUIT_WIDTH];
+	// For each set of suits whose card of a rank can be part of a group, shifted
+	// by SUITS, and set of suits whose card can be part of a run, each choice of
+	// the suits whose card goes to a group, shifted by SUITS, and of the suits
+	// whose card goes to the open run.
+	private static final int[][] CHOICES = new int[1 << (2 * SUITS)][];
+
+	static
+	{
+		for( int lRank = 0; lRank < CardMask.SUIT_WIDTH; lRank++ )
+		{
+			VALUES[lRank] = Card.byId(lRank).value();
+		}
+		for( int lSuits = 0; lSuits < CHOICES.length; lSuits++ )
+		{
+			int lGroupable = lSuits >>> SUITS;
+			int lRunnable = lSuits & SUIT_SET;
+			int[] lChoices = new int[1 << (2 * SUITS)];
+			int lCount = 0;
+			for( int lGroup = 0; lGroup <= SUIT_SET; lGroup++ )
+			{
+				if( (lGroup & ~lGroupable) != 0 || (lGroup != 0 && Integer.bitCount(lGroup) < MIN_MELD_SIZE) )
+				{
+					continue;
+				}
+				for( int lRun = 0; lRun <= SUIT_SET; lRun++ )
+				{
+					if( (lRun & ~(lRunnable & ~lGroup)) == 0 )
+					{
+						lChoices[lCount++] = lGroup << SUITS | lRun;
+					}
+				}
+			}
+			CHOICES[lSuits] = Arrays.copyOf(lChoices, lCount);
+		}
+	}
+
+	@Override
+	public MatchResult match(long pHand)
+	{
+		long lLive = live(pHand);
+		if( lLive == 0 )
+		{
+			return new MatchResult(pHand, new long[0]);
+		}
+		int lLow = lowRank(lLive);
+		int[] lBack = new int[(highRank(lLive) - lLow + 1) * STATES];
+		int lState = sweep(lLive, lBack) & (STATES - 1);
+
+		// Follow the choices back from the last rank: groups are melds as they
+		// are, and the cards given to runs are split into runs per suit.
+		long[] lMelds = new long[Long.bitCount(pHand) / MIN_MELD_SIZE];
+		int lCount = 0;
+		long lRuns = 0;
+		for( int lRank = highRank(lLive); lRank >= lLow; lRank-- )
+		{
+			int lEntry = lBack[(lRank - lLow) * STATES + lState];
+			int lGroup = (lEntry >>> SUITS) & SUIT_SET;
+			if( lGroup != 0 )
+			{
+				lMelds[lCount++] = cards(lGroup, lRank);
+			}
+			lRuns |= cards(lEntry & SUIT_SET, lRank);
+			lState = lEntry >>> STATE_SHIFT;
+		}
+		for( int lSuit = 0; lSuit < SUITS; lSuit++ )
+		{
+			long lChunk = lRuns & CardMask.suitMask(lSuit);
+			while( lChunk != 0 )
+			{
+				// The lowest sequence of consecutive cards of the chunk.
+				long lRun = lChunk & ~(lChunk + Long.lowestOneBit(lChunk));
+				if( Long.bitCount(lRun) >= MIN_MELD_SIZE )
+				{
+					lMelds[lCount++] = lRun;
+				}
+				lChunk &= ~lRun;
+			}
+		}
+		return new MatchResult(pHand, Arrays.copyOf(lMelds, lCount));
+	}
+
+	@Override
+	public DiscardAnalysis analyzeDiscards(long pHand)
+	{
+		int[] lDeadwood = new int[Card.NUMBER_OF_CARDS];
+		for( long lBits = pHand; lBits != 0; lBits &= lBits - 1 )
+		{
+			long lRest = pHand & ~Long.lowestOneBit(lBits);
+			long lLive = live(lRest);
+			int lMatched = lLive == 0 ? 0 : sweep(lLive, null) >>> STATE_SHIFT;
+			lDeadwood[Long.numberOfTrailingZeros(lBits)] = CardMask.value(lRest) - lMatched;
+		}
+		return new DiscardAnalysis(pHand, lDeadwood);
+	}
+
+	/*
+	 * The cards of pHand that can be matched at all: the cards of a run of 3 in
+	 * the hand, and the cards of a rank with 3 cards or more.
+	 */
+	private static long live(long pHand)
+	{
+		long lRunnable = pHand & (pHand >>> 1) & (pHand >>> 2) & RUN_STARTS;
+		long lLive = lRunnable | lRunnable << 1 | lRunnable << 2;
+		for( int lRank = 0; lRank < CardMask.SUIT_WIDTH; lRank++ )
+		{
+			if( Integer.bitCount(suits(pHand, lRank)) >= MIN_MELD_SIZE )
+			{
+				lLive |= pHand & CardMask.rankMask(lRank);
+			}
+		}
+		return lLive;
+	}
+
+	/*
+	 * Runs the dynamic program on the ranks from the lowest to the highest of
+	 * pHand, which is not empty. If pBack is not null, records for each of these
+	 * ranks and each state the best choice that leads to it, and the state before
+	 * it. Returns the highest value of matched cards, shifted by STATE_SHIFT, and
+	 * the last state that has it.
+	 */
+	private static int sweep(long pHand, int[] pBack)
+	{
+		int[] lBest = new int[STATES];
+		int[] lNext = new int[STATES];
+		Arrays.fill(lBest, -1);
+		Arrays.fill(lNext, -1);
+		int[] lStates = new int[STATES];
+		int[] lNextStates = new int[STATES];
+		lBest[0] = 0;
+		int lCount = 1;
+
+		// Only the cards of a run of 3 in the hand can go to a run, and only the
+		// cards of a rank with 3 cards or more can go to a group: the other cards
+		// are unmatched, which spares their choices.
+		long lRunnable = pHand & (pHand >>> 1) & (pHand >>> 2) & RUN_STARTS;
+		lRunnable |= lRunnable << 1 | lRunnable << 2;
+		int lLow = lowRank(pHand);
+		int lHigh = highRank(pHand);
+		for( int lRank = lLow; lRank <= lHigh; lRank++ )
+		{
+			int lPresent = suits(pHand, lRank);
+			int lGroupable = Integer.bitCount(lPresent) >= MIN_MELD_SIZE ? lPresent : 0;
+			int[] lChoices = CHOICES[lGroupable << SUITS | suits(lRunnable, lRank)];
+			int lRunValue = lRank < 2 ? 0 : VALUES[lRank] + VALUES[lRank - 1] + VALUES[lRank - 2];
+			int lNextCount = 0;
+			for( int i = 0; i < lCount; i++ )
+			{
+				int lState = lStates[i];
+				int lValue = lBest[lState];
+				lBest[lState] = -1;
+				for( int lChoice : lChoices )
+				{
+					int lGroup = lChoice >>> SUITS;
+					int lRun = lChoice & SUIT_SET;
+					int lNewValue = lValue + Integer.bitCount(lGroup) * VALUES[lRank];
+					int lNewState = 0;
+					for( int lSuits = lRun; lSuits != 0; lSuits &= lSuits - 1 )
+					{
+						int lShift = 2 * Integer.numberOfTrailingZeros(lSuits);
+						int lLength = (lState >>> lShift) & OPEN;
+						if( lLength == OPEN - 1 )
+						{
+							lNewValue += lRunValue;
+						}
+						else if( lLength == OPEN )
+						{
+							lNewValue += VALUES[lRank];
+						}
+						lNewState |= Math.min(lLength + 1, OPEN) << lShift;
+					}
+					if( lNext[lNewState] < 0 )
+					{
+						lNextStates[lNextCount++] = lNewState;
+					}
+					if( lNewValue > lNext[lNewState] )
+					{
+						lNext[lNewState] = lNewValue;
+						if( pBack != null )
+						{
+							pBack[(lRank - lLow) * STATES + lNewState] = lState << STATE_SHIFT | lChoice;
+						}
+					}
+				}
+			}
+			int[] lSwap = lBest;
+			lBest = lNext;
+			lNext = lSwap;
+			lSwap = lStates;
+			lStates = lNextStates;
+			lNextStates = lSwap;
+			lCount = lNextCount;
+		}
+
+		int lBestState = lStates[0];
+		for( int i = 1; i < lCount; i++ )
+		{
+			if( lBest[lStates[i]] > lBest[lBestState] )
+			{
+				lBestState = lStates[i];
+			}
+		}
+		return lBest[lBestState] << STATE_SHIFT | lBestState;
+	}
+
+	private static int lowRank(long pHand)
+	{
+		int lRank = CardMask.SUIT_WIDTH;
+		for( int lSuit = 0; lSuit < SUITS; lSuit++ )
+		{
+			long lChunk = (pHand >>> (lSuit * CardMask.SUIT_WIDTH)) & CardMask.SUIT_BITS;
+			if( lChunk != 0 )
+			{
+				lRank = Math.min(lRank, Long.numberOfTrailingZeros(lChunk));
+			}
+		}
+		return lRank;
+	}
+
+	private static int highRank(long pHand)
+	{
+		int lRank = -1;
+		for( int lSuit = 0; lSuit < SUITS; lSuit++ )
+		{
+			long lChunk = (pHand >>> (lSuit * CardMask.SUIT_WIDTH)) & CardMask.SUIT_BITS;
+			if( lChunk != 0 )
+			{
+				lRank = Math.max(lRank, Long.SIZE - 1 - Long.numberOfLeadingZeros(lChunk));
+			}
+		}
+		return lRank;
+	}
+
+	/*
+	 * The set of suits that have a card of pRank in pHand, one bit per suit.
+	 */
+	private static int suits(long pHand, int pRank)
+	{
+		int lSuits = 0;
+		for( int lSuit = 0; lSuit < SUITS; lSuit++ )
+		{
+			lSuits |= (int) ((pHand >>> (lSuit * CardMask.SUIT_WIDTH + pRank)) & 1) << lSuit;
+		}
+		return lSuits;
+	}
+
+	/*
+	 * The cards of pRank in a set of suits.
+	 */
+	private static long cards(int pSuits, int pRank)
+	{
+		return CardMask.rankMask(pRank) & suitsMask(pSuits);
+	}
+
+	private static long suitsMask(int pSuits)
+	{
+		long lMask = 0;
+		for( int lSuits = pSuits; lSuits != 0; lSuits &= lSuits - 1 )
+		{
+			lMask |= CardMask.suitMask(Integer.numberOfTrailingZeros(lSuits));
+		}
+		return lMask;
+	}
+}
@@ -0,0 +1,27 @@
+package ca.mcgill.cs.comp303.rummy.model;
+
+/**
+ * One of the 2 places at the table of an engine: what the engine needs to
+ * deal and to score a game. A Player also plays its turns; an engine driven
+ * one move at a time (see GameEngine.setSeats) only needs seats.
+ */
+public interface Seat
+{
+	/**
+	 * Returns the hand of the player at this seat
+	 * @return the hand, or null if the player has none
+	 */
+	Hand getHand();
+	
+	/**
+	 * Returns the name of the player at this seat
+	 * @return the name, or null
+	 */
+	String getName();
+	
+	/**
+	 * Adds a card dealt to the player at this seat
+	 * @param c card to add to the hand
+	 */
+	void addCard(Card c);
+}
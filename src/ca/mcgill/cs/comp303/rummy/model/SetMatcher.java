@@ -1,17 +1,34 @@
 package ca.mcgill.cs.comp303.rummy.model;
 
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
-public class SetMatcher
+/**
+ * The reference MeldSolver: enumerates the candidate melds of a hand, then
+ * searches them with a MeldOptimizer. Matchings are cached in a MatchCache.
+ */
+public class SetMatcher implements MeldSolver
 {
 	public List<Card> aCards;
+	private final MatchCache aCache;
 
+	/**
+	 * Creates a set matcher that uses the shared MatchCache.
+	 */
+	public SetMatcher()
+	{
+		this(MatchCache.getInstance());
+	}
+
+	/**
+	 * Creates a set matcher.
+	 * @param pCache The cache of matchings to use, or null to disable caching.
+	 */
+	public SetMatcher(MatchCache pCache)
+	{
+		aCache = pCache;
+	}
 	
 	/**
 	 * Calculates the matching of cards into groups and runs that
@@ -20,252 +37,135 @@ public class SetMatcher
 	public Set<ICardSet> matchSets(List<Card> cards)
 	{
 		aCards = cards;
-		List<ICardSet> allSets = this.getAllPossibleSets();
-		return this.computeOptimalMatching(allSets);
-	}
-	
-	private List<ICardSet> getAllPossibleSets()
-	{
-		List<ICardSet> allSets = new ArrayList<ICardSet>();
-		Collections.sort(aCards);
-		
-		allSets.addAll(getAllGroups());
-		allSets.addAll(getAllRuns());
-
-		return allSets;
+		return match(CardMask.of(cards)).getMatchedSets();
 	}
 
-	private Set<ICardSet> getAllRuns()
+	/**
+	 * Calculates the matching of cards into groups and runs that
+	 * results in the lowest amount of points for unmatched cards.
+	 * @param pHand The mask of the cards to match.
+	 * @return The optimal matching of pHand.
+	 */
+	@Override
+	public MatchResult match(long pHand)
 	{
-		Set<ICardSet> allRuns = new HashSet<>();
-		Set<Card> partOfPotentialRun = new HashSet<>();
-		
-		for (int i = 0; i < aCards.size() - 3; i++)
+		if (aCache == null)
 		{
-			Card current = aCards.get(i);
-			
-			// Skip card if it is already part of potential run.
-			if (partOfPotentialRun.contains(current)) continue;
-			
-			List<Card> potentialRun = new ArrayList<>();
-			potentialRun.add(current);
-			partOfPotentialRun.add(current);
-			
-			for (int j = i + 1; j < aCards.size(); j++)
-			{
-				Card next = aCards.get(j);
-				
-				if (next.getOrdinal() - current.getOrdinal() == 1)
-				{
-					if (next.getSuit() == current.getSuit())
-					{
-						potentialRun.add(next);
-						partOfPotentialRun.add(next);
-						current = next;
-					}
-					else continue;
-				}
-				else if (next.getOrdinal() == current.getOrdinal()) continue;
-				else break;
-			}
-
-			allRuns.addAll(this.getRunCombinations(potentialRun));
+			return solve(pHand);
+		}
+		// The cache is keyed by the canonical representative of the hand, shared by
+		// all the relabelings of its suits.
+		int lPermutation = SuitSymmetry.canonicalize(pHand, 0);
+		long lCanonical = SuitSymmetry.permute(pHand, lPermutation);
+		MatchResult lResult = aCache.get(lCanonical);
+		if (lResult == null)
+		{
+			lResult = solve(lCanonical);
+			aCache.put(lResult);
 		}
-		
-		return allRuns;
+		return lPermutation == SuitSymmetry.IDENTITY ? lResult : lResult.permute(SuitSymmetry.inverse(lPermutation));
 	}
 
-	private Set<ICardSet> getAllGroups()
+	private static MatchResult solve(long pHand)
 	{
-		Set<ICardSet> allGroups = new HashSet<>();
-		
-		for (int i = 0; i < aCards.size() - 3; i++)
+		boolean lMetrics = EngineMetrics.enabled();
+		long lStart = lMetrics ? System.nanoTime() : 0;
+		long[] lCandidates = MeldTable.candidates(pHand);
+		MeldOptimizer lOptimizer = new MeldOptimizer(lCandidates);
+		MatchResult lResult = new MatchResult(pHand, lOptimizer.solve(pHand));
+		if (lMetrics)
 		{
-			CardSet possibleSet = new CardSet(aCards.subList(i, i + 3));
-			if (possibleSet.isGroup())
-			{
-				// Check if next card can also be part of group.
-				if (aCards.get(i).getRank() == aCards.get(i + 3).getRank())
-				{
-					allGroups.addAll(this.getGroupCombinations(aCards.subList(i, i + 4)));
-					i += 3;
-				}
-				else
-				{
-					allGroups.add(possibleSet);
-					i += 2;
-				}
-			}
+			EngineMetrics.recordMatch(System.nanoTime() - lStart, lCandidates.length, lOptimizer.getNodes());
 		}
-		
-		return allGroups;
+		return lResult;
 	}
-	
-	private Collection<ICardSet> getGroupCombinations(List<Card> group)
-	{
-		Collection<ICardSet> combinations = new HashSet<ICardSet>();
-		combinations.add(new CardSet(group));
-		
-		Set<Card> temp = new HashSet<Card>();
 
-		for (int i = 0; i < 4; i++)
+	/**
+	 * Calculates the deadwood left by each possible discard from a hand.
+	 * All the discards are solved with a single optimizer, so that they share
+	 * their memoized sub-hands. Unmatched cards of the optimal matching of
+	 * the whole hand do not need to be solved: discarding one of them
+	 * leaves the rest of the matching optimal.
+	 * @param pHand The mask of the cards of the hand.
+	 * @return The deadwood after each discard, and the best discard.
+	 * @pre pHand != 0
+	 */
+	@Override
+	public DiscardAnalysis analyzeDiscards(long pHand)
+	{
+		boolean lMetrics = EngineMetrics.enabled();
+		long lStart = lMetrics ? System.nanoTime() : 0;
+		MeldOptimizer lOptimizer = new MeldOptimizer(MeldTable.candidates(pHand));
+		MatchResult lFull = null;
+		int lPermutation = SuitSymmetry.canonicalize(pHand, 0);
+		if (aCache != null)
 		{
-			for (int j = 0; j < 4; j++)
-			{
-				if (j != i)
-				{
-					temp.add(group.get(j));
-				}
-			}
-			
-			combinations.add(new CardSet(temp));
-			temp.clear();
+			lFull = aCache.get(SuitSymmetry.permute(pHand, lPermutation));
 		}
-		
-		return combinations;
-	}
-	
-	private Collection<ICardSet> getRunCombinations(List<Card> potentialRun)
-	{
-		Collection<ICardSet> combinations = new HashSet<ICardSet>();
-		
-		if (potentialRun.size() < 3) return combinations;
-		
-		CardSet cs = new CardSet(potentialRun);
-		if (cs.isRun())
+		if (lFull == null)
 		{
-			for (int i = 0; i <= cs.size() - 3; i++)
+			lFull = new MatchResult(pHand, lOptimizer.solve(pHand));
+			if (aCache != null)
 			{
-				for (int j = i + 3; j <= cs.size(); j++)
-				{
-					CardSet combination = new CardSet(potentialRun.subList(i, j));
-					combinations.add(combination);
-				}
+				aCache.put(lFull.permute(lPermutation));
 			}
 		}
+		else if (lPermutation != SuitSymmetry.IDENTITY)
+		{
+			lFull = lFull.permute(SuitSymmetry.inverse(lPermutation));
+		}
 
-		return combinations;
-	}
-	
-	/**
-	 * Determine optimal set matching.
-	 * @param pSets List of all possible sets for a given hand.
-	 * @return Optimal hand matching.
-	 */
-	public HashSet<ICardSet> computeOptimalMatching(List<ICardSet> pSets)
-	{
-		// Sort ArrayList in order of the value of the set
-		Comparator<ICardSet> comparator = new Comparator<ICardSet>(){
-			@Override
-			public int compare(ICardSet pS1, ICardSet pS2)
+		int[] lDeadwood = new int[Card.NUMBER_OF_CARDS];
+		for (long lBits = pHand; lBits != 0; lBits &= lBits - 1)
+		{
+			int lId = Long.numberOfTrailingZeros(lBits);
+			long lRest = pHand & ~(1L << lId);
+			if ((lFull.getMatched() & (1L << lId)) == 0)
 			{
-				int v1 = 0;
-				int v2 = 0;
-				for (Card c : pS1)
-				{
-					v1 += c.value();
-				}
-				for (Card c : pS2)
-				{
-					v2 += c.value();
-				}
-				return v2-v1;
+				lDeadwood[lId] = lFull.getDeadwood() - Card.byId(lId).value();
+			}
+			else
+			{
+				lDeadwood[lId] = CardMask.value(lRest) - lOptimizer.bestValue(lRest);
 			}
-		};
-		Collections.sort(pSets, comparator);
-
-		// Compute optimal solution
-		return opt(pSets, 0);
-	}
-
-	/**
-	 * Recursive optimization function to select best hand. Break the problem into
-	 * two cases at each recursive step: either the current element under consideration
-	 * is included or excluded.
-	 * @param pSets A list of all possible sets given a hand of cards.
-	 * @param pCurrent The index of the current set under consideration.
-	 * @return The optimal matching.
-	 */
-	private HashSet<ICardSet> opt(List<ICardSet> pSets, int pCurrent)
-	{
-		// Base Case
-		if (pSets.size() == pCurrent)
-		{
-			// Return empty set
-			return new HashSet<ICardSet>();
 		}
-
-		// Recursive parameters
-		HashSet<ICardSet> opt1;
-		HashSet<ICardSet> opt2;
-
-		// Recursive option 1: set_current is included
-		opt1 = opt(removeConflicts(pSets, pCurrent), 0);
-		opt1.add(pSets.get(pCurrent)); // add current set
-
-		// Recursion option 2: set_current is not included
-		opt2 = opt(pSets, pCurrent+1);
-
-		// Construct optimal solution recursively
-		if (valueOfSet(opt1) >= valueOfSet(opt2))
+		if (lMetrics)
 		{
-			return opt1;
+			EngineMetrics.DISCARD_ANALYSIS_NANOS.record(System.nanoTime() - lStart);
 		}
-		return opt2;
+		return new DiscardAnalysis(pHand, lDeadwood);
 	}
 
 	/**
-	 * Compute the value of a set of card sets.
-	 * @param pHashSet Set of card sets.
-	 * @return Total value of the composing card sets.
+	 * Determine optimal set matching.
+	 * @param pSets List of all possible sets for a given hand.
+	 * @return Optimal hand matching.
 	 */
-	private static int valueOfSet(HashSet <ICardSet> pHashSet)
+	public HashSet<ICardSet> computeOptimalMatching(List<ICardSet> pSets)
 	{
-		int v = 0;
-		for (ICardSet cS : pHashSet)
+		long[] lMasks = new long[pSets.size()];
+		long lCards = 0;
+		for (int i = 0; i < lMasks.length; i++)
 		{
-			for (Card c : cS)
-			{
-				v += c.value();
-			}
+			lMasks[i] = CardMask.of(pSets.get(i));
+			lCards |= lMasks[i];
 		}
-		return v;
-	}
 
-	/**
-	 * Check if two ICardSets have a common element.
-	 * @param pS1 ICardSet 1
-	 * @param pS2 ICardSet 2
-	 * @return True if the ICardSets have a common card.
-	 */
-	private static boolean conflict(ICardSet pS1, ICardSet pS2)
-	{
-		for (Card c : pS1)
+		HashSet<ICardSet> solution = new HashSet<ICardSet>();
+		for (long lMeld : new MeldOptimizer(lMasks).solve(lCards))
 		{
-			if (pS2.contains(c))
-			{
-				return true;
-			}
+			solution.add(pSets.get(indexOf(lMasks, lMeld)));
 		}
-		return false;
+		return solution;
 	}
 
-	/**
-	 * Remove conflicts from a list and construct a list of non-conflicting sets.
-	 * @param pSets List of all sets.
-	 * @param pCurrent Elements of consideration for conflict.
-	 * @return Non-conflicting sets.
-	 */
-	private static ArrayList<ICardSet> removeConflicts(List<ICardSet> pSets, int pCurrent)
+	private static int indexOf(long[] pMasks, long pMask)
 	{
-		ArrayList<ICardSet> noConflicts = new ArrayList<>();
-		for (int i = pCurrent+1; i < pSets.size(); i++)
+		int i = 0;
+		while (pMasks[i] != pMask)
 		{
-			if (!conflict(pSets.get(i), pSets.get(pCurrent)))
-			{
-				noConflicts.add(pSets.get(i));
-			}
+			i++;
 		}
-		return noConflicts;
+		return i;
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,139 @@
+package ca.mcgill.cs.comp303.rummy.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Plays many automatic games in parallel. The games are split into
+ * batches, each played on its own GameEngine with its own players by a
+ * pool of worker threads, and the results of the batches are merged.
+ */
+public class Simulation
+{
+	/**
+	 * Creates the players of each engine of a simulation.
+	 */
+	public interface PlayerFactory
+	{
+		/**
+		 * @param pEngine The engine the player will play on.
+		 * @return A new player, used only with pEngine.
+		 */
+		Player createPlayer(GameEngine pEngine);
+	}
+
+	// Several batches per thread, so that threads that get short games are not left idle.
+	private static final int BATCHES_PER_THREAD = 4;
+
+	private final PlayerFactory aFactory;
+	private final int aThreads;
+	private DatasetWriter aDataset;
+
+	/**
+	 * @param pFactory Creates the two players of each engine.
+	 * @param pThreads The number of worker threads.
+	 * @pre pFactory != null && pThreads > 0
+	 */
+	public Simulation(PlayerFactory pFactory, int pThreads)
+	{
+		assert pFactory != null && pThreads > 0;
+		aFactory = pFactory;
+		aThreads = pThreads;
+	}
+
+	/**
+	 * @param pFactory Creates the two players of each engine.
+	 * @return A simulation with one worker thread per available processor.
+	 */
+	public static Simulation withAllProcessors(PlayerFactory pFactory)
+	{
+		return new Simulation(pFactory, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Records the turns of the games of the following runs in a dataset.
+	 * @param pDataset The dataset, or null to stop recording.
+	 */
+	public void setDataset(DatasetWriter pDataset)
+	{
+		aDataset = pDataset;
+	}
+
+	/**
+	 * Plays pGames games and waits for them to complete.
+	 * @param pGames The number of games to play.
+	 * @return The merged outcome of all the games.
+	 * @throws InterruptedException If the calling thread is interrupted while waiting.
+	 * @throws NumberOfPlayersException If the factory does not produce valid players.
+	 */
+	public SimulationResult run(long pGames) throws InterruptedException, NumberOfPlayersException
+	{
+		ExecutorService lPool = Executors.newFixedThreadPool(aThreads);
+		try
+		{
+			int lBatches = (int) Math.max(1, Math.min(pGames, (long) aThreads * BATCHES_PER_THREAD));
+			List<Future<SimulationResult>> lFutures = new ArrayList<Future<SimulationResult>>(lBatches);
+			for( int i = 0; i < lBatches; i++ )
+			{
+				// Spread the remainder over the first batches.
+				final long lGames = pGames / lBatches + (i < pGames % lBatches ? 1 : 0);
+				lFutures.add(lPool.submit(new Callable<SimulationResult>()
+				{
+					@Override
+					public SimulationResult call() throws NumberOfPlayersException
+					{
+						return playBatch(lGames);
+					}
+				}));
+			}
+
+			SimulationResult lResult = new SimulationResult();
+			for( Future<SimulationResult> lFuture : lFutures )
+			{
+				lResult.merge(lFuture.get());
+			}
+			return lResult;
+		}
+		catch( ExecutionException e )
+		{
+			if( e.getCause() instanceof NumberOfPlayersException )
+			{
+				throw (NumberOfPlayersException) e.getCause();
+			}
+			throw new IllegalStateException("Simulated game failed", e.getCause());
+		}
+		finally
+		{
+			lPool.shutdownNow();
+		}
+	}
+
+	private SimulationResult playBatch(long pGames) throws NumberOfPlayersException
+	{
+		GameEngine lEngine = new GameEngine();
+		lEngine.setDataset(aDataset);
+		lEngine.addPlayer(aFactory.createPlayer(lEngine));
+		lEngine.addPlayer(aFactory.createPlayer(lEngine));
+
+		SimulationResult lResult = new SimulationResult();
+		try
+		{
+			for( long i = 0; i < pGames && !Thread.currentThread().isInterrupted(); i++ )
+			{
+				lEngine.newGame();
+				lResult.record(lEngine);
+			}
+		}
+		finally
+		{
+			// Gives the block of the batch back to the dataset.
+			lEngine.setDataset(null);
+		}
+		return lResult;
+	}
+}
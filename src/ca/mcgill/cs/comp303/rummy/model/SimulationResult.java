@@ -0,0 +1,91 @@
+package ca.mcgill.cs.comp303.rummy.model;
+
+/**
+ * Aggregated outcome of a number of simulated games. Not threadsafe:
+ * each worker of a simulation fills its own result, and the results are
+ * merged at the end.
+ */
+public final class SimulationResult
+{
+	private long aGames;
+	private long aDraws;
+	private final long[] aKnocks = new long[2];
+	private final long[] aPoints = new long[2];
+
+	/**
+	 * Records the outcome of the last game played by an engine.
+	 * @param pEngine The engine that just finished a game.
+	 */
+	void record(GameEngine pEngine)
+	{
+		aGames++;
+		int lKnocker = pEngine.getKnocker();
+		if( lKnocker < 0 )
+		{
+			aDraws++;
+		}
+		else
+		{
+			aKnocks[lKnocker]++;
+		}
+		int[] lScores = pEngine.getScore();
+		aPoints[0] += lScores[0];
+		aPoints[1] += lScores[1];
+	}
+
+	/**
+	 * Adds the games of another result to this one.
+	 * @param pResult The result to merge.
+	 */
+	public void merge(SimulationResult pResult)
+	{
+		aGames += pResult.aGames;
+		aDraws += pResult.aDraws;
+		for( int i = 0; i < 2; i++ )
+		{
+			aKnocks[i] += pResult.aKnocks[i];
+			aPoints[i] += pResult.aPoints[i];
+		}
+	}
+
+	/**
+	 * @return The number of games played.
+	 */
+	public long getGames()
+	{
+		return aGames;
+	}
+
+	/**
+	 * @return The number of games that ended with nobody knocking.
+	 */
+	public long getDraws()
+	{
+		return aDraws;
+	}
+
+	/**
+	 * @param pPlayer 0 for the human player, 1 for the AI player.
+	 * @return The number of games where pPlayer knocked.
+	 */
+	public long getKnocks(int pPlayer)
+	{
+		return aKnocks[pPlayer];
+	}
+
+	/**
+	 * @param pPlayer 0 for the human player, 1 for the AI player.
+	 * @return The total points scored by pPlayer.
+	 */
+	public long getPoints(int pPlayer)
+	{
+		return aPoints[pPlayer];
+	}
+
+	@Override
+	public String toString()
+	{
+		return "SimulationResult [games=" + aGames + ", draws=" + aDraws + ", knocks=" + aKnocks[0] + "/" + aKnocks[1]
+				+ ", points=" + aPoints[0] + "/" + aPoints[1] + "]";
+	}
+}
@@ -0,0 +1,138 @@
+package ca.mcgill.cs.comp303.rummy.model;
+
+/**
+ * Static helpers to exploit the symmetry of the four suits: the optimal
+ * matching of a hand, or any evaluation that does not depend on the suits
+ * themselves, is the same for the 24 relabelings of the suits of the hand.
+ * A permutation of the suits is packed in an int, 2 bits per suit: bits
+ * 2s and 2s + 1 hold the suit that suit s becomes. The canonical
+ * representative of a hand sorts its suits by their 13-bit chunk of the
+ * hand, then of a mask of seen cards, so that all the relabelings of a
+ * hand with its seen cards have the same representative.
+ */
+public final class SuitSymmetry
+{
+	/**
+	 * The permutation that leaves every suit in place.
+	 */
+	public static final int IDENTITY = 0 | 1 << 2 | 2 << 4 | 3 << 6;
+
+	private static final int SUITS = 4;
+	private static final int TWO_BITS = 3;
+
+	private SuitSymmetry()
+	{}
+
+	/**
+	 * @param pHand The mask of a hand.
+	 * @param pSeen The mask of other cards that the evaluation depends on, or 0.
+	 * @return The permutation of the suits that maps pHand and pSeen to their canonical
+	 * representative (see permute).
+	 */
+	public static int canonicalize(long pHand, long pSeen)
+	{
+		// The key of a suit is its chunk of the hand, then of pSeen, then the suit itself.
+		long lKey0 = key(pHand, pSeen, 0);
+		long lKey1 = key(pHand, pSeen, 1);
+		long lKey2 = key(pHand, pSeen, 2);
+		long lKey3 = key(pHand, pSeen, 3);
+		long lSwap;
+		// A sorting network of 4 keys, in decreasing order.
+		if( lKey0 < lKey1 )
+		{
+			lSwap = lKey0;
+			lKey0 = lKey1;
+			lKey1 = lSwap;
+		}
+		if( lKey2 < lKey3 )
+		{
+			lSwap = lKey2;
+			lKey2 = lKey3;
+			lKey3 = lSwap;
+		}
+		if( lKey0 < lKey2 )
+		{
+			lSwap = lKey0;
+			lKey0 = lKey2;
+			lKey2 = lSwap;
+		}
+		if( lKey1 < lKey3 )
+		{
+			lSwap = lKey1;
+			lKey1 = lKey3;
+			lKey3 = lSwap;
+		}
+		if( lKey1 < lKey2 )
+		{
+			lSwap = lKey1;
+			lKey1 = lKey2;
+			lKey2 = lSwap;
+		}
+		return 0 << target(lKey0) | 1 << target(lKey1) | 2 << target(lKey2) | 3 << target(lKey3);
+	}
+
+	/**
+	 * @param pHand The mask of a hand.
+	 * @return The canonical representative of pHand.
+	 */
+	public static long canonical(long pHand)
+	{
+		return permute(pHand, canonicalize(pHand, 0));
+	}
+
+	/**
+	 * @param pMask A mask of cards.
+	 * @param pPermutation A permutation of the suits.
+	 * @return The mask with the cards of each suit s moved to the suit that pPermutation maps s to.
+	 */
+	public static long permute(long pMask, int pPermutation)
+	{
+		long lResult = 0;
+		for( int lSuit = 0; lSuit < SUITS; lSuit++ )
+		{
+			long lChunk = (pMask >>> (lSuit * CardMask.SUIT_WIDTH)) & CardMask.SUIT_BITS;
+			lResult |= lChunk << (suit(pPermutation, lSuit) * CardMask.SUIT_WIDTH);
+		}
+		return lResult;
+	}
+
+	/**
+	 * @param pPermutation A permutation of the suits.
+	 * @return The permutation that undoes pPermutation.
+	 */
+	public static int inverse(int pPermutation)
+	{
+		int lInverse = 0;
+		for( int lSuit = 0; lSuit < SUITS; lSuit++ )
+		{
+			lInverse |= lSuit << (2 * suit(pPermutation, lSuit));
+		}
+		return lInverse;
+	}
+
+	/**
+	 * @param pPermutation A permutation of the suits.
+	 * @param pSuit A suit (ordinal).
+	 * @return The suit that pPermutation maps pSuit to.
+	 */
+	public static int suit(int pPermutation, int pSuit)
+	{
+		return (pPermutation >>> (2 * pSuit)) & TWO_BITS;
+	}
+
+	private static long key(long pHand, long pSeen, int pSuit)
+	{
+		int lShift = pSuit * CardMask.SUIT_WIDTH;
+		long lHand = (pHand >>> lShift) & CardMask.SUIT_BITS;
+		long lSeen = (pSeen >>> lShift) & CardMask.SUIT_BITS;
+		return (lHand << CardMask.SUIT_WIDTH | lSeen) << 2 | pSuit;
+	}
+
+	/*
+	 * The shift, in a packed permutation, of the suit of a key.
+	 */
+	private static int target(long pKey)
+	{
+		return 2 * (int) (pKey & TWO_BITS);
+	}
+}
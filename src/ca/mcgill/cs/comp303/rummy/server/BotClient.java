@@ -0,0 +1,184 @@
+package ca.mcgill.cs.comp303.rummy.server;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import ca.mcgill.cs.comp303.rummy.model.Card;
+import ca.mcgill.cs.comp303.rummy.model.Hand;
+
+/**
+ * A remote player that plays on a GameServer like a RandomPlayer: it takes
+ * the first discarded card or draws from either pile at random, and discards
+ * the card drawn or a random card of its hand. Unlike a RandomPlayer, it
+ * knocks as soon as it can. Blocks its thread until the table is closed.
+ */
+public final class BotClient implements Callable<Integer>
+{
+	// RandomPlayer discards the card drawn once in this many turns.
+	private static final int DISCARD_CHOICES = 11;
+	private static final int DEFAULT_BOTS = 100;
+
+	private final String aHost;
+	private final int aPort;
+	private final Random aRandom;
+	private final Hand aHand = new Hand();
+	private int aSeat;
+	private int aTop;
+	private Card aDrawn;
+	private long aPoints;
+
+	/**
+	 * @param pHost The host of the server.
+	 * @param pPort The port of the server.
+	 * @param pSeed The seed of the random choices of the bot.
+	 */
+	public BotClient(String pHost, int pPort, long pSeed)
+	{
+		aHost = pHost;
+		aPort = pPort;
+		aRandom = new Random(pSeed);
+	}
+
+	/**
+	 * Runs bots against a server until they have played all their games.
+	 * @param pArgs The host, the port and the number of bots, all optional.
+	 * @throws InterruptedException If interrupted while waiting for the bots.
+	 * @throws ExecutionException If a bot failed.
+	 */
+	public static void main(String[] pArgs) throws InterruptedException, ExecutionException
+	{
+		String lHost = pArgs.length > 0 ? pArgs[0] : "localhost";
+		int lPort = pArgs.length > 1 ? Integer.parseInt(pArgs[1]) : GameServer.DEFAULT_PORT;
+		int lBots = pArgs.length > 2 ? Integer.parseInt(pArgs[2]) : DEFAULT_BOTS;
+		ExecutorService lPool = Executors.newFixedThreadPool(lBots);
+		long lStart = System.nanoTime();
+		List<Future<Integer>> lGames = new ArrayList<Future<Integer>>();
+		for( int i = 0; i < lBots; i++ )
+		{
+			lGames.add(lPool.submit(new BotClient(lHost, lPort, i)));
+		}
+		long lTotal = 0;
+		for( Future<Integer> lGame : lGames )
+		{
+			lTotal += lGame.get();
+		}
+		lPool.shutdown();
+		System.out.println(lBots + " bots played " + lTotal + " games in " + (System.nanoTime() - lStart) / 1000000 + " ms");
+	}
+
+	/**
+	 * Joins a table and plays until the server closes it.
+	 * @return The number of games played.
+	 * @throws IOException If the connection fails, or if the server reports an error.
+	 */
+	@Override
+	public Integer call() throws IOException
+	{
+		try(Socket lSocket = new Socket(aHost, aPort))
+		{
+			lSocket.setTcpNoDelay(true);
+			DataInputStream lIn = new DataInputStream(new BufferedInputStream(lSocket.getInputStream()));
+			DataOutputStream lOut = new DataOutputStream(new BufferedOutputStream(lSocket.getOutputStream()));
+			lOut.writeByte(Protocol.JOIN);
+			lOut.flush();
+			int lGames = 0;
+			while( true )
+			{
+				int lType = lIn.readUnsignedByte();
+				switch( lType )
+				{
+				case Protocol.DEAL:
+					aSeat = lIn.readUnsignedByte();
+					lIn.readUnsignedByte();
+					aHand.clear();
+					for( int i = 0; i < Protocol.HAND_SIZE; i++ )
+					{
+						aHand.add(Card.byId(lIn.readUnsignedByte()));
+					}
+					aTop = lIn.readUnsignedByte();
+					break;
+				case Protocol.PROMPT_PASS:
+					if( aRandom.nextBoolean() )
+					{
+						lOut.writeByte(Protocol.PASS);
+						lOut.writeByte(1);
+					}
+					else
+					{
+						lOut.writeByte(Protocol.PASS);
+						lOut.writeByte(0);
+						aDrawn = Card.byId(aTop);
+						lOut.writeByte(Protocol.DISCARD);
+						lOut.writeByte(discard().getId());
+					}
+					break;
+				case Protocol.PROMPT_TURN:
+					aTop = lIn.readUnsignedByte();
+					lOut.writeByte(Protocol.DRAW);
+					lOut.writeByte(aTop == Protocol.NO_CARD || aRandom.nextBoolean() ? Protocol.DECK : Protocol.DISCARD_PILE);
+					break;
+				case Protocol.CARD:
+					aDrawn = Card.byId(lIn.readUnsignedByte());
+					Card lDiscard = discard();
+					lOut.writeByte(aHand.canKnock() ? Protocol.KNOCK : Protocol.DISCARD);
+					lOut.writeByte(lDiscard.getId());
+					break;
+				case Protocol.END:
+					int lPoints0 = lIn.readShort();
+					int lPoints1 = lIn.readShort();
+					aPoints += aSeat == 0 ? lPoints0 : lPoints1;
+					lGames++;
+					break;
+				case Protocol.BYE:
+					return lGames;
+				case Protocol.ERROR:
+					throw new IOException("The table was closed by the server");
+				default:
+					throw new IOException("Unknown message: " + lType);
+				}
+				lOut.flush();
+			}
+		}
+	}
+
+	/**
+	 * @return The points won in all the games played.
+	 */
+	public long getPoints()
+	{
+		return aPoints;
+	}
+
+	/*
+	 * Chooses the card to discard like RandomPlayer, and keeps the card drawn instead.
+	 */
+	private Card discard()
+	{
+		Card lDiscard = aDrawn;
+		if( aRandom.nextInt(DISCARD_CHOICES) < DISCARD_CHOICES - 1 )
+		{
+			long lCards = aHand.getCards();
+			for( int k = aRandom.nextInt(Long.bitCount(lCards)); k > 0; k-- )
+			{
+				lCards &= lCards - 1;
+			}
+			lDiscard = Card.byId(Long.numberOfTrailingZeros(lCards));
+			aHand.remove(lDiscard);
+			aHand.add(aDrawn);
+		}
+		aDrawn = null;
+		return lDiscard;
+	}
+}
@@ -0,0 +1,96 @@
+package ca.mcgill.cs.comp303.rummy.server;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * A player connected to a GameServer. Its channel and input buffer are only
+ * used on the thread of the selector; messages to send are queued by the
+ * table of the player, on any thread, and written by the selector.
+ */
+final class Connection
+{
+	// Larger than any message, so that a message never spans more than one fill.
+	private static final int BUFFER_SIZE = 64;
+
+	private final SocketChannel aChannel;
+	private final SelectionKey aKey;
+	private final ByteBuffer aInput = ByteBuffer.allocate(BUFFER_SIZE);
+	private final Queue<ByteBuffer> aOutput = new ConcurrentLinkedQueue<ByteBuffer>();
+	private volatile boolean aClosing;
+
+	// The table of the player and its seat, once it joined. Selector thread only.
+	private Table aTable;
+	private int aSeat;
+
+	/**
+	 * @param pChannel The channel of the player.
+	 * @param pKey The key of pChannel, with this connection attached.
+	 */
+	Connection(SocketChannel pChannel, SelectionKey pKey)
+	{
+		aChannel = pChannel;
+		aKey = pKey;
+	}
+
+	SocketChannel getChannel()
+	{
+		return aChannel;
+	}
+
+	SelectionKey getKey()
+	{
+		return aKey;
+	}
+
+	ByteBuffer getInput()
+	{
+		return aInput;
+	}
+
+	Queue<ByteBuffer> getOutput()
+	{
+		return aOutput;
+	}
+
+	/**
+	 * Queues a message. The GameServer must then be asked to flush the connection.
+	 * @param pMessage The message, ready to be read.
+	 */
+	void send(ByteBuffer pMessage)
+	{
+		aOutput.add(pMessage);
+	}
+
+	/**
+	 * Closes the connection once the queued messages are written.
+	 */
+	void closeWhenFlushed()
+	{
+		aClosing = true;
+	}
+
+	boolean isClosing()
+	{
+		return aClosing;
+	}
+
+	Table getTable()
+	{
+		return aTable;
+	}
+
+	int getSeat()
+	{
+		return aSeat;
+	}
+
+	void join(Table pTable, int pSeat)
+	{
+		aTable = pTable;
+		aSeat = pSeat;
+	}
+}
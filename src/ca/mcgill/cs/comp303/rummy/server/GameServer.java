@@ -0,0 +1,380 @@
+package ca.mcgill.cs.comp303.rummy.server;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A headless server that hosts games between remote players (see Protocol).
+ * Players are seated two by two, in the order they join, at tables that each
+ * play a number of games on their own GameEngine. One thread runs a
+ * non-blocking selector for all the connections; the tables run on a small
+ * pool, only when a player sent them a move.
+ */
+public final class GameServer implements Closeable
+{
+	/**
+	 * The port of the server when none is given to main.
+	 */
+	public static final int DEFAULT_PORT = 4303;
+
+	private static final int DEFAULT_GAMES = 10;
+	private static final long CLOSE_TIMEOUT = 5;
+	// Connections not accepted yet, when thousands of players join at once.
+	private static final int BACKLOG = 1024;
+
+	private final int aGamesPerTable;
+	private final ExecutorService aPool;
+	private final Selector aSelector;
+	private final ServerSocketChannel aServerChannel;
+	private final Thread aThread;
+	private volatile boolean aRunning = true;
+
+	// The connections with messages to write, queued by the tables.
+	private final Queue<Connection> aFlushes = new ConcurrentLinkedQueue<Connection>();
+	// The player waiting for a second player to join. Selector thread only.
+	private Connection aWaiting;
+
+	private final AtomicInteger aTables = new AtomicInteger();
+	private final AtomicLong aGames = new AtomicLong();
+
+	/**
+	 * Starts a server.
+	 * @param pPort The port to listen to, or 0 for any free port (see getPort).
+	 * @param pGamesPerTable The number of games that each table plays.
+	 * @param pThreads The number of threads that run the tables.
+	 * @throws IOException If the port cannot be opened.
+	 * @pre pGamesPerTable > 0 && pThreads > 0
+	 */
+	public GameServer(int pPort, int pGamesPerTable, int pThreads) throws IOException
+	{
+		assert pGamesPerTable > 0 && pThreads > 0;
+		aGamesPerTable = pGamesPerTable;
+		aPool = Executors.newFixedThreadPool(pThreads);
+		aSelector = Selector.open();
+		aServerChannel = ServerSocketChannel.open();
+		aServerChannel.bind(new InetSocketAddress(pPort), BACKLOG);
+		aServerChannel.configureBlocking(false);
+		aServerChannel.register(aSelector, SelectionKey.OP_ACCEPT);
+		aThread = new Thread(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				serve();
+			}
+		}, "GameServer");
+		aThread.start();
+	}
+
+	/**
+	 * Runs a server until the process is stopped.
+	 * @param pArgs The port, the number of games per table and the number of threads, all optional.
+	 * @throws IOException If the port cannot be opened.
+	 */
+	public static void main(String[] pArgs) throws IOException
+	{
+		int lPort = pArgs.length > 0 ? Integer.parseInt(pArgs[0]) : DEFAULT_PORT;
+		int lGames = pArgs.length > 1 ? Integer.parseInt(pArgs[1]) : DEFAULT_GAMES;
+		int lThreads = pArgs.length > 2 ? Integer.parseInt(pArgs[2]) : Runtime.getRuntime().availableProcessors();
+		GameServer lServer = new GameServer(lPort, lGames, lThreads);
+		System.out.println("Serving on port " + lServer.getPort());
+	}
+
+	/**
+	 * @return The port the server listens to.
+	 */
+	public int getPort()
+	{
+		return aServerChannel.socket().getLocalPort();
+	}
+
+	/**
+	 * @return The number of tables playing.
+	 */
+	public int getTableCount()
+	{
+		return aTables.get();
+	}
+
+	/**
+	 * @return The number of games played since the server started.
+	 */
+	public long getGamesPlayed()
+	{
+		return aGames.get();
+	}
+
+	/**
+	 * Stops the server and closes all the connections.
+	 */
+	@Override
+	public void close()
+	{
+		aRunning = false;
+		aSelector.wakeup();
+		try
+		{
+			aThread.join();
+			aPool.shutdown();
+			aPool.awaitTermination(CLOSE_TIMEOUT, TimeUnit.SECONDS);
+		}
+		catch(InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Asks the selector to write the messages queued for a connection. Threadsafe.
+	 * @param pConnection The connection.
+	 */
+	void flush(Connection pConnection)
+	{
+		if( !pConnection.getOutput().isEmpty() || pConnection.isClosing() )
+		{
+			aFlushes.add(pConnection);
+			aSelector.wakeup();
+		}
+	}
+
+	void gamePlayed()
+	{
+		aGames.incrementAndGet();
+	}
+
+	void tableClosed()
+	{
+		aTables.decrementAndGet();
+	}
+
+	private void serve()
+	{
+		try
+		{
+			while( aRunning )
+			{
+				aSelector.select();
+				Connection lConnection;
+				while( (lConnection = aFlushes.poll()) != null )
+				{
+					write(lConnection);
+				}
+				Iterator<SelectionKey> lKeys = aSelector.selectedKeys().iterator();
+				while( lKeys.hasNext() )
+				{
+					SelectionKey lKey = lKeys.next();
+					lKeys.remove();
+					if( !lKey.isValid() )
+					{
+						continue;
+					}
+					if( lKey.isAcceptable() )
+					{
+						accept();
+						continue;
+					}
+					lConnection = (Connection) lKey.attachment();
+					if( lKey.isReadable() )
+					{
+						read(lConnection);
+					}
+					if( lKey.isValid() && lKey.isWritable() )
+					{
+						write(lConnection);
+					}
+				}
+			}
+		}
+		catch(IOException e)
+		{
+			e.printStackTrace();
+		}
+		finally
+		{
+			for( SelectionKey lKey : aSelector.keys() )
+			{
+				closeQuietly(lKey.channel());
+			}
+			closeQuietly(aSelector);
+		}
+	}
+
+	/*
+	 * Accepts a player. A failure, for instance when the process runs out of file
+	 * descriptors, only drops that player: the connection stays pending, or is closed.
+	 */
+	private void accept()
+	{
+		SocketChannel lChannel = null;
+		try
+		{
+			lChannel = aServerChannel.accept();
+			if( lChannel == null )
+			{
+				return;
+			}
+			lChannel.configureBlocking(false);
+			lChannel.socket().setTcpNoDelay(true);
+			SelectionKey lKey = lChannel.register(aSelector, SelectionKey.OP_READ);
+			lKey.attach(new Connection(lChannel, lKey));
+		}
+		catch(IOException e)
+		{
+			if( lChannel != null )
+			{
+				closeQuietly(lChannel);
+			}
+		}
+	}
+
+	/*
+	 * Reads what the player sent, and gives each complete message to its table.
+	 */
+	private void read(Connection pConnection)
+	{
+		ByteBuffer lInput = pConnection.getInput();
+		try
+		{
+			if( pConnection.getChannel().read(lInput) < 0 )
+			{
+				disconnect(pConnection);
+				return;
+			}
+		}
+		catch(IOException e)
+		{
+			disconnect(pConnection);
+			return;
+		}
+		lInput.flip();
+		while( lInput.hasRemaining() )
+		{
+			int lType = lInput.get(lInput.position());
+			int lSize = Protocol.payloadSize(lType);
+			if( lSize < 0 || lType >= Protocol.DEAL )
+			{
+				disconnect(pConnection);
+				return;
+			}
+			if( lInput.remaining() < 1 + lSize )
+			{
+				break;
+			}
+			lInput.get();
+			int lArgument = lSize == 0 ? 0 : lInput.get() & 0xFF;
+			if( lType == Protocol.JOIN )
+			{
+				join(pConnection);
+			}
+			else if( pConnection.getTable() != null )
+			{
+				pConnection.getTable().post(pConnection.getSeat(), lType, lArgument);
+			}
+			else
+			{
+				disconnect(pConnection);
+				return;
+			}
+		}
+		lInput.compact();
+	}
+
+	private void join(Connection pConnection)
+	{
+		if( pConnection.getTable() != null || pConnection == aWaiting )
+		{
+			disconnect(pConnection);
+		}
+		else if( aWaiting == null )
+		{
+			aWaiting = pConnection;
+		}
+		else
+		{
+			aTables.incrementAndGet();
+			new Table(this, aPool, aWaiting, pConnection, aGamesPerTable);
+			aWaiting = null;
+		}
+	}
+
+	/*
+	 * Writes as much as the channel accepts, and waits until it is writable for the rest.
+	 */
+	private void write(Connection pConnection)
+	{
+		SelectionKey lKey = pConnection.getKey();
+		if( !lKey.isValid() )
+		{
+			return;
+		}
+		Queue<ByteBuffer> lOutput = pConnection.getOutput();
+		try
+		{
+			ByteBuffer lMessage;
+			while( (lMessage = lOutput.peek()) != null )
+			{
+				pConnection.getChannel().write(lMessage);
+				if( lMessage.hasRemaining() )
+				{
+					lKey.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+					return;
+				}
+				lOutput.poll();
+			}
+		}
+		catch(IOException e)
+		{
+			disconnect(pConnection);
+			return;
+		}
+		if( pConnection.isClosing() )
+		{
+			lKey.cancel();
+			closeQuietly(pConnection.getChannel());
+		}
+		else
+		{
+			lKey.interestOps(SelectionKey.OP_READ);
+		}
+	}
+
+	private void disconnect(Connection pConnection)
+	{
+		pConnection.getKey().cancel();
+		closeQuietly(pConnection.getChannel());
+		if( pConnection == aWaiting )
+		{
+			aWaiting = null;
+		}
+		if( pConnection.getTable() != null )
+		{
+			pConnection.getTable().left(pConnection.getSeat());
+		}
+	}
+
+	private static void closeQuietly(Closeable pCloseable)
+	{
+		try
+		{
+			pCloseable.close();
+		}
+		catch(IOException e)
+		{
+			// Nothing left to do with it.
+		}
+	}
+}
@@ -0,0 +1,88 @@
+package ca.mcgill.cs.comp303.rummy.server;
+
+import java.util.Arrays;
+
+/**
+ * The binary protocol between a GameServer and its players. Every message
+ * is a type byte followed by a payload whose size depends only on the type;
+ * cards are sent as their id (see Card.getId), NO_CARD for none, and points
+ * as big-endian shorts. A player sends JOIN and is seated at a table with
+ * the next player who joins; the server then deals and prompts:
+ * <pre>
+ * server            player
+ * DEAL(seat, dealer, 10 cards, upcard)
+ * PROMPT_PASS  -->  PASS(1), or PASS(0) then DISCARD(card)     (the player who does not deal)
+ * PROMPT_TURN(top)  -->  DRAW(source)
+ * CARD(card)   -->  DISCARD(card) or KNOCK(card)
+ * END(points of seat 0, points of seat 1), then DEAL or BYE
+ * </pre>
+ * An illegal message is answered with ERROR, and the table is closed.
+ */
+public final class Protocol
+{
+	/** Player: asks for a seat. */
+	public static final byte JOIN = 0x01;
+	/** Player: 1 to pass on the first discarded card, 0 to take it. */
+	public static final byte PASS = 0x02;
+	/** Player: DECK or DISCARD_PILE, where to draw from. */
+	public static final byte DRAW = 0x03;
+	/** Player: the card to discard. */
+	public static final byte DISCARD = 0x04;
+	/** Player: the card to discard, knocking. */
+	public static final byte KNOCK = 0x05;
+
+	/** Server: the seat of the player, the seat of the dealer, the 10 cards dealt and the first discarded card. */
+	public static final byte DEAL = 0x10;
+	/** Server: the player may take the first discarded card. */
+	public static final byte PROMPT_PASS = 0x11;
+	/** Server: the turn of the player starts; the card on top of the discard pile. */
+	public static final byte PROMPT_TURN = 0x12;
+	/** Server: the card drawn. */
+	public static final byte CARD = 0x13;
+	/** Server: the game is over; the points won by each seat. */
+	public static final byte END = 0x14;
+	/** Server: all the games of the table were played. */
+	public static final byte BYE = 0x15;
+	/** Server: the last message was illegal, or the other player left. */
+	public static final byte ERROR = 0x1F;
+
+	/** The source of DRAW for the deck. */
+	public static final int DECK = 0;
+	/** The source of DRAW for the discard pile. */
+	public static final int DISCARD_PILE = 1;
+	/** The id sent for no card. */
+	public static final int NO_CARD = 0xFF;
+	/** The number of cards dealt to each player. */
+	public static final int HAND_SIZE = 10;
+
+	private static final int[] PAYLOAD_SIZES = new int[ERROR + 1];
+
+	static
+	{
+		Arrays.fill(PAYLOAD_SIZES, -1);
+		PAYLOAD_SIZES[JOIN] = 0;
+		PAYLOAD_SIZES[PASS] = 1;
+		PAYLOAD_SIZES[DRAW] = 1;
+		PAYLOAD_SIZES[DISCARD] = 1;
+		PAYLOAD_SIZES[KNOCK] = 1;
+		PAYLOAD_SIZES[DEAL] = 2 + HAND_SIZE + 1;
+		PAYLOAD_SIZES[PROMPT_PASS] = 0;
+		PAYLOAD_SIZES[PROMPT_TURN] = 1;
+		PAYLOAD_SIZES[CARD] = 1;
+		PAYLOAD_SIZES[END] = 4;
+		PAYLOAD_SIZES[BYE] = 0;
+		PAYLOAD_SIZES[ERROR] = 0;
+	}
+
+	private Protocol()
+	{}
+
+	/**
+	 * @param pType A message type.
+	 * @return The size of the payload of pType, or -1 if pType is not a message type.
+	 */
+	public static int payloadSize(int pType)
+	{
+		return pType < 0 || pType >= PAYLOAD_SIZES.length ? -1 : PAYLOAD_SIZES[pType];
+	}
+}
@@ -0,0 +1,58 @@
+package ca.mcgill.cs.comp303.rummy.server;
+
+import ca.mcgill.cs.comp303.rummy.model.Card;
+import ca.mcgill.cs.comp303.rummy.model.PlainSeat;
+
+/**
+ * The server side of a remote player: its hand, and the card it drew
+ * during its turn. It is driven by its Table, one move at a time, so it
+ * is a seat of the engine of the table, not a Player.
+ */
+final class RemoteSeat extends PlainSeat
+{
+	private Card aDrawn;
+
+	/**
+	 * @param pName The name of the player.
+	 */
+	RemoteSeat(String pName)
+	{
+		super(pName);
+	}
+
+	/**
+	 * Keeps the card drawn during a turn, until the discard.
+	 * @param pCard The card drawn.
+	 */
+	void draw(Card pCard)
+	{
+		aDrawn = pCard;
+	}
+
+	/**
+	 * @param pId The id of a card.
+	 * @return True if the player drew a card and holds the card pId.
+	 */
+	boolean canDiscard(int pId)
+	{
+		return aDrawn != null && pId < Card.NUMBER_OF_CARDS && (aDrawn.getId() == pId || getHand().contains(Card.byId(pId)));
+	}
+
+	/**
+	 * Discards a card, and puts the card drawn in the hand instead.
+	 * @param pId The id of the card to discard.
+	 * @return The card discarded.
+	 * @pre canDiscard(pId)
+	 */
+	Card discard(int pId)
+	{
+		Card lCard = Card.byId(pId);
+		if( pId != aDrawn.getId() )
+		{
+			getHand().remove(lCard);
+			getHand().add(aDrawn);
+		}
+		aDrawn = null;
+		return lCard;
+	}
+}
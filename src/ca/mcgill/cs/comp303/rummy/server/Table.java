@@ -0,0 +1,293 @@
+package ca.mcgill.cs.comp303.rummy.server;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import ca.mcgill.cs.comp303.rummy.model.Card;
+import ca.mcgill.cs.comp303.rummy.model.GameEngine;
+import ca.mcgill.cs.comp303.rummy.model.NumberOfPlayersException;
+
+/**
+ * A game between two remote players, with its own engine driven one move at
+ * a time. The messages of the players are queued by the selector of the
+ * server, and the table processes them in order on a thread of the pool,
+ * only while it has messages: a table never blocks a thread waiting for a
+ * player, so a small pool serves any number of tables.
+ */
+final class Table implements Runnable
+{
+	// Internal messages, beyond the types of the protocol.
+	private static final int START = 0x7E;
+	private static final int LEFT = 0x7F;
+
+	private static final int BYTE = 0xFF;
+	private static final int SHIFT_SEAT = 16;
+	private static final int SHIFT_TYPE = 8;
+
+	/**
+	 * What the table waits for.
+	 */
+	private enum State
+	{ DEALING, PASS, PASS_DISCARD, DRAW, DISCARD, CLOSED }
+
+	private final GameServer aServer;
+	private final Executor aPool;
+	private final Connection[] aPlayers;
+	private final RemoteSeat[] aSeats = {new RemoteSeat("Player 1"), new RemoteSeat("Player 2")};
+	private final GameEngine aEngine = new GameEngine();
+	private final Queue<Integer> aInbox = new ConcurrentLinkedQueue<Integer>();
+	private final AtomicBoolean aScheduled = new AtomicBoolean();
+
+	// Only used by the thread running the table.
+	private int aGamesLeft;
+	private State aState = State.DEALING;
+	private int aPlayer;
+
+	/**
+	 * Seats two players, who then receive the first deal.
+	 * @param pServer The server of the players.
+	 * @param pPool The threads that run the tables.
+	 * @param pPlayer0 The player of seat 0.
+	 * @param pPlayer1 The player of seat 1.
+	 * @param pGames The number of games to play.
+	 */
+	Table(GameServer pServer, Executor pPool, Connection pPlayer0, Connection pPlayer1, int pGames)
+	{
+		aServer = pServer;
+		aPool = pPool;
+		aPlayers = new Connection[] {pPlayer0, pPlayer1};
+		aGamesLeft = pGames;
+		aEngine.setSeats(aSeats[0], aSeats[1]);
+		pPlayer0.join(this, 0);
+		pPlayer1.join(this, 1);
+		post(0, START, 0);
+	}
+
+	/**
+	 * Queues a message of a player, and schedules the table if needed. Threadsafe.
+	 * @param pSeat The seat of the player.
+	 * @param pType The type of the message.
+	 * @param pArgument The payload of the message, or 0.
+	 */
+	void post(int pSeat, int pType, int pArgument)
+	{
+		aInbox.add(pSeat << SHIFT_SEAT | pType << SHIFT_TYPE | pArgument);
+		if( aScheduled.compareAndSet(false, true) )
+		{
+			aPool.execute(this);
+		}
+	}
+
+	/**
+	 * Tells the table that a player is disconnected. Threadsafe.
+	 * @param pSeat The seat of the player.
+	 */
+	void left(int pSeat)
+	{
+		post(pSeat, LEFT, 0);
+	}
+
+	@Override
+	public void run()
+	{
+		try
+		{
+			Integer lMessage;
+			while( (lMessage = aInbox.poll()) != null )
+			{
+				if( aState == State.CLOSED )
+				{
+					continue;
+				}
+				try
+				{
+					handle(lMessage >>> SHIFT_SEAT, (lMessage >>> SHIFT_TYPE) & BYTE, lMessage & BYTE);
+				}
+				catch(RuntimeException e)
+				{
+					// A bug of the table: end its game rather than leave the players waiting.
+					e.printStackTrace();
+					if( aState != State.CLOSED )
+					{
+						close(Protocol.ERROR);
+					}
+				}
+			}
+		}
+		finally
+		{
+			aServer.flush(aPlayers[0]);
+			aServer.flush(aPlayers[1]);
+			aScheduled.set(false);
+		}
+		// A message may have been posted after the last poll, but before the flag was cleared.
+		if( !aInbox.isEmpty() && aScheduled.compareAndSet(false, true) )
+		{
+			aPool.execute(this);
+		}
+	}
+
+	private void handle(int pSeat, int pType, int pArgument)
+	{
+		if( pType == START )
+		{
+			deal();
+			return;
+		}
+		if( pType == LEFT )
+		{
+			close(Protocol.ERROR);
+			return;
+		}
+		if( pSeat != aPlayer )
+		{
+			close(Protocol.ERROR);
+			return;
+		}
+		RemoteSeat lSeat = aSeats[pSeat];
+		if( aState == State.PASS && pType == Protocol.PASS )
+		{
+			if( pArgument == 1 )
+			{
+				// The player who does not deal passed, and plays first.
+				aEngine.beginTurn(pSeat);
+				prompt(pSeat);
+			}
+			else
+			{
+				lSeat.draw(aEngine.getDiscardTop());
+				aState = State.PASS_DISCARD;
+			}
+		}
+		else if( aState == State.PASS_DISCARD && pType == Protocol.DISCARD && lSeat.canDiscard(pArgument) )
+		{
+			// The player who does not deal took the first discarded card: the dealer plays first.
+			aEngine.hasDiscarded(lSeat.discard(pArgument));
+			aEngine.beginTurn(1 - pSeat);
+			prompt(1 - pSeat);
+		}
+		else if( aState == State.DRAW && pType == Protocol.DRAW &&
+				(pArgument == Protocol.DECK || pArgument == Protocol.DISCARD_PILE && aEngine.peekDiscardTop() != null) )
+		{
+			Card lCard = pArgument == Protocol.DECK ? aEngine.getDeckCard() : aEngine.getDiscardTop();
+			lSeat.draw(lCard);
+			send(pSeat, Protocol.CARD, lCard.getId());
+			aState = State.DISCARD;
+		}
+		else if( aState == State.DISCARD && (pType == Protocol.DISCARD || pType == Protocol.KNOCK) &&
+				lSeat.canDiscard(pArgument) )
+		{
+			Card lCard = lSeat.discard(pArgument);
+			if( pType == Protocol.DISCARD )
+			{
+				aEngine.endTurn(lCard);
+			}
+			else if( lSeat.getHand().canKnock() )
+			{
+				aEngine.hasKnocked(lCard, lSeat.getHand());
+			}
+			else
+			{
+				close(Protocol.ERROR);
+				return;
+			}
+			if( aEngine.isOver() )
+			{
+				end();
+			}
+			else
+			{
+				aEngine.beginTurn(1 - pSeat);
+				prompt(1 - pSeat);
+			}
+		}
+		else
+		{
+			close(Protocol.ERROR);
+		}
+	}
+
+	private void deal()
+	{
+		try
+		{
+			aEngine.deal();
+		}
+		catch(NumberOfPlayersException e)
+		{
+			throw new IllegalStateException(e);
+		}
+		aPlayer = aEngine.getCurrentPlayer();
+		for( int lSeat = 0; lSeat < 2; lSeat++ )
+		{
+			ByteBuffer lMessage = ByteBuffer.allocate(1 + Protocol.payloadSize(Protocol.DEAL));
+			lMessage.put(Protocol.DEAL).put((byte) lSeat).put((byte) (1 - aPlayer));
+			for( long lBits = aSeats[lSeat].getHand().getCards(); lBits != 0; lBits &= lBits - 1 )
+			{
+				lMessage.put((byte) Long.numberOfTrailingZeros(lBits));
+			}
+			lMessage.put((byte) aEngine.peekDiscardTop().getId());
+			lMessage.flip();
+			aPlayers[lSeat].send(lMessage);
+		}
+		send(aPlayer, Protocol.PROMPT_PASS);
+		aState = State.PASS;
+	}
+
+	private void prompt(int pSeat)
+	{
+		Card lTop = aEngine.peekDiscardTop();
+		aPlayer = pSeat;
+		send(pSeat, Protocol.PROMPT_TURN, lTop == null ? Protocol.NO_CARD : lTop.getId());
+		aState = State.DRAW;
+	}
+
+	private void end()
+	{
+		int[] lPoints = aEngine.getScore();
+		for( Connection lPlayer : aPlayers )
+		{
+			ByteBuffer lMessage = ByteBuffer.allocate(1 + Protocol.payloadSize(Protocol.END));
+			lMessage.put(Protocol.END).putShort((short) lPoints[0]).putShort((short) lPoints[1]);
+			lMessage.flip();
+			lPlayer.send(lMessage);
+		}
+		aServer.gamePlayed();
+		aGamesLeft--;
+		if( aGamesLeft > 0 )
+		{
+			deal();
+		}
+		else
+		{
+			close(Protocol.BYE);
+		}
+	}
+
+	/*
+	 * Sends a last message to both players and closes their connections.
+	 */
+	private void close(byte pMessage)
+	{
+		for( int lSeat = 0; lSeat < 2; lSeat++ )
+		{
+			send(lSeat, pMessage);
+			aPlayers[lSeat].closeWhenFlushed();
+		}
+		aState = State.CLOSED;
+		aServer.tableClosed();
+	}
+
+	private void send(int pSeat, byte pType)
+	{
+		aPlayers[pSeat].send(ByteBuffer.wrap(new byte[] {pType}));
+	}
+
+	private void send(int pSeat, byte pType, int pArgument)
+	{
+		aPlayers[pSeat].send(ByteBuffer.wrap(new byte[] {pType, (byte) pArgument}));
+	}
+}
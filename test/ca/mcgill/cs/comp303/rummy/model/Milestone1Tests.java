@@ -10,7 +10,20 @@ import org.junit.runners.Suite;
         TestDeck.class,
         TestICardSet.class,
         TestHand.class,
-        TestAutoMatch.class
+        TestAutoMatch.class,
+        TestMeldTable.class,
+        TestMatchCache.class,
+        TestKnockResolution.class,
+        TestSuitSymmetry.class,
+        TestRankSweepSolver.class,
+        TestSimulation.class,
+        TestGameSaver.class,
+        TestMoveJournal.class,
+        TestEventBus.class,
+        TestDiscardPile.class,
+        TestMonteCarloPlayer.class,
+        TestCardTracker.class,
+        TestDatasetWriter.class
         })
 public class Milestone1Tests {}
 
@@ -1,7 +1,68 @@
 package ca.mcgill.cs.comp303.rummy.model;
 
+import static ca.mcgill.cs.comp303.rummy.testutils.AllCards.*;
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
 
 public class TestAutoMatch
 {
+	private static Hand hand(Card... pCards)
+	{
+		Hand hand = new Hand();
+		for (Card card : pCards)
+		{
+			hand.add(card);
+		}
+		return hand;
+	}
+
+	private static ICardSet set(Card... pCards)
+	{
+		return new BitCardSet(Arrays.asList(pCards));
+	}
+
+	@Test
+	public void testNoMelds()
+	{
+		Hand hand = hand(CAC, C3D, C5H, C7S, C9C, CJD, CKH);
+		hand.autoMatch();
+		assertTrue(hand.getMatchedSets().isEmpty());
+		assertEquals(1 + 3 + 5 + 7 + 9 + 10 + 10, hand.score());
+	}
+
+	@Test
+	public void testRunAtEndOfHand()
+	{
+		Hand hand = hand(CAC, C2D, CJS, CQS, CKS);
+		hand.autoMatch();
+		assertEquals(set(CJS, CQS, CKS), hand.getMatchedSets().iterator().next());
+		assertEquals(3, hand.score());
+	}
+
+	@Test
+	public void testOverlappingRunAndGroup()
+	{
+		// 7H is in both the 7 group and the hearts run: the run leaves less deadwood.
+		Hand hand = hand(C7C, C7D, C7H, C5H, C6H, C8H, CKC);
+		hand.autoMatch();
+		Set<ICardSet> expected = new HashSet<ICardSet>(Arrays.asList(set(C5H, C6H, C7H, C8H)));
+		assertEquals(expected, hand.getMatchedSets());
+		assertEquals(7 + 7 + 10, hand.score());
+		assertEquals(7, hand.size());
+	}
 
+	@Test
+	public void testFourCardGroupSplit()
+	{
+		// Using three of the fours lets the four of spades extend the spades run.
+		Hand hand = hand(C4C, C4D, C4H, C4S, C5S, C6S, CQD);
+		hand.autoMatch();
+		assertEquals(10, hand.score());
+		assertEquals(2, hand.getMatchedSets().size());
+	}
 }
@@ -1,6 +1,58 @@
 package ca.mcgill.cs.comp303.rummy.model;
 
+import static ca.mcgill.cs.comp303.rummy.testutils.AllCards.*;
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import ca.mcgill.cs.comp303.rummy.model.Card.Rank;
+import ca.mcgill.cs.comp303.rummy.model.Card.Suit;
 
 public class TestCard
 {
+	@Test
+	public void testCanonicalInstances()
+	{
+		assertSame(CAC, Card.of(Rank.ACE, Suit.CLUBS));
+		assertSame(CKS, Card.of(Rank.KING, Suit.SPADES));
+		for (int i = 0; i < Card.NUMBER_OF_CARDS; i++)
+		{
+			assertEquals(i, Card.byId(i).getId());
+			assertSame(Card.byId(i), Card.of(Card.byId(i).getRank(), Card.byId(i).getSuit()));
+		}
+	}
+	
+	@Test
+	public void testId()
+	{
+		assertEquals(0, CAC.getId());
+		assertEquals(13, CAD.getId());
+		assertEquals(51, CKS.getId());
+		assertEquals(CTH.getId(), CTH.hashCode());
+	}
+	
+	@Test
+	public void testValue()
+	{
+		assertEquals(1, CAH.value());
+		assertEquals(9, C9D.value());
+		assertEquals(10, CTC.value());
+		assertEquals(10, CKS.value());
+	}
+	
+	@Test
+	public void testCompareTo()
+	{
+		assertTrue(CAS.compareTo(C2C) < 0);
+		assertTrue(C5H.compareTo(C5D) > 0);
+		assertEquals(0, C5H.compareTo(C5H));
+	}
+	
+	@Test
+	public void testEquals()
+	{
+		assertEquals(CQD, Card.of(Rank.QUEEN, Suit.DIAMONDS));
+		assertFalse(CQD.equals(CQH));
+		assertFalse(CQD.equals(null));
+	}
 }
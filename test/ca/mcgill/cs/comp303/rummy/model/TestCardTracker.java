@@ -0,0 +1,139 @@
+package ca.mcgill.cs.comp303.rummy.model;
+
+import static ca.mcgill.cs.comp303.rummy.testutils.AllCards.*;
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class TestCardTracker
+{
+	private static long mask(Card... pCards)
+	{
+		return CardMask.of(Arrays.asList(pCards));
+	}
+
+	// Player 1 takes the 7 of hearts and the 7 of clubs, discards the 2 of spades.
+	private static CardTracker tracker()
+	{
+		CardTracker tracker = new CardTracker();
+		tracker.update(GameEvent.Type.DEAL, 0, C7H, null);
+		tracker.update(GameEvent.Type.DRAW_DISCARD, 1, C7H, C7H);
+		tracker.update(GameEvent.Type.DISCARD, 1, C2S, null);
+		tracker.update(GameEvent.Type.DRAW_DECK, 0, C9D, C2S);
+		tracker.update(GameEvent.Type.DISCARD, 0, C7C, null);
+		tracker.update(GameEvent.Type.DRAW_DISCARD, 1, C7C, C7C);
+		tracker.update(GameEvent.Type.DISCARD, 1, CKD, null);
+		return tracker;
+	}
+
+	@Test
+	public void testUpdate()
+	{
+		CardTracker tracker = tracker();
+		assertEquals(mask(C7H, C7C), tracker.getTaken(1));
+		assertEquals(0, tracker.getTaken(0));
+		assertEquals(mask(C2S, CKD), tracker.getDiscarded(1));
+		assertEquals(mask(C7C), tracker.getDiscarded(0));
+		assertEquals(mask(C2S, CKD), tracker.getPile());
+		assertEquals(mask(C2S), tracker.getDeclined(0));
+		assertEquals(0, tracker.getDeclined(1));
+
+		// A card taken then discarded is no longer known to be held.
+		tracker.update(GameEvent.Type.DRAW_DISCARD, 0, CKD, CKD);
+		tracker.update(GameEvent.Type.DISCARD, 0, CKD, null);
+		assertEquals(0, tracker.getTaken(0));
+
+		tracker.update(GameEvent.Type.DEAL, 1, C3H, null);
+		assertEquals(0, tracker.getTaken(1));
+		assertEquals(0, tracker.getDiscarded(1));
+		assertEquals(0, tracker.getDeclined(0));
+		assertEquals(mask(C3H), tracker.getPile());
+	}
+
+	@Test
+	public void testProbability()
+	{
+		CardTracker tracker = tracker();
+		long myHand = mask(CAC, C2C, C3C, C4C, C5C, C6C, C8C, C9C, CTC, CJC);
+		assertEquals(1, tracker.probability(1, myHand, C7H), 0);
+		assertEquals(0, tracker.probability(1, myHand, C5C), 0);
+		assertEquals(0, tracker.probability(1, myHand, CKD), 0);
+		// 8 cards unknown among 52 - 10 in my hand - 2 on the pile - 2 known, of which
+		// 10 meld with the discarded 2 of spades or king of diamonds, and weigh a quarter.
+		assertEquals(mask(C2C, C2D, C2H, CAS, C3S, C4S, CKC, CKH, CKS, CQD, CJD), tracker.getUnlikely(1));
+		assertEquals(8.0 / 30.5, tracker.probability(1, myHand, CQS), 1e-9);
+		assertEquals(8.0 * 0.25 / 30.5, tracker.probability(1, myHand, C3S), 1e-9);
+
+		double total = 0;
+		for (int id = 0; id < Card.NUMBER_OF_CARDS; id++)
+		{
+			total += tracker.probability(1, myHand, Card.byId(id));
+		}
+		assertEquals(10, total, 1e-9);
+	}
+
+	@Test
+	public void testCompletesKnownMeld()
+	{
+		CardTracker tracker = tracker();
+		assertTrue(tracker.completesKnownMeld(1, C7D));
+		assertTrue(tracker.completesKnownMeld(1, C7S));
+		assertFalse(tracker.completesKnownMeld(1, C8H));
+		assertFalse(tracker.completesKnownMeld(0, C7D));
+
+		tracker.update(GameEvent.Type.DRAW_DISCARD, 0, CKD, CKD);
+		tracker.update(GameEvent.Type.DISCARD, 0, C4S, null);
+		tracker.update(GameEvent.Type.DRAW_DISCARD, 1, C4S, C4S);
+		tracker.update(GameEvent.Type.DISCARD, 1, C9H, null);
+		tracker.update(GameEvent.Type.DRAW_DISCARD, 0, C9H, C9H);
+		tracker.update(GameEvent.Type.DISCARD, 0, C5S, null);
+		tracker.update(GameEvent.Type.DRAW_DISCARD, 1, C5S, C5S);
+		assertTrue(tracker.completesKnownMeld(1, C3S));
+		assertTrue(tracker.completesKnownMeld(1, C6S));
+		assertFalse(tracker.completesKnownMeld(1, C2H));
+	}
+
+	@Test
+	public void testCanFeed()
+	{
+		CardTracker tracker = new CardTracker();
+		tracker.update(GameEvent.Type.DEAL, 0, CJD, null);
+		// All the other kings and the queen of diamonds are in my hand, the jack is on the pile.
+		long myHand = mask(CKC, CKH, CKS, CQD);
+		assertFalse(tracker.canFeed(1, myHand, CKD));
+		assertTrue(tracker.canFeed(1, myHand & ~mask(CKH, CKS), CKD));
+		// The jack is back in play, but the run still needs the queen.
+		tracker.update(GameEvent.Type.DEAL, 0, C2C, null);
+		assertFalse(tracker.canFeed(1, myHand, CKD));
+		assertTrue(tracker.canFeed(1, myHand & ~mask(CQD), CKD));
+	}
+
+	@Test
+	public void testDecliningLowersTheEstimate()
+	{
+		CardTracker tracker = new CardTracker();
+		tracker.update(GameEvent.Type.DEAL, 0, C5H, null);
+		// The runs of the 5 of diamonds are in my hand: only the other fives can meld with it.
+		long myHand = mask(C3D, C4D, C6D, C7D);
+		double before = tracker.probability(1, myHand, C5S);
+		assertEquals(before, tracker.probability(1, myHand, CQC), 0);
+		assertTrue(tracker.canFeed(1, myHand, C5D));
+
+		// Player 1 leaves the 5 of hearts on the pile: the other fives are less likely in their hand.
+		tracker.update(GameEvent.Type.DRAW_DECK, 1, C9C, C5H);
+		assertEquals(mask(C5H), tracker.getDeclined(1));
+		assertTrue(tracker.probability(1, myHand, C5S) < before);
+		assertTrue(tracker.probability(1, myHand, C6H) < tracker.probability(1, myHand, CQC));
+		assertTrue(tracker.probability(1, myHand, CQC) > before);
+		assertFalse(tracker.canFeed(1, myHand, C5D));
+		// Player 0 declined nothing.
+		assertTrue(tracker.canFeed(0, myHand, C5D));
+
+		CardTracker restored = new CardTracker();
+		restored.restore(tracker.toMasks());
+		assertEquals(mask(C5H), restored.getDeclined(1));
+		assertEquals(tracker.probability(1, myHand, C5S), restored.probability(1, myHand, C5S), 0);
+	}
+}
@@ -0,0 +1,147 @@
+package ca.mcgill.cs.comp303.rummy.model;
+
+import static org.junit.Assert.*;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TestDatasetWriter
+{
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	// Reads the records of all the chunks, checking their headers.
+	private static ByteBuffer readRecords(Path directory, long recordsPerChunk) throws Exception
+	{
+		List<byte[]> chunks = new ArrayList<byte[]>();
+		int total = 0;
+		for (int i = 0; Files.exists(directory.resolve(String.format("games-%05d.bin", i))); i++)
+		{
+			byte[] chunk = Files.readAllBytes(directory.resolve(String.format("games-%05d.bin", i)));
+			ByteBuffer header = ByteBuffer.wrap(chunk);
+			assertEquals(DatasetWriter.MAGIC, header.getInt());
+			assertEquals(1, header.getShort());
+			assertEquals(DatasetWriter.RECORD_SIZE, header.getShort());
+			int records = (chunk.length - DatasetWriter.HEADER_SIZE) / DatasetWriter.RECORD_SIZE;
+			assertEquals(DatasetWriter.HEADER_SIZE + records * DatasetWriter.RECORD_SIZE, chunk.length);
+			assertTrue(records > 0 && records <= recordsPerChunk);
+			chunks.add(chunk);
+			total += records;
+		}
+		ByteBuffer all = ByteBuffer.allocate(total * DatasetWriter.RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		for (byte[] chunk : chunks)
+		{
+			all.put(chunk, DatasetWriter.HEADER_SIZE, chunk.length - DatasetWriter.HEADER_SIZE);
+		}
+		all.flip();
+		return all;
+	}
+
+	@Test
+	public void testRecordsOfGames() throws Exception
+	{
+		Path directory = folder.getRoot().toPath();
+		DatasetWriter dataset = new DatasetWriter(directory, "games", 50);
+		GameEngine engine = new GameEngine(303);
+		engine.addPlayer(new RandomPlayer("A", engine));
+		engine.addPlayer(new RandomPlayer("B", engine));
+		engine.setDataset(dataset);
+		int games = 10;
+		int[] turns = new int[games];
+		int[][] points = new int[games][];
+		for (int i = 0; i < games; i++)
+		{
+			long before = dataset.getRecords();
+			engine.newGame();
+			turns[i] = (int) (dataset.getRecords() - before);
+			points[i] = engine.getScore().clone();
+		}
+		engine.setDataset(null);
+		dataset.close();
+		assertEquals(games, dataset.getGames());
+
+		ByteBuffer records = readRecords(directory, 50);
+		assertEquals(dataset.getRecords(), records.remaining() / DatasetWriter.RECORD_SIZE);
+		for (int game = 0; game < games; game++)
+		{
+			assertTrue(turns[game] > 0);
+			for (int turn = 0; turn < turns[game]; turn++)
+			{
+				int start = records.position();
+				long hand = records.getLong();
+				long pile = records.getLong();
+				assertEquals(game, records.getInt());
+				short won = records.getShort();
+				int player = records.get();
+				assertEquals(points[game][player] - points[game][1 - player], won);
+				assertEquals(turn, records.get() & 0xFF);
+				int top = records.get() & 0xFF;
+				int from = records.get();
+				int drawn = records.get();
+				int discarded = records.get();
+				int knocked = records.get();
+				records.position(start + DatasetWriter.RECORD_SIZE);
+
+				assertEquals(10, Long.bitCount(hand));
+				assertEquals(0, hand & pile);
+				assertEquals(0, hand & (1L << drawn));
+				assertTrue(((hand | 1L << drawn) & 1L << discarded) != 0);
+				if (from == 1)
+				{
+					assertEquals(top, drawn);
+				}
+				else
+				{
+					assertEquals(0, from);
+				}
+				assertTrue(knocked == 0 || turn == turns[game] - 1);
+			}
+		}
+		assertFalse(records.hasRemaining());
+	}
+
+	@Test
+	public void testLongGameIsNotTruncated() throws Exception
+	{
+		Path directory = folder.getRoot().toPath();
+		DatasetWriter dataset = new DatasetWriter(directory, "games", 1000);
+		GameEngine engine = new GameEngine(303);
+		engine.addPlayer(new RandomPlayer("A", engine));
+		engine.addPlayer(new RandomPlayer("B", engine));
+		engine.deal();
+		// Taking and discarding the same card forever: longer than a block.
+		int turns = 3000;
+		Card card = engine.peekDiscardTop();
+		DatasetWriter.Recorder recorder = dataset.newRecorder();
+		recorder.record(engine, GameEvent.Type.DEAL, 0, card);
+		for (int i = 0; i < turns; i++)
+		{
+			recorder.record(engine, GameEvent.Type.DRAW_DISCARD, i % 2, card);
+			recorder.record(engine, GameEvent.Type.DISCARD, i % 2, card);
+		}
+		recorder.record(engine, GameEvent.Type.END, 0, null);
+		recorder.release();
+		dataset.close();
+		assertEquals(turns, dataset.getRecords());
+
+		ByteBuffer records = readRecords(directory, 1000);
+		assertEquals(turns, records.remaining() / DatasetWriter.RECORD_SIZE);
+		for (int i = 0; i < turns; i++)
+		{
+			int start = i * DatasetWriter.RECORD_SIZE;
+			assertEquals(0, records.getInt(start + 16));
+			assertEquals(i % 2, records.get(start + 22));
+			assertEquals(i % 256, records.get(start + 23) & 0xFF);
+			assertEquals(card.getId(), records.get(start + 26));
+			assertEquals(card.getId(), records.get(start + 27));
+		}
+	}
+}
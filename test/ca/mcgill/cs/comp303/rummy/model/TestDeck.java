@@ -1,6 +1,63 @@
 package ca.mcgill.cs.comp303.rummy.model;
 
+import static org.junit.Assert.*;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
 
 public class TestDeck
 {
+	@Test
+	public void testDrawAll()
+	{
+		Deck deck = new Deck();
+		assertEquals(52, deck.size());
+		Set<Card> drawn = new HashSet<Card>();
+		while (deck.size() > 0)
+		{
+			drawn.add(deck.draw());
+		}
+		assertEquals(52, drawn.size());
+	}
+	
+	@Test
+	public void testShuffleRefills()
+	{
+		Deck deck = new Deck();
+		deck.draw();
+		deck.draw();
+		assertEquals(50, deck.size());
+		deck.shuffle();
+		assertEquals(52, deck.size());
+	}
+	
+	@Test
+	public void testSeedIsReproducible()
+	{
+		Deck deck1 = new Deck(303);
+		Deck deck2 = new Deck(303);
+		for (int i = 0; i < 2; i++)
+		{
+			while (deck1.size() > 0)
+			{
+				assertSame(deck1.draw(), deck2.draw());
+			}
+			deck1.shuffle();
+			deck2.shuffle();
+		}
+	}
+	
+	@Test
+	public void testRestore()
+	{
+		Deck deck = new Deck();
+		deck.draw();
+		byte[] ids = deck.toIds();
+		Card next = deck.draw();
+		deck.restore(ids);
+		assertEquals(51, deck.size());
+		assertSame(next, deck.draw());
+	}
 }
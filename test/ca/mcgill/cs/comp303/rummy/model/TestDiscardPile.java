@@ -0,0 +1,79 @@
+package ca.mcgill.cs.comp303.rummy.model;
+
+import static ca.mcgill.cs.comp303.rummy.testutils.AllCards.*;
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class TestDiscardPile
+{
+	@Test
+	public void testPushPopPeek()
+	{
+		DiscardPile pile = new DiscardPile();
+		assertTrue(pile.isEmpty());
+		assertNull(pile.peek());
+		pile.push(C5H);
+		pile.push(CKS);
+		assertEquals(2, pile.size());
+		assertEquals(CKS, pile.peek());
+		assertEquals(CKS, pile.pop());
+		assertEquals(C5H, pile.peek());
+		assertEquals(C5H, pile.pop());
+		assertTrue(pile.isEmpty());
+		assertNull(pile.peek());
+	}
+
+	@Test
+	public void testSeenKeepsCardsTaken()
+	{
+		DiscardPile pile = new DiscardPile();
+		pile.push(CAC);
+		pile.push(C2D);
+		pile.pop();
+		pile.push(CQH);
+		assertEquals(CardMask.of(CAC) | CardMask.of(C2D) | CardMask.of(CQH), pile.getSeen());
+		pile.clear();
+		assertEquals(0, pile.getSeen());
+		assertEquals(0, pile.size());
+		assertNull(pile.peek());
+	}
+
+	@Test
+	public void testAllCards()
+	{
+		DiscardPile pile = new DiscardPile();
+		for (int id = 0; id < Card.NUMBER_OF_CARDS; id++)
+		{
+			pile.push(Card.byId(id));
+		}
+		assertEquals(Card.NUMBER_OF_CARDS, pile.size());
+		assertEquals(CardMask.ALL, pile.getSeen());
+		for (int id = Card.NUMBER_OF_CARDS - 1; id >= 0; id--)
+		{
+			assertEquals(Card.byId(id), pile.pop());
+		}
+		assertEquals(CardMask.ALL, pile.getSeen());
+	}
+
+	@Test
+	public void testRestore()
+	{
+		DiscardPile pile = new DiscardPile();
+		pile.push(C9S);
+		pile.push(CTC);
+		pile.pop();
+		pile.push(C3H);
+		DiscardPile restored = new DiscardPile();
+		restored.push(CKD);
+		restored.restore(pile.toIds(), pile.getSeen());
+		assertArrayEquals(new byte[] {(byte) C9S.getId(), (byte) C3H.getId()}, restored.toIds());
+		assertEquals(pile.getSeen(), restored.getSeen());
+		assertEquals(C3H, restored.peek());
+		assertEquals(2, restored.size());
+
+		restored.restore(new byte[0], 0);
+		assertTrue(restored.isEmpty());
+		assertNull(restored.peek());
+	}
+}
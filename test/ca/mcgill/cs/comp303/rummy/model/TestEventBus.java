@@ -0,0 +1,221 @@
+package ca.mcgill.cs.comp303.rummy.model;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class TestEventBus
+{
+	private static final long TIMEOUT = 10000;
+
+	// Collects the events; the first call waits until the listener is released.
+	private static class Collector implements GameListener
+	{
+		private final List<GameEvent> events = Collections.synchronizedList(new ArrayList<GameEvent>());
+		private final List<Integer> batches = Collections.synchronizedList(new ArrayList<Integer>());
+		private final CountDownLatch entered = new CountDownLatch(1);
+		private final CountDownLatch released;
+
+		Collector(boolean blocked)
+		{
+			released = new CountDownLatch(blocked ? 1 : 0);
+		}
+
+		@Override
+		public void gameEvents(List<GameEvent> pEvents)
+		{
+			entered.countDown();
+			try
+			{
+				released.await();
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+			}
+			batches.add(pEvents.size());
+			events.addAll(pEvents);
+		}
+
+		void awaitEntered() throws InterruptedException
+		{
+			assertTrue(entered.await(TIMEOUT, TimeUnit.MILLISECONDS));
+		}
+	}
+
+	private static GameEvent event(GameEngine engine, int sequence)
+	{
+		return new GameEvent(engine, GameEvent.Type.DISCARD, 0, Card.byId(sequence % Card.NUMBER_OF_CARDS), 0, 0, null);
+	}
+
+	@Test
+	public void testOrderAcrossProducers() throws Exception
+	{
+		final int producers = 4;
+		final int events = 500;
+		final EventBus bus = new EventBus();
+		Collector collector = new Collector(false);
+		EventBus.Subscription subscription = bus.subscribe(collector, producers * events, 16, false);
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int i = 0; i < producers; i++)
+		{
+			final GameEngine engine = new GameEngine();
+			threads.add(new Thread(new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					for (int k = 0; k < events; k++)
+					{
+						bus.publish(event(engine, k));
+					}
+				}
+			}));
+		}
+		for (Thread thread : threads)
+		{
+			thread.start();
+		}
+		for (Thread thread : threads)
+		{
+			thread.join();
+		}
+		subscription.cancel();
+		assertTrue(subscription.awaitTermination(TIMEOUT));
+
+		assertEquals(0, subscription.getDropped());
+		assertEquals(producers * events, collector.events.size());
+		// The events of each producer arrive in the order it published them.
+		Map<GameEngine, Integer> next = new HashMap<GameEngine, Integer>();
+		for (GameEvent event : collector.events)
+		{
+			int expected = next.containsKey(event.getEngine()) ? next.get(event.getEngine()) : 0;
+			assertEquals(expected % Card.NUMBER_OF_CARDS, event.getCard().getId());
+			next.put(event.getEngine(), expected + 1);
+		}
+		assertEquals(producers, next.size());
+		for (int batch : collector.batches)
+		{
+			assertTrue(batch > 0 && batch <= 16);
+		}
+	}
+
+	@Test
+	public void testDropWhenFull() throws Exception
+	{
+		EventBus bus = new EventBus();
+		Collector collector = new Collector(true);
+		EventBus.Subscription subscription = bus.subscribe(collector, 8, 1, false);
+		GameEngine engine = new GameEngine();
+		bus.publish(event(engine, 0));
+		// The first event is being delivered: the buffer is empty and the listener is stuck.
+		collector.awaitEntered();
+		for (int k = 1; k <= 13; k++)
+		{
+			bus.publish(event(engine, k));
+		}
+		assertEquals(5, subscription.getDropped());
+		collector.released.countDown();
+		subscription.cancel();
+		assertTrue(subscription.awaitTermination(TIMEOUT));
+
+		assertEquals(9, collector.events.size());
+		for (int k = 0; k < 9; k++)
+		{
+			assertEquals(k, collector.events.get(k).getCard().getId());
+		}
+		assertEquals(9, subscription.getDelivered());
+	}
+
+	@Test
+	public void testCoalescing() throws Exception
+	{
+		EventBus bus = new EventBus();
+		Collector collector = new Collector(true);
+		EventBus.Subscription subscription = bus.subscribe(collector, 16, 16, true);
+		GameEngine first = new GameEngine();
+		GameEngine second = new GameEngine();
+		bus.publish(event(first, 0));
+		collector.awaitEntered();
+		// Consecutive events of an engine are replaced by the last one.
+		bus.publish(event(first, 1));
+		bus.publish(event(first, 2));
+		bus.publish(event(second, 3));
+		bus.publish(event(second, 4));
+		bus.publish(event(first, 5));
+		collector.released.countDown();
+		subscription.cancel();
+		assertTrue(subscription.awaitTermination(TIMEOUT));
+
+		assertEquals(4, collector.events.size());
+		int[] expected = {0, 2, 4, 5};
+		for (int k = 0; k < expected.length; k++)
+		{
+			assertEquals(expected[k], collector.events.get(k).getCard().getId());
+		}
+		assertEquals(6, subscription.getDelivered());
+		assertEquals(0, subscription.getDropped());
+	}
+
+	@Test
+	public void testCancelThenDrain() throws Exception
+	{
+		EventBus bus = new EventBus();
+		Collector collector = new Collector(true);
+		EventBus.Subscription subscription = bus.subscribe(collector, 16, 4, false);
+		GameEngine engine = new GameEngine();
+		bus.publish(event(engine, 0));
+		collector.awaitEntered();
+		for (int k = 1; k < 10; k++)
+		{
+			bus.publish(event(engine, k));
+		}
+		subscription.cancel();
+		assertFalse(bus.hasSubscribers());
+		// Published after the cancel: not delivered.
+		bus.publish(event(engine, 10));
+		collector.released.countDown();
+		assertTrue(subscription.awaitTermination(TIMEOUT));
+
+		assertEquals(10, collector.events.size());
+		for (int k = 0; k < 10; k++)
+		{
+			assertEquals(k, collector.events.get(k).getCard().getId());
+		}
+	}
+
+	@Test
+	public void testEventsCarryTheTable() throws Exception
+	{
+		GameEngine engine = new GameEngine(303);
+		engine.addPlayer(new RandomPlayer("A", engine));
+		engine.addPlayer(new RandomPlayer("B", engine));
+		Collector collector = new Collector(false);
+		EventBus.Subscription subscription = engine.getEventBus().subscribe(collector, 1024, 16, false);
+		engine.newGame();
+		subscription.cancel();
+		assertTrue(subscription.awaitTermination(TIMEOUT));
+
+		assertEquals(GameEvent.Type.DEAL, collector.events.get(0).getType());
+		for (GameEvent event : collector.events)
+		{
+			// Between turns, never in the middle of one.
+			assertEquals(10, Long.bitCount(event.getHand(0)));
+			assertEquals(10, Long.bitCount(event.getHand(1)));
+			assertEquals(0, event.getHand(0) & event.getHand(1));
+		}
+		GameEvent last = collector.events.get(collector.events.size() - 1);
+		assertEquals(GameEvent.Type.END, last.getType());
+		assertEquals(engine.getSeat(0).getHand().getCards(), last.getHand(0));
+		assertEquals(engine.getSeat(1).getHand().getCards(), last.getHand(1));
+		assertEquals(engine.peekDiscardTop(), last.getTop());
+	}
+}
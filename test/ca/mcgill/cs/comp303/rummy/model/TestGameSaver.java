@@ -0,0 +1,132 @@
+package ca.mcgill.cs.comp303.rummy.model;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TestGameSaver
+{
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	// Deals, then plays a turn from the discard pile and a turn from the deck for player 0.
+	private static GameEngine playedEngine(String name) throws Exception
+	{
+		GameEngine engine = new GameEngine(303);
+		engine.addPlayer(new MonteCarloPlayer("Carlo", engine));
+		engine.addPlayer(new RandomPlayer(name, engine));
+		engine.deal();
+		Hand hand = engine.getHumanPlayer().getHand();
+		Card taken = engine.peekDiscardTop();
+		for (int turn = 0; turn < 2; turn++)
+		{
+			engine.beginTurn(0);
+			Card drawn = turn == 0 ? engine.getDiscardTop() : engine.getDeckCard();
+			// Keeps the card taken, so that the tracker knows it is in the hand.
+			Card discard = CardMask.toList(hand.getCards() & ~CardMask.of(taken)).get(0);
+			hand.remove(discard);
+			hand.add(drawn);
+			engine.endTurn(discard);
+		}
+		return engine;
+	}
+
+	private static void assertSameEngine(GameEngine expected, GameEngine actual)
+	{
+		assertEquals(expected.getState(), actual.getState());
+		assertEquals(expected.getDealer(), actual.getDealer());
+		assertEquals(expected.getGamesToPlay(), actual.getGamesToPlay());
+		assertArrayEquals(expected.getScore(), actual.getScore());
+		assertArrayEquals(expected.getDeck().toIds(), actual.getDeck().toIds());
+		assertArrayEquals(expected.getDiscardPile().toIds(), actual.getDiscardPile().toIds());
+		assertEquals(expected.getDiscardPile().getSeen(), actual.getDiscardPile().getSeen());
+		assertArrayEquals(expected.getTracker().toMasks(), actual.getTracker().toMasks());
+		Player[] expectedPlayers = {expected.getHumanPlayer(), expected.getAIPlayer()};
+		Player[] actualPlayers = {actual.getHumanPlayer(), actual.getAIPlayer()};
+		for (int i = 0; i < 2; i++)
+		{
+			assertEquals(expectedPlayers[i].getClass(), actualPlayers[i].getClass());
+			assertEquals(expectedPlayers[i].getName(), actualPlayers[i].getName());
+			assertEquals(expectedPlayers[i].getHand().getCards(), actualPlayers[i].getHand().getCards());
+		}
+	}
+
+	@Test
+	public void testFileRoundTrip() throws Exception
+	{
+		GameEngine engine = playedEngine("Rand");
+		assertNotEquals(0, engine.getTracker().getTaken(0));
+		Path file = folder.newFile("game.dat").toPath();
+		GameSaver.write(engine, file);
+		assertSameEngine(engine, GameSaver.read(file));
+		assertFalse(Files.exists(file.resolveSibling("game.dat.tmp")));
+	}
+
+	@Test
+	public void testFailedWriteKeepsPreviousSave() throws Exception
+	{
+		GameEngine engine = playedEngine("Rand");
+		Path file = folder.getRoot().toPath().resolve("game.dat");
+		GameSaver.write(engine, file);
+		// The temporary file cannot be opened: the save in place must survive.
+		Path temporary = Files.createDirectory(file.resolveSibling("game.dat.tmp"));
+		try
+		{
+			GameSaver.write(playedEngine("Other"), file);
+			fail();
+		}
+		catch (IOException e)
+		{
+			// Expected.
+		}
+		assertSameEngine(engine, GameSaver.read(file));
+		assertFalse(Files.exists(temporary));
+	}
+
+	@Test
+	public void testLongName() throws Exception
+	{
+		char[] name = new char[40000];
+		Arrays.fill(name, 'x');
+		GameEngine engine = playedEngine(new String(name));
+		assertSameEngine(engine, GameSaver.decode(GameSaver.encode(engine)));
+	}
+
+	@Test
+	public void testEngineWithoutGame() throws Exception
+	{
+		GameEngine engine = new GameEngine();
+		engine.addPlayer(new HumanPlayer());
+		engine.addPlayer(new RandomPlayer("Rand", engine));
+		GameEngine loaded = GameSaver.decode(GameSaver.encode(engine));
+		assertTrue(loaded.getHumanPlayer() instanceof HumanPlayer);
+		assertTrue(loaded.getAIPlayer() instanceof RandomPlayer);
+		assertEquals("Rand", loaded.getAIPlayer().getName());
+		assertNull(loaded.getDeck());
+		assertNull(loaded.getDiscardPile());
+	}
+
+	@Test(expected = IOException.class)
+	public void testTruncatedSave() throws Exception
+	{
+		ByteBuffer encoded = GameSaver.encode(playedEngine("Rand"));
+		encoded.limit(encoded.limit() - 1);
+		GameSaver.decode(encoded);
+	}
+
+	@Test(expected = IOException.class)
+	public void testOtherVersion() throws Exception
+	{
+		ByteBuffer encoded = GameSaver.encode(playedEngine("Rand"));
+		encoded.putShort(4, (short) 2);
+		GameSaver.decode(encoded);
+	}
+}
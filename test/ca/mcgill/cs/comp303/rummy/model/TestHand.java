@@ -1,6 +1,116 @@
 package ca.mcgill.cs.comp303.rummy.model;
 
+import static ca.mcgill.cs.comp303.rummy.testutils.AllCards.*;
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
 
 public class TestHand
 {
+	private static Set<Card> cards(Card... pCards)
+	{
+		return new HashSet<Card>(Arrays.asList(pCards));
+	}
+
+	private static Hand hand(Card... pCards)
+	{
+		Hand hand = new Hand();
+		for (Card card : pCards)
+		{
+			hand.add(card);
+		}
+		return hand;
+	}
+
+	@Test
+	public void testAddRemove()
+	{
+		Hand hand = hand(C2C, C3D);
+		assertEquals(2, hand.size());
+		assertTrue(hand.contains(C2C));
+		hand.remove(C2C);
+		assertFalse(hand.contains(C2C));
+		assertEquals(1, hand.size());
+		hand.remove(C2C);
+		assertEquals(1, hand.size());
+	}
+
+	@Test(expected = HandException.class)
+	public void testAddDuplicate()
+	{
+		hand(C2C, C2C);
+	}
+
+	@Test(expected = HandException.class)
+	public void testAddToCompleteHand()
+	{
+		Hand hand = hand(CAC, C2C, C3C, C4C, C5C, C6C, C7C, C8C, C9C, CTC);
+		assertTrue(hand.isComplete());
+		hand.add(CJC);
+	}
+
+	@Test
+	public void testCreateGroupAndRun()
+	{
+		Hand hand = hand(C5C, C5D, C5H, C8S, C9S, CTS, CKD);
+		hand.createGroup(cards(C5C, C5D, C5H));
+		hand.createRun(cards(C8S, C9S, CTS));
+		assertEquals(2, hand.getMatchedSets().size());
+		assertEquals(cards(CKD), hand.getUnmatchedCards());
+		assertEquals(10, hand.score());
+		assertEquals(7, hand.size());
+	}
+
+	@Test(expected = HandException.class)
+	public void testCreateInvalidRun()
+	{
+		Hand hand = hand(C8S, C9S, CJS);
+		hand.createRun(cards(C8S, C9S, CJS));
+	}
+
+	@Test
+	public void testDeadwood()
+	{
+		Hand hand = hand(C5C, C5D, C8S, C9S, CKD);
+		assertEquals(5 + 5 + 8 + 9 + 10, hand.deadwood());
+		assertEquals(5 + 5 + 10, hand.deadwoodIfAdded(CTS));
+		hand.add(CTS);
+		assertEquals(5 + 5 + 10, hand.deadwood());
+		assertEquals(10, hand.deadwoodIfAdded(C5H));
+		assertEquals(5 + 5, hand.deadwoodIfRemoved(CKD));
+		assertEquals(5 + 5 + 10 + 8 + 10, hand.deadwoodIfRemoved(C9S));
+		hand.remove(C9S);
+		assertEquals(5 + 5 + 10 + 8 + 10, hand.deadwood());
+		assertFalse(hand.canKnock());
+		hand.add(C5H);
+		hand.add(C9S);
+		assertTrue(hand.canKnock());
+		assertEquals(10, hand.getOptimalMatching().getDeadwood());
+	}
+
+	@Test
+	public void testAnalyzeDiscards()
+	{
+		Hand hand = hand(C5C, C5D, C5H, C5S, C6S, C7S, C9C, C9D, CKD, CAH);
+		assertTrue(hand.isComplete());
+		DiscardAnalysis analysis = hand.analyzeDiscards(CQH);
+		assertEquals(9 + 9 + 10 + 1, analysis.getDeadwoodAfter(CQH));
+		assertEquals(7 + 9 + 9 + 10 + 10 + 1, analysis.getDeadwoodAfter(C6S));
+		assertEquals(9 + 9 + 10 + 1, analysis.getBestDeadwood());
+		assertEquals(10, analysis.getBestDiscard().value());
+	}
+
+	@Test
+	public void testRemoveBreaksSet()
+	{
+		Hand hand = hand(C5C, C5D, C5H, CKD);
+		hand.createGroup(cards(C5C, C5D, C5H));
+		hand.remove(C5D);
+		assertTrue(hand.getMatchedSets().isEmpty());
+		assertEquals(cards(C5C, C5H, CKD), hand.getUnmatchedCards());
+	}
 }
@@ -1,7 +1,68 @@
 package ca.mcgill.cs.comp303.rummy.model;
 
+import static ca.mcgill.cs.comp303.rummy.testutils.AllCards.*;
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+
+import org.junit.Test;
 
 public class TestICardSet
 {
+	private static ICardSet set(Card... pCards)
+	{
+		return new BitCardSet(Arrays.asList(pCards));
+	}
+
+	@Test
+	public void testContainsAndSize()
+	{
+		ICardSet set = set(C3C, C4C, C5C);
+		assertEquals(3, set.size());
+		assertTrue(set.contains(C4C));
+		assertFalse(set.contains(C4D));
+	}
+
+	@Test
+	public void testIsGroup()
+	{
+		assertTrue(set(C7C, C7D, C7S).isGroup());
+		assertTrue(set(CKC, CKD, CKH, CKS).isGroup());
+		assertFalse(set(C7C, C7D).isGroup());
+		assertFalse(set(C7C, C7D, C8S).isGroup());
+		assertFalse(set(C7C, C8C, C9C).isGroup());
+	}
+
+	@Test
+	public void testIsRun()
+	{
+		assertTrue(set(CAH, C2H, C3H).isRun());
+		assertTrue(set(CTS, CJS, CQS, CKS).isRun());
+		assertFalse(set(CAH, C2H).isRun());
+		assertFalse(set(CAH, C2H, C4H).isRun());
+		assertFalse(set(CAH, C2H, C3D).isRun());
+		// Suits are stored in consecutive bits: the king of clubs does not precede the ace of diamonds.
+		assertFalse(set(CQC, CKC, CAD).isRun());
+	}
+
+	@Test
+	public void testEquals()
+	{
+		assertEquals(set(C2D, C3D, C4D), set(C4D, C2D, C3D));
+		assertEquals(set(C2D, C3D, C4D).hashCode(), set(C4D, C2D, C3D).hashCode());
+		assertFalse(set(C2D, C3D, C4D).equals(set(C2D, C3D, C5D)));
+	}
 
+	@Test
+	public void testIterator()
+	{
+		int count = 0;
+		ICardSet set = set(C9S, C9H, C9C);
+		for (Card card : set)
+		{
+			assertTrue(set.contains(card));
+			count++;
+		}
+		assertEquals(3, count);
+	}
 }
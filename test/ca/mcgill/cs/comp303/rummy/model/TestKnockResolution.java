@@ -0,0 +1,68 @@
+package ca.mcgill.cs.comp303.rummy.model;
+
+import static ca.mcgill.cs.comp303.rummy.testutils.AllCards.*;
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class TestKnockResolution
+{
+	private static long mask(Card... pCards)
+	{
+		return CardMask.of(Arrays.asList(pCards));
+	}
+
+	private static KnockResolution resolve(long pKnocker, Card pDiscard, long pDefender)
+	{
+		return KnockResolution.resolve(pKnocker, pDiscard, pDefender, new SetMatcher());
+	}
+
+	@Test
+	public void testKnockWithLayOffs()
+	{
+		long knocker = mask(C5H, C6H, C7H, C9C, C9D, C9S, C2C, C3C, C4C, CAS);
+		long defender = mask(C4H, C8H, C9H, CKD, CKS, CKH, CQC, CJC, C2D, C3D);
+		KnockResolution knock = resolve(knocker, null, defender);
+		assertEquals(KnockResolution.Outcome.KNOCK, knock.getOutcome());
+		assertTrue(knock.knockerWins());
+		assertEquals(1, knock.getKnockerDeadwood());
+		assertEquals(mask(C4H, C8H, C9H), knock.getLayOffs());
+		assertEquals(10 + 10 + 2 + 3, knock.getDefenderDeadwood());
+		assertEquals(24, knock.getPoints());
+	}
+
+	@Test
+	public void testUndercut()
+	{
+		long knocker = mask(CAC, C2C, C3C, C4D, C5D, C6D, C7S, C8S, C9S, CTH);
+		long defender = mask(C5C, C5H, C5S, C2H, C3H, C4H, CJS, CQS, CKS, CAD);
+		KnockResolution knock = resolve(knocker, null, defender);
+		assertEquals(KnockResolution.Outcome.UNDERCUT, knock.getOutcome());
+		assertFalse(knock.knockerWins());
+		assertEquals(1, knock.getDefenderDeadwood());
+		assertEquals(KnockResolution.UNDERCUT_BONUS + 9, knock.getPoints());
+	}
+
+	@Test
+	public void testGinHasNoLayOffs()
+	{
+		long knocker = mask(CAC, C2C, C3C, C4D, C5D, C6D, C7S, C8S, C9S, CTS);
+		long defender = mask(CJS, CQS, CKD, CKH, C2H, C3H, C9H, C8C, C7D, C6H);
+		KnockResolution knock = resolve(knocker, CKC, defender);
+		assertEquals(KnockResolution.Outcome.GIN, knock.getOutcome());
+		assertEquals(0, knock.getLayOffs());
+		assertEquals(KnockResolution.GIN_BONUS + 75, knock.getPoints());
+	}
+
+	@Test
+	public void testBigGin()
+	{
+		long knocker = mask(CAC, C2C, C3C, C4D, C5D, C6D, C7S, C8S, C9S, CTS);
+		long defender = mask(CQS, CKD, CKH, C2H, C3H, C9H, C8C, C7D, C6H, C5H);
+		KnockResolution knock = resolve(knocker, CJS, defender);
+		assertEquals(KnockResolution.Outcome.BIG_GIN, knock.getOutcome());
+		assertEquals(KnockResolution.BIG_GIN_BONUS + 70, knock.getPoints());
+	}
+}
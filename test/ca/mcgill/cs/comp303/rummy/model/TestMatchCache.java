@@ -0,0 +1,103 @@
+package ca.mcgill.cs.comp303.rummy.model;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class TestMatchCache
+{
+	private static MatchResult result(long hand)
+	{
+		return new MatchResult(hand, new long[0]);
+	}
+
+	@Test
+	public void testCapacityBound()
+	{
+		MatchCache cache = new MatchCache(1000, MatchCache.EvictionPolicy.LRU);
+		Random random = new Random(303);
+		for (int i = 0; i < 20000; i++)
+		{
+			cache.put(result(random.nextLong() & CardMask.ALL));
+			assertTrue(cache.size() <= 1000);
+		}
+		// Every segment is full.
+		assertEquals(1000, cache.size());
+		assertEquals(1000, cache.getCapacity());
+	}
+
+	@Test
+	public void testSmallCapacities()
+	{
+		for (int capacity = 1; capacity <= 20; capacity++)
+		{
+			MatchCache cache = new MatchCache(capacity, MatchCache.EvictionPolicy.FIFO);
+			for (long hand = 1; hand <= 1000; hand++)
+			{
+				cache.put(result(hand));
+			}
+			assertEquals(capacity, cache.size());
+			if (capacity < 16)
+			{
+				// A single segment: the last entries written are all kept.
+				for (long hand = 1000; hand > 1000 - capacity; hand--)
+				{
+					assertNotNull(cache.get(hand));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testLruKeepsTheEntriesRead()
+	{
+		MatchCache cache = new MatchCache(3, MatchCache.EvictionPolicy.LRU);
+		cache.put(result(1));
+		cache.put(result(2));
+		cache.put(result(3));
+		assertNotNull(cache.get(1));
+		cache.put(result(4));
+		assertNotNull(cache.get(1));
+		assertNull(cache.get(2));
+		assertNotNull(cache.get(3));
+		assertNotNull(cache.get(4));
+	}
+
+	@Test
+	public void testFifoDropsTheOldestWritten()
+	{
+		MatchCache cache = new MatchCache(3, MatchCache.EvictionPolicy.FIFO);
+		cache.put(result(1));
+		cache.put(result(2));
+		cache.put(result(3));
+		assertNotNull(cache.get(1));
+		cache.put(result(4));
+		assertNull(cache.get(1));
+		assertNotNull(cache.get(2));
+		assertNotNull(cache.get(3));
+		assertNotNull(cache.get(4));
+	}
+
+	@Test
+	public void testCounters()
+	{
+		MatchCache cache = new MatchCache(100, MatchCache.EvictionPolicy.LRU);
+		MatchResult stored = result(7);
+		assertNull(cache.get(7));
+		cache.put(stored);
+		assertSame(stored, cache.get(7));
+		assertSame(stored, cache.get(7));
+		assertNull(cache.get(8));
+		assertEquals(2, cache.getHits());
+		assertEquals(2, cache.getMisses());
+
+		// Clearing the entries keeps the counters.
+		cache.clear();
+		assertEquals(0, cache.size());
+		assertNull(cache.get(7));
+		assertEquals(2, cache.getHits());
+		assertEquals(3, cache.getMisses());
+	}
+}
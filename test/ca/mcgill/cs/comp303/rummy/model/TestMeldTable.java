@@ -0,0 +1,58 @@
+package ca.mcgill.cs.comp303.rummy.model;
+
+import static ca.mcgill.cs.comp303.rummy.testutils.AllCards.*;
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class TestMeldTable
+{
+	private static long mask(Card... pCards)
+	{
+		return CardMask.of(Arrays.asList(pCards));
+	}
+
+	@Test
+	public void testEveryMeldOnce()
+	{
+		// 5 groups per rank, and 11 + 10 + ... + 1 runs per suit.
+		assertEquals(5 * 13 + 66 * 4, MeldTable.size());
+		Set<Long> melds = new HashSet<Long>();
+		for (int i = 0; i < MeldTable.size(); i++)
+		{
+			assertTrue(MeldTable.isMeld(MeldTable.get(i)));
+			assertTrue(melds.add(MeldTable.get(i)));
+		}
+	}
+
+	@Test
+	public void testIsMeld()
+	{
+		assertTrue(MeldTable.isMeld(mask(C7C, C7D, C7S)));
+		assertTrue(MeldTable.isMeld(mask(CJS, CQS, CKS)));
+		assertFalse(MeldTable.isMeld(mask(C7C, C7D)));
+		assertFalse(MeldTable.isMeld(mask(C7C, C8C, C7D)));
+		// Runs do not wrap around, nor across suits.
+		assertFalse(MeldTable.isMeld(mask(CQC, CKC, CAC)));
+		assertFalse(MeldTable.isMeld(mask(CQC, CKC, CAD)));
+	}
+
+	@Test
+	public void testCandidates()
+	{
+		long hand = mask(C5H, C6H, C7H, C8H, C9C, C9D, C9S, CJS, CQS, CKS);
+		Set<Long> expected = new HashSet<Long>(Arrays.asList(mask(C5H, C6H, C7H), mask(C6H, C7H, C8H),
+				mask(C5H, C6H, C7H, C8H), mask(C9C, C9D, C9S), mask(CJS, CQS, CKS)));
+		Set<Long> actual = new HashSet<Long>();
+		for (long meld : MeldTable.candidates(hand))
+		{
+			actual.add(meld);
+		}
+		assertEquals(expected, actual);
+		assertEquals(0, MeldTable.candidates(mask(CAC, C3C, C5D)).length);
+	}
+}
@@ -0,0 +1,84 @@
+package ca.mcgill.cs.comp303.rummy.model;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class TestMonteCarloPlayer
+{
+	private static final long MILLIS = 10;
+
+	// Measures the time of each turn.
+	private static class TimedPlayer extends MonteCarloPlayer
+	{
+		private long turns;
+		private long nanos;
+
+		TimedPlayer(GameEngine engine, ExecutorService pool)
+		{
+			super("Carlo", engine, pool, 2, MILLIS, Integer.MAX_VALUE);
+		}
+
+		@Override
+		public Card playTurn()
+		{
+			long start = System.nanoTime();
+			Card discard = super.playTurn();
+			nanos += System.nanoTime() - start;
+			turns++;
+			return discard;
+		}
+	}
+
+	@Test
+	public void testPlaysLegalGamesWithinBudget() throws Exception
+	{
+		ExecutorService pool = Executors.newFixedThreadPool(2);
+		try
+		{
+			GameEngine engine = new GameEngine(303);
+			TimedPlayer carlo = new TimedPlayer(engine, pool);
+			engine.addPlayer(carlo);
+			engine.addPlayer(new RandomPlayer("Rand", engine));
+			for (int game = 0; game < 5; game++)
+			{
+				engine.newGame();
+				assertTrue(engine.isOver());
+				long[] hands = {engine.getHumanPlayer().getHand().getCards(), engine.getAIPlayer().getHand().getCards()};
+				assertEquals(10, Long.bitCount(hands[0]));
+				assertEquals(10, Long.bitCount(hands[1]));
+				// Every card is in exactly one hand, the deck or the discard pile.
+				long cards = hands[0] | hands[1];
+				assertEquals(0, hands[0] & hands[1]);
+				for (byte id : engine.getDeck().toIds())
+				{
+					assertEquals(0, cards & 1L << id);
+					cards |= 1L << id;
+				}
+				for (byte id : engine.getDiscardPile().toIds())
+				{
+					assertEquals(0, cards & 1L << id);
+					cards |= 1L << id;
+				}
+				assertEquals(CardMask.ALL, cards);
+				int knocker = engine.getKnocker();
+				if (knocker >= 0)
+				{
+					assertTrue(engine.getKnockResolution().getKnockerDeadwood() <= 10);
+				}
+			}
+			assertTrue(carlo.turns > 0);
+			// A turn spends one budget, even when it draws from the deck and chooses twice.
+			long average = carlo.nanos / carlo.turns;
+			assertTrue("Average turn of " + average + " ns", average < TimeUnit.MILLISECONDS.toNanos(MILLIS) * 3 / 2);
+		}
+		finally
+		{
+			pool.shutdownNow();
+		}
+	}
+}
@@ -0,0 +1,143 @@
+package ca.mcgill.cs.comp303.rummy.model;
+
+import static org.junit.Assert.*;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TestMoveJournal
+{
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private static GameEngine newEngine(long seed) throws Exception
+	{
+		GameEngine engine = new GameEngine(seed);
+		engine.addPlayer(new RandomPlayer("A", engine));
+		engine.addPlayer(new RandomPlayer("B", engine));
+		return engine;
+	}
+
+	// Plays complete turns, each player in turn, until the game is over.
+	private static void play(GameEngine engine, int turns)
+	{
+		for (int i = 0; i < turns && !engine.isOver(); i++)
+		{
+			int player = engine.getCurrentPlayer();
+			engine.beginTurn(player);
+			Card discard = (player == 0 ? engine.getHumanPlayer() : engine.getAIPlayer()).playTurn();
+			engine.endTurn(discard);
+		}
+	}
+
+	private static void assertSameEngine(GameEngine expected, GameEngine actual)
+	{
+		assertEquals(expected.getState(), actual.getState());
+		assertEquals(expected.getDealer(), actual.getDealer());
+		assertEquals(expected.getGamesToPlay(), actual.getGamesToPlay());
+		assertArrayEquals(expected.getScore(), actual.getScore());
+		assertArrayEquals(expected.getDeck().toIds(), actual.getDeck().toIds());
+		assertArrayEquals(expected.getDiscardPile().toIds(), actual.getDiscardPile().toIds());
+		assertArrayEquals(expected.getTracker().toMasks(), actual.getTracker().toMasks());
+		assertEquals(expected.getHumanPlayer().getHand().getCards(), actual.getHumanPlayer().getHand().getCards());
+		assertEquals(expected.getAIPlayer().getHand().getCards(), actual.getAIPlayer().getHand().getCards());
+	}
+
+	@Test
+	public void testAppendAndRecover() throws Exception
+	{
+		Path file = folder.newFile().toPath();
+		GameEngine engine = newEngine(1);
+		try (MoveJournal journal = new MoveJournal(file))
+		{
+			engine.setJournal(journal);
+			engine.deal();
+			play(engine, 12);
+		}
+		assertSameEngine(engine, MoveJournal.recover(file));
+	}
+
+	@Test
+	public void testDrawWithoutDiscardIsRolledBack() throws Exception
+	{
+		Path file = folder.newFile().toPath();
+		GameEngine engine = newEngine(2);
+		try (MoveJournal journal = new MoveJournal(file))
+		{
+			engine.setJournal(journal);
+			engine.deal();
+			play(engine, 5);
+			GameEngine expected = MoveJournal.recover(file);
+			assertSameEngine(engine, expected);
+
+			// The engine stops after the draw of the next turn.
+			engine.beginTurn(engine.getCurrentPlayer());
+			engine.getDeckCard();
+			assertSameEngine(expected, MoveJournal.recover(file));
+		}
+	}
+
+	@Test
+	public void testReopenThenAppend() throws Exception
+	{
+		Path file = folder.newFile().toPath();
+		GameEngine engine = newEngine(3);
+		try (MoveJournal journal = new MoveJournal(file))
+		{
+			engine.setJournal(journal);
+			engine.deal();
+			play(engine, 4);
+		}
+		GameEngine recovered = MoveJournal.recover(file);
+		try (MoveJournal journal = new MoveJournal(file))
+		{
+			recovered.setJournal(journal);
+			play(recovered, 6);
+		}
+		assertSameEngine(recovered, MoveJournal.recover(file));
+	}
+
+	@Test
+	public void testTornSnapshotIsIgnored() throws Exception
+	{
+		// The moves after the reopening overwrite the torn snapshot up to various lengths.
+		for (int turns = 0; turns < 20; turns++)
+		{
+			Path file = folder.newFile().toPath();
+			GameEngine engine = newEngine(4);
+			int end;
+			try (MoveJournal journal = new MoveJournal(file))
+			{
+				engine.setJournal(journal);
+				engine.deal();
+				play(engine, 4);
+				end = journal.size();
+			}
+
+			// A snapshot cut off before its kind byte: its length and payload are written.
+			ByteBuffer payload = GameSaver.encode(engine);
+			ByteBuffer torn = ByteBuffer.allocate(1 + 4 + payload.remaining());
+			torn.put((byte) 0).putInt(payload.remaining()).put(payload).flip();
+			try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE))
+			{
+				channel.write(torn, end);
+			}
+
+			GameEngine recovered = MoveJournal.recover(file);
+			assertSameEngine(engine, recovered);
+			try (MoveJournal journal = new MoveJournal(file))
+			{
+				assertEquals(end, journal.size());
+				recovered.setJournal(journal);
+				play(recovered, turns);
+			}
+			assertSameEngine(recovered, MoveJournal.recover(file));
+		}
+	}
+}
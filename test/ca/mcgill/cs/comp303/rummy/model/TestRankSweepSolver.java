@@ -0,0 +1,101 @@
+package ca.mcgill.cs.comp303.rummy.model;
+
+import static ca.mcgill.cs.comp303.rummy.testutils.AllCards.*;
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class TestRankSweepSolver
+{
+	private final RankSweepSolver solver = new RankSweepSolver();
+
+	private static long mask(Card... pCards)
+	{
+		return CardMask.of(Arrays.asList(pCards));
+	}
+
+	@Test
+	public void testRunsAndGroups()
+	{
+		long hand = mask(C5H, C6H, C7H, C9C, C9D, C9S, C2C, C3C, C4C, CAS);
+		MatchResult result = solver.match(hand);
+		assertEquals(1, result.getDeadwood());
+		assertEquals(3, result.getMeldCount());
+	}
+
+	@Test
+	public void testSharedCardGoesToTheBetterMeld()
+	{
+		// The 7 of hearts is in a run and in a group; only one can have it.
+		long hand = mask(C5H, C6H, C7H, C7C, C7D);
+		assertEquals(C5H.value() + C6H.value(), solver.match(hand).getDeadwood());
+	}
+
+	@Test
+	public void testRunEndingAtTheKing()
+	{
+		// The king of hearts ends the run, and the other kings make a group; the face cards count 10.
+		long hand = mask(CJH, CQH, CKH, CKC, CKD, CKS, CQS);
+		assertEquals(10, solver.match(hand).getDeadwood());
+		// Without the jack, the kings make a group of 4 and both queens are left.
+		assertEquals(20, solver.match(hand & ~mask(CJH)).getDeadwood());
+	}
+
+	@Test
+	public void testSameDeadwoodAsSetMatcher()
+	{
+		// Low ranks only, for hands with many overlapping melds.
+		Random random = new Random(303);
+		for (int i = 0; i < 2000; i++)
+		{
+			assertSameAsSetMatcher(randomHand(random, 7));
+		}
+	}
+
+	@Test
+	public void testSameDeadwoodAsSetMatcherOverAllRanks()
+	{
+		// Face cards, runs ending at the queen or the king.
+		Random random = new Random(304);
+		for (int i = 0; i < 5000; i++)
+		{
+			assertSameAsSetMatcher(randomHand(random, CardMask.SUIT_WIDTH));
+		}
+	}
+
+	private static long randomHand(Random random, int ranks)
+	{
+		long hand = 0;
+		int size = 1 + random.nextInt(11);
+		while (Long.bitCount(hand) < size)
+		{
+			hand |= 1L << (random.nextInt(4) * CardMask.SUIT_WIDTH + random.nextInt(ranks));
+		}
+		return hand;
+	}
+
+	private void assertSameAsSetMatcher(long hand)
+	{
+		SetMatcher reference = new SetMatcher(null);
+		MatchResult result = solver.match(hand);
+		assertEquals(reference.match(hand).getDeadwood(), result.getDeadwood());
+		long melded = 0;
+		for (int k = 0; k < result.getMeldCount(); k++)
+		{
+			long meld = result.getMeld(k);
+			assertTrue(MeldTable.isMeld(meld));
+			assertEquals(0, meld & melded);
+			assertEquals(0, meld & ~hand);
+			melded |= meld;
+		}
+		DiscardAnalysis discards = solver.analyzeDiscards(hand);
+		DiscardAnalysis expected = reference.analyzeDiscards(hand);
+		for (Card card : CardMask.toList(hand))
+		{
+			assertEquals(expected.getDeadwoodAfter(card), discards.getDeadwoodAfter(card));
+		}
+	}
+}
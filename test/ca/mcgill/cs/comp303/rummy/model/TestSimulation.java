@@ -0,0 +1,79 @@
+package ca.mcgill.cs.comp303.rummy.model;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class TestSimulation
+{
+	private static class CountingFactory implements Simulation.PlayerFactory
+	{
+		private final AtomicInteger created = new AtomicInteger();
+
+		@Override
+		public Player createPlayer(GameEngine pEngine)
+		{
+			return new RandomPlayer("Bot " + created.incrementAndGet(), pEngine);
+		}
+	}
+
+	@Test
+	public void testBatchesCoverAllGames() throws Exception
+	{
+		for (long games : new long[] {0, 1, 3, 7, 23, 50})
+		{
+			CountingFactory factory = new CountingFactory();
+			SimulationResult result = new Simulation(factory, 3).run(games);
+			assertEquals(games, result.getGames());
+			assertEquals(games, result.getDraws() + result.getKnocks(0) + result.getKnocks(1));
+			// One engine per batch: at most 4 batches per thread, and never more than the games.
+			int engines = factory.created.get() / 2;
+			assertEquals(Math.max(1, Math.min(games, 12)), engines);
+		}
+	}
+
+	@Test
+	public void testMerge() throws Exception
+	{
+		GameEngine engine = new GameEngine(303);
+		engine.addPlayer(new RandomPlayer("A", engine));
+		engine.addPlayer(new RandomPlayer("B", engine));
+		SimulationResult first = new SimulationResult();
+		SimulationResult second = new SimulationResult();
+		long[] points = new long[2];
+		long[] knocks = new long[2];
+		long draws = 0;
+		for (int i = 0; i < 30; i++)
+		{
+			engine.newGame();
+			(i % 3 == 0 ? first : second).record(engine);
+			points[0] += engine.getScore()[0];
+			points[1] += engine.getScore()[1];
+			if (engine.getKnocker() < 0)
+			{
+				draws++;
+			}
+			else
+			{
+				knocks[engine.getKnocker()]++;
+			}
+		}
+		assertEquals(10, first.getGames());
+		assertEquals(20, second.getGames());
+
+		first.merge(second);
+		assertEquals(30, first.getGames());
+		assertEquals(draws, first.getDraws());
+		for (int player = 0; player < 2; player++)
+		{
+			assertEquals(knocks[player], first.getKnocks(player));
+			assertEquals(points[player], first.getPoints(player));
+		}
+		// Merging leaves the merged result as it was.
+		assertEquals(20, second.getGames());
+		first.merge(new SimulationResult());
+		assertEquals(30, first.getGames());
+	}
+}
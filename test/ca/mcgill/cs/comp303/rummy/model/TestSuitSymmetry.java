@@ -0,0 +1,91 @@
+package ca.mcgill.cs.comp303.rummy.model;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class TestSuitSymmetry
+{
+	private static long randomMask(Random random, int size)
+	{
+		long mask = 0;
+		while (Long.bitCount(mask) < size)
+		{
+			mask |= 1L << random.nextInt(Card.NUMBER_OF_CARDS);
+		}
+		return mask;
+	}
+
+	// Packs the permutation that maps suit s to suits[s].
+	private static int permutation(int... suits)
+	{
+		return suits[0] | suits[1] << 2 | suits[2] << 4 | suits[3] << 6;
+	}
+
+	@Test
+	public void testAllRelabelingsHaveTheSameRepresentative()
+	{
+		Random random = new Random(303);
+		int[][] orders = {{0, 1, 2, 3}, {1, 0, 3, 2}, {3, 2, 1, 0}, {2, 3, 0, 1}, {1, 2, 3, 0}, {0, 3, 1, 2}};
+		for (int i = 0; i < 100; i++)
+		{
+			long hand = randomMask(random, 10);
+			long seen = randomMask(random, 15) & ~hand;
+			int canonical = SuitSymmetry.canonicalize(hand, seen);
+			for (int[] order : orders)
+			{
+				int relabel = permutation(order);
+				long otherHand = SuitSymmetry.permute(hand, relabel);
+				long otherSeen = SuitSymmetry.permute(seen, relabel);
+				int other = SuitSymmetry.canonicalize(otherHand, otherSeen);
+				assertEquals(SuitSymmetry.permute(hand, canonical), SuitSymmetry.permute(otherHand, other));
+				assertEquals(SuitSymmetry.permute(seen, canonical), SuitSymmetry.permute(otherSeen, other));
+			}
+		}
+	}
+
+	@Test
+	public void testInverse()
+	{
+		Random random = new Random(42);
+		long hand = randomMask(random, 10);
+		int canonical = SuitSymmetry.canonicalize(hand, 0);
+		assertEquals(hand, SuitSymmetry.permute(SuitSymmetry.permute(hand, canonical), SuitSymmetry.inverse(canonical)));
+		assertEquals(SuitSymmetry.IDENTITY, SuitSymmetry.inverse(SuitSymmetry.IDENTITY));
+	}
+
+	@Test
+	public void testSeenCardsBreakTies()
+	{
+		// Same ranks in clubs and diamonds; only the seen cards tell them apart.
+		long hand = CardMask.of(Card.byId(0)) | CardMask.of(Card.byId(13));
+		long seenClub = CardMask.of(Card.byId(1));
+		long seenDiamond = CardMask.of(Card.byId(14));
+		assertEquals(SuitSymmetry.permute(seenClub, SuitSymmetry.canonicalize(hand, seenClub)),
+				SuitSymmetry.permute(seenDiamond, SuitSymmetry.canonicalize(hand, seenDiamond)));
+		assertNotEquals(SuitSymmetry.canonicalize(hand, seenClub), SuitSymmetry.canonicalize(hand, seenDiamond));
+	}
+
+	@Test
+	public void testCachedMatchingOfRelabeledHand()
+	{
+		SetMatcher matcher = new SetMatcher(new MatchCache(16, MatchCache.EvictionPolicy.LRU));
+		Random random = new Random(7);
+		for (int i = 0; i < 50; i++)
+		{
+			long hand = randomMask(random, 10);
+			long relabeled = SuitSymmetry.permute(hand, permutation(2, 0, 3, 1));
+			MatchResult first = matcher.match(hand);
+			MatchResult second = matcher.match(relabeled);
+			assertEquals(relabeled, second.getHand());
+			assertEquals(first.getDeadwood(), second.getDeadwood());
+			for (int m = 0; m < second.getMeldCount(); m++)
+			{
+				assertTrue(MeldTable.isMeld(second.getMeld(m)));
+				assertEquals(second.getMeld(m), second.getMeld(m) & relabeled);
+			}
+		}
+	}
+}
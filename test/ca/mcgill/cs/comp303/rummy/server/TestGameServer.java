@@ -0,0 +1,155 @@
+package ca.mcgill.cs.comp303.rummy.server;
+
+import static org.junit.Assert.*;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.net.Socket;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import ca.mcgill.cs.comp303.rummy.model.Card;
+import ca.mcgill.cs.comp303.rummy.model.GameEngine;
+import ca.mcgill.cs.comp303.rummy.model.GameSaver;
+import ca.mcgill.cs.comp303.rummy.model.MoveJournal;
+import ca.mcgill.cs.comp303.rummy.model.NumberOfPlayersException;
+import ca.mcgill.cs.comp303.rummy.model.PlainSeat;
+
+public class TestGameServer
+{
+	private static final int TABLES = 20;
+	private static final int GAMES = 5;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testBotsPlayAllGames() throws Exception
+	{
+		GameServer server = new GameServer(0, GAMES, 2);
+		ExecutorService bots = Executors.newFixedThreadPool(2 * TABLES);
+		try
+		{
+			List<Future<Integer>> games = new ArrayList<Future<Integer>>();
+			for( int i = 0; i < 2 * TABLES; i++ )
+			{
+				games.add(bots.submit(new BotClient("localhost", server.getPort(), i)));
+			}
+			for( Future<Integer> played : games )
+			{
+				assertEquals(GAMES, (int) played.get());
+			}
+			assertEquals(TABLES * GAMES, server.getGamesPlayed());
+			assertEquals(0, server.getTableCount());
+		}
+		finally
+		{
+			bots.shutdownNow();
+			server.close();
+		}
+	}
+
+	@Test
+	public void testIllegalMoveClosesTable() throws Exception
+	{
+		GameServer server = new GameServer(0, GAMES, 1);
+		try(Socket first = new Socket("localhost", server.getPort());
+				Socket second = new Socket("localhost", server.getPort()))
+		{
+			new DataOutputStream(first.getOutputStream()).writeByte(Protocol.JOIN);
+			DataOutputStream out = new DataOutputStream(second.getOutputStream());
+			DataInputStream in = new DataInputStream(second.getInputStream());
+			out.writeByte(Protocol.JOIN);
+			assertEquals(Protocol.DEAL, in.readByte());
+			int seat = in.readUnsignedByte();
+			int dealer = in.readUnsignedByte();
+			in.readFully(new byte[Protocol.HAND_SIZE + 1]);
+			if( seat != dealer )
+			{
+				assertEquals(Protocol.PROMPT_PASS, in.readByte());
+			}
+			// Drawing is illegal before the first turn, for both players.
+			out.write(new byte[] {Protocol.DRAW, Protocol.DECK});
+			assertEquals(Protocol.ERROR, in.readByte());
+			assertEquals(-1, in.read());
+		}
+		finally
+		{
+			server.close();
+		}
+	}
+
+	@Test
+	public void testSeatsAreDealtButDoNotPlay() throws Exception
+	{
+		GameEngine engine = new GameEngine();
+		RemoteSeat[] seats = {new RemoteSeat("Player 1"), new RemoteSeat("Player 2")};
+		engine.setSeats(seats[0], seats[1]);
+		engine.deal();
+		assertEquals(10, seats[0].getHand().size());
+		assertEquals(10, seats[1].getHand().size());
+		assertSame(seats[1], engine.getSeat(1));
+		assertNull(engine.getHumanPlayer());
+		try
+		{
+			engine.newGame();
+			fail();
+		}
+		catch( NumberOfPlayersException e )
+		{
+			// Seats are driven one move at a time.
+		}
+	}
+
+	// Checks that an engine has plain seats with the names and hands of the seats of a table.
+	private static void assertSameSeats(RemoteSeat[] expected, GameEngine actual)
+	{
+		for (int i = 0; i < 2; i++)
+		{
+			assertTrue(actual.getSeat(i) instanceof PlainSeat);
+			assertEquals(expected[i].getName(), actual.getSeat(i).getName());
+			assertEquals(expected[i].getHand().getCards(), actual.getSeat(i).getHand().getCards());
+		}
+		assertNull(actual.getHumanPlayer());
+	}
+
+	@Test
+	public void testTableEngineIsSavedAndJournaled() throws Exception
+	{
+		Path journalFile = folder.getRoot().toPath().resolve("table.journal");
+		Path saveFile = folder.getRoot().toPath().resolve("table.dat");
+		GameEngine engine = new GameEngine(303);
+		RemoteSeat[] seats = {new RemoteSeat("Player 1"), new RemoteSeat("Player 2")};
+		engine.setSeats(seats[0], seats[1]);
+		try (MoveJournal journal = new MoveJournal(journalFile))
+		{
+			engine.setJournal(journal);
+			engine.deal();
+			// The player who does not deal draws from the deck and discards the first card of the hand.
+			int player = engine.getCurrentPlayer();
+			engine.beginTurn(player);
+			seats[player].draw(engine.getDeckCard());
+			Card discard = seats[player].discard(Long.numberOfTrailingZeros(seats[player].getHand().getCards()));
+			engine.endTurn(discard);
+			journal.sync();
+		}
+		GameSaver.write(engine, saveFile);
+
+		GameEngine loaded = GameSaver.read(saveFile);
+		assertSameSeats(seats, loaded);
+		assertEquals(engine.peekDiscardTop(), loaded.peekDiscardTop());
+		assertEquals(engine.getCurrentPlayer(), loaded.getCurrentPlayer());
+
+		GameEngine recovered = MoveJournal.recover(journalFile);
+		assertSameSeats(seats, recovered);
+		assertEquals(engine.peekDiscardTop(), recovered.peekDiscardTop());
+	}
+}